@@ -0,0 +1,422 @@
+package com.kenzie.app;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the codec classes asked for with @JsonCodec, while main is being compiled.
+ *
+ * Everything comes from the source: which fields are marked @JsonProperty and under what
+ * name, the order from @JsonPropertyOrder, and the setters and getters to use. The
+ * Jackson annotations are matched by name, so the processor itself needs nothing but
+ * the JDK. For each marked class Foo it writes FooCodec, with:
+ *
+ *  - read(JsonParser): the parser on the object's '{' (or null). One pass over the
+ *    fields, a switch on each field name, and the value set with its setter. Leaves the
+ *    parser on the matching '}'.
+ *  - write(JsonGenerator, Foo): the fields in order, straight from the getters.
+ *
+ * Static classes nested in Foo that have @JsonProperty fields get private readX/writeX
+ * methods of their own in the same codec. Fields can be long, int, double, boolean,
+ * String, one of those nested classes, another @JsonCodec class, or a List of either.
+ * Anything else is reported as a compile error on the field.
+ *
+ * @author Ethan Tauriainen
+ */
+@SupportedAnnotationTypes(JsonCodecProcessor.JSON_CODEC)
+public class JsonCodecProcessor extends AbstractProcessor {
+
+    static final String JSON_CODEC = "com.kenzie.app.JsonCodec";
+
+    private static final String JSON_PROPERTY = "com.fasterxml.jackson.annotation.JsonProperty";
+    private static final String JSON_PROPERTY_ORDER = "com.fasterxml.jackson.annotation.JsonPropertyOrder";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : round.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    error(element, "@JsonCodec only goes on classes");
+                    continue;
+                }
+                try {
+                    generate((TypeElement) element);
+                } catch (IOException e) {
+                    error(element, "Couldn't write the codec: " + e.getMessage());
+                }
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement root) throws IOException {
+        String packageName = packageOf(root).getQualifiedName().toString();
+        String codecName = root.getSimpleName() + "Codec";
+
+        // The root first, then the nested classes with properties, which get their own methods.
+        Map<TypeElement, String> models = new LinkedHashMap<>();
+        models.put(root, "");
+        for (Element member : root.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.CLASS && member.getModifiers().contains(Modifier.STATIC)
+                    && !properties((TypeElement) member).isEmpty()) {
+                models.put((TypeElement) member, member.getSimpleName().toString());
+            }
+        }
+
+        Codec codec = new Codec(root, codecName, packageName, models);
+        for (TypeElement model : models.keySet()) {
+            codec.model(model);
+        }
+        if (codec.failed) {
+            return;
+        }
+        try (Writer out = processingEnv.getFiler().createSourceFile(packageName + "." + codecName, root).openWriter()) {
+            out.write(codec.source());
+        }
+    }
+
+    /**
+     * @return the fields marked @JsonProperty, in @JsonPropertyOrder order and then the
+     * order they are declared in.
+     */
+    private List<Property> properties(TypeElement type) {
+        List<Property> declared = new ArrayList<>();
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() != ElementKind.FIELD || member.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            AnnotationMirror property = annotation(member, JSON_PROPERTY);
+            if (property != null) {
+                Object name = value(property);
+                String json = name == null || name.toString().isEmpty() ? member.getSimpleName().toString()
+                        : name.toString();
+                declared.add(new Property((VariableElement) member, json));
+            }
+        }
+        List<Property> ordered = new ArrayList<>(declared.size());
+        AnnotationMirror order = annotation(type, JSON_PROPERTY_ORDER);
+        if (order != null && value(order) instanceof List) {
+            for (Object entry : (List<?>) value(order)) {
+                String name = ((AnnotationValue) entry).getValue().toString();
+                for (Property property : declared) {
+                    if (property.json.equals(name) && !ordered.contains(property)) {
+                        ordered.add(property);
+                    }
+                }
+            }
+        }
+        for (Property property : declared) {
+            if (!ordered.contains(property)) {
+                ordered.add(property);
+            }
+        }
+        return ordered;
+    }
+
+    private static AnnotationMirror annotation(Element element, String name) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(name)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the annotation's value() as given, or null if it was left out.
+     */
+    private static Object value(AnnotationMirror mirror) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : mirror.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals("value")) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    private static PackageElement packageOf(Element element) {
+        while (!(element instanceof PackageElement)) {
+            element = element.getEnclosingElement();
+        }
+        return (PackageElement) element;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static final class Property {
+        private final VariableElement field;
+        private final String json;
+
+        private Property(VariableElement field, String json) {
+            this.field = field;
+            this.json = json;
+        }
+    }
+
+    /**
+     * The source of one codec class, built up a model at a time.
+     */
+    private final class Codec {
+        private final TypeElement root;
+        private final String name;
+        private final String packageName;
+        private final Map<TypeElement, String> models;
+        private final Map<String, String> listMethods = new LinkedHashMap<>();
+        private final StringBuilder methods = new StringBuilder();
+        private boolean failed;
+
+        private Codec(TypeElement root, String name, String packageName, Map<TypeElement, String> models) {
+            this.root = root;
+            this.name = name;
+            this.packageName = packageName;
+            this.models = models;
+        }
+
+        private void model(TypeElement type) {
+            String typeName = typeName(type);
+            String suffix = models.get(type);
+            boolean isRoot = type.equals(root);
+            String visibility = isRoot ? "    static " : "    private static ";
+            List<Property> properties = properties(type);
+
+            StringBuilder read = new StringBuilder();
+            read.append("    /**\n")
+                    .append("     * Reads a ").append(typeName).append(" from the parser, which is on its '{' or on null.\n")
+                    .append("     * Leaves the parser on the matching '}'.\n")
+                    .append("     */\n")
+                    .append(visibility).append(typeName).append(" read").append(suffix)
+                    .append("(JsonParser parser) throws IOException {\n")
+                    .append("        if (parser.currentToken() == JsonToken.VALUE_NULL) {\n")
+                    .append("            return null;\n")
+                    .append("        }\n")
+                    .append("        JsonCodecs.expect(parser, JsonToken.START_OBJECT, \"").append(typeName).append("\");\n")
+                    .append("        ").append(typeName).append(" value = new ").append(typeName).append("();\n")
+                    .append("        String field;\n")
+                    .append("        while ((field = parser.nextFieldName()) != null) {\n")
+                    .append("            parser.nextToken();\n")
+                    .append("            switch (field) {\n");
+
+            StringBuilder write = new StringBuilder();
+            write.append(visibility).append("void write").append(suffix)
+                    .append("(JsonGenerator generator, ").append(typeName).append(" value) throws IOException {\n")
+                    .append("        if (value == null) {\n")
+                    .append("            generator.writeNull();\n")
+                    .append("            return;\n")
+                    .append("        }\n")
+                    .append("        generator.writeStartObject();\n");
+
+            for (Property property : properties) {
+                String setter = accessor(type, property, "set" + capitalize(property.field.getSimpleName().toString()));
+                String getter = getter(type, property);
+                String[] code = valueCode(property.field, property.field.asType());
+                if (setter == null || getter == null || code == null) {
+                    failed = true;
+                    continue;
+                }
+                read.append("                case \"").append(property.json).append("\":\n")
+                        .append("                    value.").append(setter).append("(").append(code[0]).append(");\n")
+                        .append("                    break;\n");
+                write.append("        generator.writeFieldName(\"").append(property.json).append("\");\n")
+                        .append("        ").append(String.format(code[1], "value." + getter + "()")).append(";\n");
+            }
+
+            read.append("                default:\n")
+                    .append("                    throw JsonCodecs.unknownField(parser, \"").append(typeName)
+                    .append("\", field);\n")
+                    .append("            }\n")
+                    .append("        }\n")
+                    .append("        return value;\n")
+                    .append("    }\n\n");
+            write.append("        generator.writeEndObject();\n")
+                    .append("    }\n\n");
+            methods.append(read).append(write);
+        }
+
+        /**
+         * @return the code that reads a value of the type off the parser, and a format for
+         * the code that writes one (given the expression holding it), or null if the type
+         * isn't supported.
+         */
+        private String[] valueCode(Element field, TypeMirror type) {
+            switch (type.getKind()) {
+                case LONG:
+                    return new String[] {"JsonCodecs.readLong(parser)", "generator.writeNumber(%s)"};
+                case INT:
+                    return new String[] {"JsonCodecs.readInt(parser)", "generator.writeNumber(%s)"};
+                case DOUBLE:
+                    return new String[] {"JsonCodecs.readDouble(parser)", "generator.writeNumber(%s)"};
+                case BOOLEAN:
+                    return new String[] {"JsonCodecs.readBoolean(parser)", "generator.writeBoolean(%s)"};
+                case DECLARED:
+                    break;
+                default:
+                    error(field, "JsonCodec can't handle fields of type " + type);
+                    return null;
+            }
+            TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+            String qualified = element.getQualifiedName().toString();
+            if (qualified.equals("java.lang.String")) {
+                return new String[] {"JsonCodecs.readString(parser)", "generator.writeString(%s)"};
+            }
+            if (qualified.equals("java.util.List")) {
+                List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+                if (arguments.size() == 1 && arguments.get(0).getKind() == TypeKind.DECLARED) {
+                    String[] elementCode = valueCode(field, arguments.get(0));
+                    if (elementCode == null) {
+                        return null;
+                    }
+                    String suffix = listMethod(typeName((TypeElement) ((DeclaredType) arguments.get(0)).asElement()),
+                            elementCode);
+                    return new String[] {"read" + suffix + "(parser)", "write" + suffix + "(generator, %s)"};
+                }
+                error(field, "JsonCodec needs to know what a List holds");
+                return null;
+            }
+            if (models.containsKey(element)) {
+                String suffix = models.get(element);
+                return new String[] {"read" + suffix + "(parser)", "write" + suffix + "(generator, %s)"};
+            }
+            if (annotation(element, JSON_CODEC) != null) {
+                String codec = element.getSimpleName() + "Codec";
+                return new String[] {codec + ".read(parser)", codec + ".write(generator, %s)"};
+            }
+            error(field, "JsonCodec can't handle fields of type " + type);
+            return null;
+        }
+
+        /**
+         * Adds the methods for a List of the element type, once per element type.
+         *
+         * @return what their names end in.
+         */
+        private String listMethod(String elementType, String[] elementCode) {
+            String suffix = elementType.replace(".", "") + "List";
+            if (listMethods.containsKey(suffix)) {
+                return suffix;
+            }
+            String list = "List<" + elementType + ">";
+            listMethods.put(suffix, ""
+                    + "    private static " + list + " read" + suffix + "(JsonParser parser) throws IOException {\n"
+                    + "        if (parser.currentToken() == JsonToken.VALUE_NULL) {\n"
+                    + "            return null;\n"
+                    + "        }\n"
+                    + "        JsonCodecs.expect(parser, JsonToken.START_ARRAY, \"a list of " + elementType + "\");\n"
+                    + "        " + list + " list = new ArrayList<>();\n"
+                    + "        while (parser.nextToken() != JsonToken.END_ARRAY) {\n"
+                    + "            list.add(" + elementCode[0] + ");\n"
+                    + "        }\n"
+                    + "        return list;\n"
+                    + "    }\n\n"
+                    + "    private static void write" + suffix + "(JsonGenerator generator, " + list
+                    + " list) throws IOException {\n"
+                    + "        if (list == null) {\n"
+                    + "            generator.writeNull();\n"
+                    + "            return;\n"
+                    + "        }\n"
+                    + "        generator.writeStartArray();\n"
+                    + "        for (" + elementType + " element : list) {\n"
+                    + "            " + String.format(elementCode[1], "element") + ";\n"
+                    + "        }\n"
+                    + "        generator.writeEndArray();\n"
+                    + "    }\n\n");
+            return suffix;
+        }
+
+        private String getter(TypeElement type, Property property) {
+            String field = capitalize(property.field.getSimpleName().toString());
+            if (property.field.asType().getKind() == TypeKind.BOOLEAN && hasMethod(type, "is" + field)) {
+                return "is" + field;
+            }
+            return accessor(type, property, "get" + field);
+        }
+
+        private String accessor(TypeElement type, Property property, String method) {
+            if (hasMethod(type, method)) {
+                return method;
+            }
+            error(property.field, "JsonCodec needs a method " + method + " in " + type.getSimpleName());
+            return null;
+        }
+
+        private boolean hasMethod(TypeElement type, String method) {
+            for (Element member : type.getEnclosedElements()) {
+                if (member.getKind() == ElementKind.METHOD && member.getSimpleName().contentEquals(method)
+                        && !member.getModifiers().contains(Modifier.PRIVATE)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return how the type is named from inside its package, e.g. ClueDTO.Category.
+         */
+        private String typeName(TypeElement type) {
+            return type.getQualifiedName().toString().substring(packageName.isEmpty() ? 0 : packageName.length() + 1);
+        }
+
+        private String source() {
+            StringBuilder out = new StringBuilder();
+            if (!packageName.isEmpty()) {
+                out.append("package ").append(packageName).append(";\n\n");
+            }
+            out.append("import com.fasterxml.jackson.core.JsonGenerator;\n")
+                    .append("import com.fasterxml.jackson.core.JsonParser;\n")
+                    .append("import com.fasterxml.jackson.core.JsonToken;\n\n")
+                    .append("import java.io.IOException;\n")
+                    .append("import java.util.ArrayList;\n")
+                    .append("import java.util.List;\n")
+                    .append("import javax.annotation.processing.Generated;\n\n")
+                    .append("/**\n")
+                    .append(" * Reads and writes ").append(root.getSimpleName())
+                    .append(" as JSON without databind. Generated from its annotations by\n")
+                    .append(" * JsonCodecProcessor; don't edit.\n")
+                    .append(" */\n")
+                    .append("@Generated(\"").append(JsonCodecProcessor.class.getName()).append("\")\n")
+                    .append("final class ").append(name).append(" {\n\n")
+                    .append("    private ").append(name).append("() {\n")
+                    .append("    }\n\n")
+                    .append(methods);
+            for (String list : listMethods.values()) {
+                out.append(list);
+            }
+            out.setLength(out.length() - 1);    // One blank line too many.
+            out.append("}\n");
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.kenzie.app;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grading one submission, the way submitButtonClicked does it. The original rule
+ * (lower-case, trim and String.contains on both sides every time) against the fuzzy
+ * matcher with its answer prepared ahead of time, for a near miss and for a long
+ * answer that is wrong.
+ *
+ * @author Ethan Tauriainen
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnswerMatchBenchmark {
+
+    private static final String LONG_ANSWER = "The Hunchback of Notre Dame de Paris";
+
+    private final AnswerMatcher fuzzy = AnswerMatcher.fuzzy();
+    private String answer;
+    private PreparedAnswer preparedAnswer;
+    private PreparedAnswer preparedLongAnswer;
+
+    @Setup
+    public void setUp() throws IOException {
+        answer = BenchmarkData.clues(1).get(0).getAnswer();
+        preparedAnswer = fuzzy.prepare(answer);
+        preparedLongAnswer = fuzzy.prepare(LONG_ANSWER);
+    }
+
+    @Benchmark
+    public boolean originalContains() {
+        String userAnswer = "What are sheeps?".toLowerCase().trim();
+        return userAnswer.contains(answer.toLowerCase().trim());
+    }
+
+    @Benchmark
+    public boolean fuzzyNearMiss() {
+        return fuzzy.matches(preparedAnswer, "What are sheeps?");
+    }
+
+    @Benchmark
+    public boolean fuzzyLongWrongAnswer() {
+        return fuzzy.matches(preparedLongAnswer, "I am fairly sure it is The Phantom of the Opera");
+    }
+}
@@ -0,0 +1,64 @@
+package com.kenzie.app;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test data shared by the benchmarks, all built from clues.json.
+ *
+ * @author Ethan Tauriainen
+ */
+final class BenchmarkData {
+
+    static final String INPUT_FILE = "clues.json";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Builds a payload in the same shape as clues.json with the clues repeated the given
+     * number of times. Each copy gets new ids, so deduplication doesn't shrink it.
+     *
+     * @param copies how many times to repeat the clues in clues.json.
+     * @return the payload as JSON.
+     */
+    static String payload(int copies) throws IOException {
+        ObjectNode root = (ObjectNode) CustomHttpClient.OBJECT_MAPPER.readTree(Files.readString(Path.of(INPUT_FILE)));
+        ArrayNode original = (ArrayNode) root.get("clues");
+        ArrayNode clues = CustomHttpClient.OBJECT_MAPPER.createArrayNode();
+        long id = 1;
+        for (int copy = 0; copy < copies; copy++) {
+            for (int i = 0; i < original.size(); i++) {
+                ObjectNode clue = original.get(i).deepCopy();
+                clue.put("id", id++);
+                clues.add(clue);
+            }
+        }
+        root.set("clues", clues);
+        return CustomHttpClient.OBJECT_MAPPER.writeValueAsString(root);
+    }
+
+    static byte[] payloadBytes(int copies) throws IOException {
+        return payload(copies).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param count how many clues are wanted.
+     * @return that many clues, cycling through the clues in clues.json.
+     */
+    static List<ClueDTO> clues(int count) throws IOException {
+        List<ClueDTO> source = CustomHttpClient.getCluesList(Files.readString(Path.of(INPUT_FILE)));
+        List<ClueDTO> clues = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            clues.add(source.get(i % source.size()));
+        }
+        return clues;
+    }
+}
@@ -0,0 +1,79 @@
+package com.kenzie.app;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetch and parse over a real (loopback) HTTP connection, served by the JDK's built-in
+ * server so the numbers don't depend on the network: the blocking String path followed by
+ * databind, and the streaming path the game uses.
+ *
+ * @author Ethan Tauriainen
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FetchBenchmark {
+
+    @Param({"1", "100"})
+    public int copies;
+
+    private HttpServer server;
+    private ExecutorService serverPool;
+    private String url;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] payload = BenchmarkData.payloadBytes(copies);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/clues", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, payload.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(payload);
+            }
+        });
+        serverPool = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverPool);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/clues";
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+        serverPool.shutdown();     // The server doesn't shut down an executor it was given.
+    }
+
+    @Benchmark
+    public List<ClueDTO> sendGETThenDatabind() throws Exception {
+        return CustomHttpClient.getCluesList(CustomHttpClient.sendGET(url));
+    }
+
+    @Benchmark
+    public List<ClueDTO> fetchCluesStreaming() throws Exception {
+        return CustomHttpClient.fetchCluesAsync(url).get();
+    }
+}
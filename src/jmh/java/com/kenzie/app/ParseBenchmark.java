@@ -0,0 +1,80 @@
+package com.kenzie.app;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways a clue payload can be parsed: binding the whole ClueListDTO from a
+ * String (what getCluesList has always done), the streaming parser over an InputStream,
+ * and reading a JsonNode tree. Runs on a clues.json sized payload and one 100 times larger,
+ * binding the clues with the generated codecs and with databind.
+ *
+ * @author Ethan Tauriainen
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    @Param({"1", "100"})
+    public int copies;
+
+    @Param({"GENERATED", "DATABIND"})
+    public CustomHttpClient.CodecMode codec;
+
+    private String payload;
+    private byte[] payloadBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        payload = BenchmarkData.payload(copies);
+        payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        CustomHttpClient.setCodecMode(codec);
+    }
+
+    @Benchmark
+    public List<ClueDTO> databindFromString() throws IOException {
+        return CustomHttpClient.getCluesList(payload);
+    }
+
+    @Benchmark
+    public List<ClueDTO> streamingFromStream() throws IOException {
+        return CustomHttpClient.getCluesList(new ByteArrayInputStream(payloadBytes));
+    }
+
+    @Benchmark
+    public int streamingToConsumer(Blackhole blackhole) throws IOException {
+        return CustomHttpClient.readClues(new ByteArrayInputStream(payloadBytes), blackhole::consume);
+    }
+
+    @Benchmark
+    public int tree(Blackhole blackhole) throws IOException {
+        JsonNode root = CustomHttpClient.OBJECT_MAPPER.readTree(new ByteArrayInputStream(payloadBytes));
+        int count = 0;
+        for (JsonNode clue : root.get("clues")) {
+            blackhole.consume(clue.get("answer").asText());
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,82 @@
+package com.kenzie.app;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picking the ten clues for a game. Shuffling the whole list and taking the first ten,
+ * as startButtonClicked used to, against shuffling only as far as the ten needed, and
+ * against the ClueSampler (uniform and weighted by value) dealing to a player who is
+ * never to see a clue twice.
+ *
+ * @author Ethan Tauriainen
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SelectionBenchmark {
+
+    private static final int QUESTIONS_PER_GAME = 10;
+
+    @Param({"100", "100000"})
+    public int corpusSize;
+
+    private List<ClueDTO> clues;
+    private ClueSampler uniform;
+    private ClueSampler weighted;
+
+    @Setup
+    public void setUp() throws IOException {
+        clues = BenchmarkData.clues(corpusSize);
+        ClueStore store = new ClueStore();
+        store.addAll(clues);
+        uniform = ClueSampler.uniform(store);
+        weighted = ClueSampler.weighted(store, ClueSampler.byValue(store));
+    }
+
+    @Benchmark
+    public List<ClueDTO> shuffleAll() {
+        List<ClueDTO> copy = new ArrayList<>(clues);
+        Collections.shuffle(copy);
+        return copy.subList(0, QUESTIONS_PER_GAME);
+    }
+
+    @Benchmark
+    public List<ClueDTO> partialShuffle() {
+        List<ClueDTO> copy = new ArrayList<>(clues);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < QUESTIONS_PER_GAME; i++) {
+            Collections.swap(copy, i, i + random.nextInt(copy.size() - i));
+        }
+        return copy.subList(0, QUESTIONS_PER_GAME);
+    }
+
+    @Benchmark
+    public int[] uniformSampler() {
+        return uniform.sample("player", QUESTIONS_PER_GAME);
+    }
+
+    @Benchmark
+    public int[] weightedSampler() {
+        return weighted.sample("player", QUESTIONS_PER_GAME);
+    }
+}
@@ -0,0 +1,93 @@
+package com.kenzie.app;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * What the JVM has been up to at one moment: time spent in garbage collection, how much
+ * has been allocated, and how much heap is in use. Two of these taken a while apart give
+ * the GC and allocation rates over that while.
+ *
+ * Allocation comes from the HotSpot extension of ThreadMXBean, which counts every byte
+ * allocated by any thread since the JVM started (virtual threads count against the
+ * carrier threads they run on). On a JVM without it the allocation figures are -1.
+ *
+ * @author Ethan Tauriainen
+ */
+final class JvmStats {
+
+    private final long nanoTime;
+    private final long gcCount;
+    private final long gcMillis;
+    private final long allocatedBytes;
+    private final long heapUsedBytes;
+
+    private JvmStats(long nanoTime, long gcCount, long gcMillis, long allocatedBytes, long heapUsedBytes) {
+        this.nanoTime = nanoTime;
+        this.gcCount = gcCount;
+        this.gcMillis = gcMillis;
+        this.allocatedBytes = allocatedBytes;
+        this.heapUsedBytes = heapUsedBytes;
+    }
+
+    /**
+     * @return the JVM's numbers as they are right now.
+     */
+    static JvmStats sample() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        long allocated = -1;
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                allocated = hotspot.getTotalThreadAllocatedBytes();
+            }
+        }
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        return new JvmStats(System.nanoTime(), count, millis, allocated, heapUsed);
+    }
+
+    long getGcCount() {
+        return gcCount;
+    }
+
+    long getGcMillis() {
+        return gcMillis;
+    }
+
+    long getHeapUsedBytes() {
+        return heapUsedBytes;
+    }
+
+    /**
+     * @return how many collections there were between the earlier sample and this one.
+     */
+    long gcCountSince(JvmStats earlier) {
+        return gcCount - earlier.gcCount;
+    }
+
+    /**
+     * @return the share of the time since the earlier sample spent collecting, 0 to 100.
+     */
+    double gcPercentSince(JvmStats earlier) {
+        double elapsedMillis = (nanoTime - earlier.nanoTime) / 1e6;
+        return elapsedMillis <= 0 ? 0 : 100.0 * (gcMillis - earlier.gcMillis) / elapsedMillis;
+    }
+
+    /**
+     * @return megabytes allocated per second since the earlier sample, or -1 if unknown.
+     */
+    double allocationMbPerSecondSince(JvmStats earlier) {
+        if (allocatedBytes < 0 || earlier.allocatedBytes < 0 || nanoTime == earlier.nanoTime) {
+            return -1;
+        }
+        double seconds = (nanoTime - earlier.nanoTime) / 1e9;
+        return (allocatedBytes - earlier.allocatedBytes) / (1024.0 * 1024.0) / seconds;
+    }
+}
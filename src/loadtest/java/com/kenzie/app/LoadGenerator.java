@@ -0,0 +1,390 @@
+package com.kenzie.app;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Plays the game with lots of simulated players at once, to see how it holds up.
+ *
+ * Each player is a virtual thread that goes through the same steps as someone clicking
+ * through GameFrame: start a game, then for every question think for a while and either
+ * answer it (correctly, or not, at the given accuracy) or skip it, and click Next, until
+ * the game is over; then start another. Think times are random around the given mean, so
+ * the players drift apart instead of all clicking at once.
+ *
+ * The players share one GameEngine, dealt from a ClueSupplier that fetches its clues
+ * over HTTP from a local MockWebServer, which serves clues.json repeated with new ids
+ * (gzipped when asked, like a real server). So the whole path the game takes is
+ * exercised, only without the real API at the other end.
+ *
+ * Every so often a line is printed with what happened since the last one: games and
+ * actions per second, latency percentiles for each kind of action, and the garbage
+ * collector's share of the time, the allocation rate and heap in use. A summary of the
+ * whole run comes at the end. It runs for as long as it is told to, so it doubles as a
+ * soak test, e.g.
+ *
+ *   ./gradlew loadtest -PloadtestArgs="--players 500 --seconds 3600 --think-ms 1500"
+ *
+ * @author Ethan Tauriainen
+ */
+public class LoadGenerator {
+
+    static final String CLUES_PATH = "/api/clues";
+
+    private static final String WRONG_ANSWER = "xyzzy";
+    private static final List<String> ACTIONS = List.of("start", "submit", "next");
+
+    private final GameEngine engine;
+    private final int players;
+    private final long thinkNanos;
+    private final double accuracy;
+    private final double skipRate;
+
+    private final Map<String, LatencyHistogram> totals = new LinkedHashMap<>();
+    private final Map<String, AtomicReference<LatencyHistogram>> intervals = new LinkedHashMap<>();
+    private final LongAdder games = new LongAdder();
+    private final LongAdder correct = new LongAdder();
+    private final LongAdder wrong = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * @param engine the engine to play on.
+     * @param players how many players play at once.
+     * @param thinkTime how long, on average, a player looks at a question before acting.
+     * @param accuracy the chance that an answer given is the right one.
+     * @param skipRate the chance that a question is skipped without an answer.
+     */
+    LoadGenerator(GameEngine engine, int players, Duration thinkTime, double accuracy, double skipRate) {
+        this.engine = engine;
+        this.players = players;
+        this.thinkNanos = thinkTime.toNanos();
+        this.accuracy = accuracy;
+        this.skipRate = skipRate;
+        for (String action : ACTIONS) {
+            totals.put(action, new LatencyHistogram());
+            intervals.put(action, new AtomicReference<>(new LatencyHistogram()));
+        }
+    }
+
+    /**
+     * Runs the players for the given time, printing a line of numbers every so often and
+     * a summary at the end.
+     *
+     * @param duration how long to play for.
+     * @param reportEvery how often to print.
+     * @param out where to print.
+     */
+    void run(Duration duration, Duration reportEvery, PrintStream out) throws InterruptedException {
+        long begin = System.nanoTime();
+        long end = begin + duration.toNanos();
+        JvmStats first = JvmStats.sample();
+        out.printf("%d players for %d s, thinking %d ms, %.0f%% accurate, skipping %.0f%%%n", players,
+                duration.toSeconds(), TimeUnit.NANOSECONDS.toMillis(thinkNanos), accuracy * 100, skipRate * 100);
+        out.printf("%8s %8s %9s  %-15s %-15s %-15s %6s %9s %8s%n", "elapsed", "games/s", "actions/s",
+                "start p50/p99", "submit p50/p99", "next p50/p99", "gc %", "alloc MB/s", "heap MB");
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        for (int i = 0; i < players; i++) {
+            String playerId = "player" + i;
+            executor.execute(() -> play(playerId, end));
+        }
+
+        JvmStats last = first;
+        long lastGames = 0;
+        long lastActions = 0;
+        long lastAt = begin;
+        while (System.nanoTime() < end) {
+            TimeUnit.NANOSECONDS.sleep(Math.min(reportEvery.toNanos(), end - System.nanoTime()));
+            long now = System.nanoTime();
+            double seconds = (now - lastAt) / 1e9;
+            JvmStats jvm = JvmStats.sample();
+            long gamesNow = games.sum();
+            long actionsNow = actions();
+            StringBuilder latencies = new StringBuilder();
+            for (AtomicReference<LatencyHistogram> interval : intervals.values()) {
+                latencies.append(String.format("%-16s", percentiles(interval.getAndSet(new LatencyHistogram()).snapshot())));
+            }
+            out.printf("%7ds %8.1f %9.1f  %s%6.1f %9.1f %8d%n", TimeUnit.NANOSECONDS.toSeconds(now - begin),
+                    (gamesNow - lastGames) / seconds, (actionsNow - lastActions) / seconds, latencies,
+                    jvm.gcPercentSince(last), jvm.allocationMbPerSecondSince(last), jvm.getHeapUsedBytes() >> 20);
+            last = jvm;
+            lastGames = gamesNow;
+            lastActions = actionsNow;
+            lastAt = now;
+        }
+
+        executor.shutdown();
+        if (!executor.awaitTermination(thinkNanos * 10 + TimeUnit.SECONDS.toNanos(10), TimeUnit.NANOSECONDS)) {
+            executor.shutdownNow();
+        }
+        summarize(out, System.nanoTime() - begin, first, JvmStats.sample());
+    }
+
+    /**
+     * One player, playing game after game until the end.
+     */
+    private void play(String playerId, long end) {
+        try {
+            think();    // Spreads out the first clicks.
+            while (System.nanoTime() < end) {
+                long start = System.nanoTime();
+                GameSession session;
+                try {
+                    session = engine.startGame(playerId).get();
+                } catch (ExecutionException e) {
+                    errors.increment();
+                    think();
+                    continue;
+                }
+                record("start", start);
+                boolean more = true;
+                while (more && System.nanoTime() < end) {
+                    think();
+                    act(session);
+                    start = System.nanoTime();
+                    more = session.next();
+                    record("next", start);
+                }
+                engine.endGame(session.getId());
+                if (!more) {
+                    games.increment();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            errors.increment();
+            System.err.println(playerId + " gave up: " + e);
+        }
+    }
+
+    /**
+     * Answers the current question, or leaves it to be skipped.
+     */
+    private void act(GameSession session) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < skipRate) {
+            skipped.increment();
+            return;
+        }
+        ClueDTO clue = session.currentClue();
+        String answer = random.nextDouble() < accuracy ? clue.getAnswer() : WRONG_ANSWER;
+        long start = System.nanoTime();
+        SubmitResult result = session.submit(answer);
+        record("submit", start);
+        switch (result) {
+            case CORRECT:
+                correct.increment();
+                break;
+            case WRONG:
+                wrong.increment();
+                break;
+            case TIMED_OUT:
+                timedOut.increment();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Waits for a random time around the mean think time: exponentially distributed, but
+     * never more than ten times the mean.
+     */
+    private void think() throws InterruptedException {
+        if (thinkNanos <= 0) {
+            return;
+        }
+        double draw = -Math.log(1 - ThreadLocalRandom.current().nextDouble());
+        TimeUnit.NANOSECONDS.sleep((long) (thinkNanos * Math.min(draw, 10)));
+    }
+
+    private void record(String action, long startNanos) {
+        long took = System.nanoTime() - startNanos;
+        totals.get(action).record(took);
+        intervals.get(action).get().record(took);
+    }
+
+    private long actions() {
+        long sum = 0;
+        for (LatencyHistogram histogram : totals.values()) {
+            sum += histogram.getCount();
+        }
+        return sum;
+    }
+
+    private void summarize(PrintStream out, long elapsedNanos, JvmStats first, JvmStats last) {
+        double seconds = elapsedNanos / 1e9;
+        out.println();
+        out.printf("%d games (%.1f/s), %d actions (%.1f/s), %d errors%n", games.sum(), games.sum() / seconds,
+                actions(), actions() / seconds, errors.sum());
+        out.printf("answers: %d correct, %d wrong, %d too late; %d skipped%n", correct.sum(), wrong.sum(),
+                timedOut.sum(), skipped.sum());
+        out.printf("%-8s %10s %9s %9s %9s %9s %9s%n", "", "count", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<String, LatencyHistogram> action : totals.entrySet()) {
+            LatencyHistogram.Snapshot snapshot = action.getValue().snapshot();
+            out.printf("%-8s %10d %9.3f %9.3f %9.3f %9.3f %9.3f%n", action.getKey(), snapshot.getCount(),
+                    snapshot.getPercentileMillis(50), snapshot.getPercentileMillis(90),
+                    snapshot.getPercentileMillis(99), snapshot.getPercentileMillis(99.9), snapshot.getMaxNanos() / 1e6);
+        }
+        out.printf("gc: %d collections, %.2f%% of the time; allocation %.1f MB/s; heap %d MB at the end%n",
+                last.gcCountSince(first), last.gcPercentSince(first), last.allocationMbPerSecondSince(first),
+                last.getHeapUsedBytes() >> 20);
+        Metrics metrics = Metrics.get();
+        out.printf("clue fetches: %d, %d errors, %d bytes on the wire, %.1fx compression%n", metrics.getFetchCount(),
+                metrics.getFetchErrors(), metrics.getWireBytes(), metrics.getCompressionRatio());
+    }
+
+    private static String percentiles(LatencyHistogram.Snapshot snapshot) {
+        if (snapshot.getCount() == 0) {
+            return "-";
+        }
+        return String.format("%.2f/%.2f", snapshot.getPercentileMillis(50), snapshot.getPercentileMillis(99));
+    }
+
+    /**
+     * Starts the clue server and the engine and runs the players.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException, URISyntaxException {
+        int players = 100;
+        Duration duration = Duration.ofSeconds(60);
+        Duration thinkTime = Duration.ofMillis(2000);
+        Duration reportEvery = Duration.ofSeconds(10);
+        Duration timeLimit = GameEngine.DEFAULT_TIME_LIMIT;
+        double accuracy = 0.6;
+        double skipRate = 0.1;
+        int questions = GameEngine.DEFAULT_QUESTIONS_PER_GAME;
+        int copies = 200;
+        boolean compress = true;
+        for (int i = 0; i < args.length; i++) {
+            boolean hasValue = i + 1 < args.length;
+            if ("--no-compress".equals(args[i])) {
+                compress = false;
+            } else if ("--players".equals(args[i]) && hasValue) {
+                players = Integer.parseInt(args[++i]);
+            } else if ("--seconds".equals(args[i]) && hasValue) {
+                duration = Duration.ofSeconds(Long.parseLong(args[++i]));
+            } else if ("--think-ms".equals(args[i]) && hasValue) {
+                thinkTime = Duration.ofMillis(Long.parseLong(args[++i]));
+            } else if ("--report-seconds".equals(args[i]) && hasValue) {
+                reportEvery = Duration.ofSeconds(Long.parseLong(args[++i]));
+            } else if ("--time-limit-seconds".equals(args[i]) && hasValue) {
+                timeLimit = Duration.ofSeconds(Long.parseLong(args[++i]));
+            } else if ("--accuracy".equals(args[i]) && hasValue) {
+                accuracy = Double.parseDouble(args[++i]);
+            } else if ("--skip".equals(args[i]) && hasValue) {
+                skipRate = Double.parseDouble(args[++i]);
+            } else if ("--questions".equals(args[i]) && hasValue) {
+                questions = Integer.parseInt(args[++i]);
+            } else if ("--copies".equals(args[i]) && hasValue) {
+                copies = Integer.parseInt(args[++i]);
+            } else {
+                System.err.println("Usage: LoadGenerator [--players n] [--seconds n] [--think-ms n] "
+                        + "[--report-seconds n] [--time-limit-seconds n] [--accuracy 0..1] [--skip 0..1] "
+                        + "[--questions n] [--copies n] [--no-compress]");
+                System.exit(1);
+            }
+        }
+
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new ClueDispatcher(payload(copies), compress));
+        server.start();
+        try {
+            String url = server.url(CLUES_PATH).toString();
+            ClueSupplier supplier = new ClueSupplier(() -> {
+                try {
+                    return CustomHttpClient.fetchCluesAsync(url);
+                } catch (URISyntaxException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }, 1000, 300);
+            supplier.prefetch();
+            GameEngine engine = new GameEngine(supplier::nextDeck, AnswerMatcher.fuzzy(), questions, timeLimit);
+            engine.setLeaderboard(new ConcurrentLeaderboard());
+            new LoadGenerator(engine, players, thinkTime, accuracy, skipRate).run(duration, reportEvery, System.out);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    /**
+     * clues.json with its clues repeated the given number of times, each copy with new
+     * ids so the ClueSupplier sees them as different clues.
+     */
+    static byte[] payload(int copies) throws IOException {
+        ObjectNode root = (ObjectNode) CustomHttpClient.OBJECT_MAPPER.readTree(Files.readString(Path.of("clues.json")));
+        ArrayNode original = (ArrayNode) root.get("clues");
+        ArrayNode clues = CustomHttpClient.OBJECT_MAPPER.createArrayNode();
+        long id = 1;
+        for (int copy = 0; copy < copies; copy++) {
+            for (int i = 0; i < original.size(); i++) {
+                ObjectNode clue = original.get(i).deepCopy();
+                clue.put("id", id++);
+                clues.add(clue);
+            }
+        }
+        root.set("clues", clues);
+        return CustomHttpClient.OBJECT_MAPPER.writeValueAsBytes(root);
+    }
+
+    /**
+     * Serves the same clues to every request, gzipped if the client accepts it.
+     */
+    private static final class ClueDispatcher extends Dispatcher {
+        private final byte[] plain;
+        private final byte[] gzipped;
+
+        private ClueDispatcher(byte[] plain, boolean compress) throws IOException {
+            this.plain = plain;
+            this.gzipped = compress ? gzip(plain) : null;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            if (request.getPath() == null || !request.getPath().startsWith(CLUES_PATH)) {
+                return new MockResponse().setResponseCode(404);
+            }
+            MockResponse response = new MockResponse().addHeader("Content-Type", "application/json");
+            String accepted = request.getHeader("Accept-Encoding");
+            if (gzipped != null && accepted != null && accepted.contains("gzip")) {
+                return response.addHeader("Content-Encoding", "gzip").setBody(new Buffer().write(gzipped));
+            }
+            return response.setBody(new Buffer().write(plain));
+        }
+
+        private static byte[] gzip(byte[] plain) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(plain.length / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(plain);
+            }
+            return out.toByteArray();
+        }
+    }
+}
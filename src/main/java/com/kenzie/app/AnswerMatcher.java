@@ -0,0 +1,54 @@
+package com.kenzie.app;
+
+/**
+ * Decides whether what the user typed counts as the answer to a clue.
+ *
+ * Checking an answer happens in two steps so the expensive part only happens once:
+ * prepare() normalizes a clue's answer when the clue is dealt, and matches() compares
+ * each submission against that prepared form.
+ *
+ * @author Ethan Tauriainen
+ */
+public interface AnswerMatcher {
+
+    /**
+     * Normalizes a clue's answer ahead of time.
+     *
+     * @param answer the answer as it came from the API.
+     * @return the prepared answer, to be passed to matches() for every submission.
+     */
+    PreparedAnswer prepare(String answer);
+
+    /**
+     * @param answer the prepared answer of the clue being played.
+     * @param userAnswer what the user typed.
+     * @return true if the submission should be counted as correct.
+     */
+    boolean matches(PreparedAnswer answer, String userAnswer);
+
+    /**
+     * The original rule of the game: the submission is correct if, lower-cased and
+     * trimmed, it contains the answer.
+     */
+    static AnswerMatcher contains() {
+        return new AnswerMatcher() {
+            @Override
+            public PreparedAnswer prepare(String answer) {
+                return new PreparedAnswer(answer, answer.toLowerCase().trim());
+            }
+
+            @Override
+            public boolean matches(PreparedAnswer answer, String userAnswer) {
+                return userAnswer.toLowerCase().trim().contains(answer.getNormalized());
+            }
+        };
+    }
+
+    /**
+     * Forgiving matching that ignores markup, accents, articles and small typos.
+     * See FuzzyAnswerMatcher.
+     */
+    static AnswerMatcher fuzzy() {
+        return new FuzzyAnswerMatcher();
+    }
+}
@@ -0,0 +1,340 @@
+package com.kenzie.app;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A compact binary file format for clues, and the loader for it.
+ *
+ * Parsing JSON on every startup gets slow once there are a lot of clues, and picking a
+ * few random clues shouldn't mean reading all of them. An archive is laid out so any clue
+ * can be found with a little arithmetic:
+ *
+ *   header       magic, version, clue count, category count and where each section starts
+ *   categories   16 bytes per category: id, title offset, title length
+ *   index        32 bytes per clue: id, value, category, question offset/length,
+ *                answer offset/length
+ *   string pool  the UTF-8 bytes of every title, question and answer
+ *
+ * All numbers are big-endian. The loader maps the file with FileChannel.map, so opening
+ * an archive reads nothing up front and each clue is read straight out of the mapping
+ * when asked for. The file must be under 2 GB, the most a single mapping can hold.
+ *
+ * Use convert() (or run the main method) to turn a clues.json style file into an archive.
+ *
+ * @author Ethan Tauriainen
+ */
+public class ClueArchive implements Closeable {
+
+    static final int MAGIC = 0x434C5541;    // "CLUA"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 48;
+    static final int CATEGORY_ENTRY_SIZE = 16;
+    static final int INDEX_ENTRY_SIZE = 32;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int clueCount;
+    private final int categoryCount;
+    private final int categoriesStart;
+    private final int indexStart;
+    private final int poolStart;
+    private final int poolLength;
+
+    private ClueArchive(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+        this.channel = channel;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a clue archive.");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported clue archive version " + buffer.getInt(4) + ".");
+        }
+        long clues = buffer.getInt(8);
+        long categories = buffer.getInt(12);
+        long categoriesAt = buffer.getLong(16);
+        long indexAt = buffer.getLong(24);
+        long poolAt = buffer.getLong(32);
+        long poolLength = buffer.getLong(40);
+        // Every section has to start inside the file, where the one before it ends or
+        // later, and the pool has to end inside the file too. The starts are bounded by the
+        // file size before anything is added to them, so a bad header can't wrap around.
+        long size = buffer.capacity();
+        if (clues < 0 || categories < 0 || poolLength < 0
+                || categoriesAt < HEADER_SIZE || categoriesAt > size || indexAt > size || poolAt > size
+                || indexAt < categoriesAt + categories * CATEGORY_ENTRY_SIZE
+                || poolAt < indexAt + clues * INDEX_ENTRY_SIZE
+                || poolAt > size - poolLength) {
+            throw new IOException("Clue archive is truncated or corrupt.");
+        }
+        this.clueCount = (int) clues;
+        this.categoryCount = (int) categories;
+        this.categoriesStart = (int) categoriesAt;
+        this.indexStart = (int) indexAt;
+        this.poolStart = (int) poolAt;
+        this.poolLength = (int) poolLength;
+    }
+
+    /**
+     * Opens and maps an archive for reading.
+     *
+     * @param path the archive file.
+     * @return the opened archive. Close it when done.
+     * @throws IOException if the file can't be read or isn't a valid archive.
+     */
+    public static ClueArchive open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ClueArchive(channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a JSON file in the same shape as clues.json and writes it out as an archive.
+     *
+     * @param json the JSON file to read.
+     * @param archive where to write the archive.
+     * @return the number of clues written.
+     * @throws IOException if either file can't be read or written.
+     */
+    public static int convert(Path json, Path archive) throws IOException {
+        ClueStore store;
+        try (InputStream in = Files.newInputStream(json)) {
+            store = ClueStore.from(in);
+        }
+        write(store, archive);
+        return store.size();
+    }
+
+    /**
+     * Writes every clue in the store to an archive. The file is written next to the
+     * target first and moved into place once complete.
+     *
+     * @param store the clues to write.
+     * @param archive where to write the archive.
+     * @throws IOException if the file can't be written.
+     */
+    public static void write(ClueStore store, Path archive) throws IOException {
+        int clues = store.size();
+        int categories = store.categoryCount();
+
+        // Lay out the string pool first so the offsets are known.
+        byte[][] titles = new byte[categories][];
+        byte[][] questions = new byte[clues][];
+        byte[][] answers = new byte[clues][];
+        long poolLength = 0;
+        for (int c = 0; c < categories; c++) {
+            titles[c] = store.categoryTitle(c).getBytes(StandardCharsets.UTF_8);
+            poolLength += titles[c].length;
+        }
+        for (int i = 0; i < clues; i++) {
+            questions[i] = store.question(i).getBytes(StandardCharsets.UTF_8);
+            answers[i] = store.answer(i).getBytes(StandardCharsets.UTF_8);
+            poolLength += questions[i].length + answers[i].length;
+        }
+        long categoriesStart = HEADER_SIZE;
+        long indexStart = categoriesStart + (long) categories * CATEGORY_ENTRY_SIZE;
+        long poolStart = indexStart + (long) clues * INDEX_ENTRY_SIZE;
+        if (poolStart + poolLength > Integer.MAX_VALUE) {
+            throw new IOException("Too many clues for one archive.");
+        }
+
+        Path parent = archive.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, archive.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(clues);
+            out.writeInt(categories);
+            out.writeLong(categoriesStart);
+            out.writeLong(indexStart);
+            out.writeLong(poolStart);
+            out.writeLong(poolLength);
+
+            int offset = 0;
+            for (int c = 0; c < categories; c++) {
+                out.writeLong(store.categoryId(c));
+                out.writeInt(offset);
+                out.writeInt(titles[c].length);
+                offset += titles[c].length;
+            }
+            for (int i = 0; i < clues; i++) {
+                out.writeLong(store.id(i));
+                out.writeInt(store.value(i));
+                out.writeInt(store.category(i));
+                out.writeInt(offset);
+                out.writeInt(questions[i].length);
+                offset += questions[i].length;
+                out.writeInt(offset);
+                out.writeInt(answers[i].length);
+                offset += answers[i].length;
+            }
+            for (byte[] title : titles) {
+                out.write(title);
+            }
+            for (int i = 0; i < clues; i++) {
+                out.write(questions[i]);
+                out.write(answers[i]);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the number of clues in the archive.
+     */
+    public int size() {
+        return clueCount;
+    }
+
+    public int categoryCount() {
+        return categoryCount;
+    }
+
+    public long id(int index) {
+        return buffer.getLong(entry(index));
+    }
+
+    public int value(int index) {
+        return buffer.getInt(entry(index) + 8);
+    }
+
+    public int category(int index) {
+        return buffer.getInt(entry(index) + 12);
+    }
+
+    public long categoryId(int category) {
+        return buffer.getLong(categoryEntry(category));
+    }
+
+    public String categoryTitle(int category) {
+        int entry = categoryEntry(category);
+        return decode(buffer.getInt(entry + 8), buffer.getInt(entry + 12));
+    }
+
+    public String question(int index) {
+        int entry = entry(index);
+        return decode(buffer.getInt(entry + 16), buffer.getInt(entry + 20));
+    }
+
+    public String answer(int index) {
+        int entry = entry(index);
+        return decode(buffer.getInt(entry + 24), buffer.getInt(entry + 28));
+    }
+
+    /**
+     * The raw UTF-8 bytes of a question as a read-only view of the mapping. Nothing is copied.
+     */
+    public ByteBuffer questionBytes(int index) {
+        int entry = entry(index);
+        return slice(buffer.getInt(entry + 16), buffer.getInt(entry + 20));
+    }
+
+    /**
+     * The raw UTF-8 bytes of an answer as a read-only view of the mapping. Nothing is copied.
+     */
+    public ByteBuffer answerBytes(int index) {
+        int entry = entry(index);
+        return slice(buffer.getInt(entry + 24), buffer.getInt(entry + 28));
+    }
+
+    /**
+     * Reads a single clue out of the archive into a ClueDTO.
+     *
+     * @param index which clue, from 0 to size() - 1.
+     * @return a new ClueDTO. Fields the archive doesn't keep are left at their defaults.
+     */
+    public ClueDTO get(int index) {
+        ClueDTO clue = new ClueDTO();
+        clue.setId(id(index));
+        clue.setQuestion(question(index));
+        clue.setAnswer(answer(index));
+        clue.setValue(value(index));
+        ClueDTO.Category category = new ClueDTO.Category();
+        category.setId(categoryId(category(index)));
+        category.setTitle(categoryTitle(category(index)));
+        clue.setCategoryId(category.getId());
+        clue.setCategory(category);
+        clue.setGame(new ClueDTO.Game());
+        return clue;
+    }
+
+    /**
+     * Closes the file. The mapping itself is released by the garbage collector.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int entry(int index) {
+        if (index < 0 || index >= clueCount) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + clueCount);
+        }
+        return indexStart + index * INDEX_ENTRY_SIZE;
+    }
+
+    private int categoryEntry(int category) {
+        if (category < 0 || category >= categoryCount) {
+            throw new IndexOutOfBoundsException("Category " + category + " out of bounds for " + categoryCount);
+        }
+        return categoriesStart + category * CATEGORY_ENTRY_SIZE;
+    }
+
+    /**
+     * The header is checked when the archive is opened, but the entries aren't, so that
+     * opening doesn't have to read the whole index. Each string is checked against the
+     * pool as it is read instead.
+     */
+    private void checkString(int offset, int length) {
+        if (offset < 0 || length < 0 || (long) offset + length > poolLength) {
+            throw new UncheckedIOException(new IOException("Clue archive is corrupt: string at "
+                    + offset + " of length " + length + " is outside the " + poolLength + " byte pool."));
+        }
+    }
+
+    private ByteBuffer slice(int offset, int length) {
+        checkString(offset, length);
+        return buffer.asReadOnlyBuffer().position(poolStart + offset).limit(poolStart + offset + length).slice();
+    }
+
+    private String decode(int offset, int length) {
+        checkString(offset, length);
+        byte[] bytes = new byte[length];
+        buffer.get(poolStart + offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Converts a JSON clue file into an archive from the command line.
+     *
+     * @param args the JSON file to read and the archive to write.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: ClueArchive <clues.json> <clues.archive>");
+            System.exit(1);
+        }
+        int count = convert(Path.of(args[0]), Path.of(args[1]));
+        System.out.println("Wrote " + count + " clues to " + args[1] + ".");
+    }
+}
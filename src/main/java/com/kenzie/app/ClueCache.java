@@ -0,0 +1,306 @@
+package com.kenzie.app;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A small on-disk cache that sits in front of CustomHttpClient so that the clues
+ * aren't downloaded again every time 'Start' is clicked.
+ *
+ * Each URL gets two files in the cache directory (by default ~/.trivia/clue-cache):
+ * the raw JSON body and a properties file holding when it was fetched along with the
+ * ETag and Last-Modified headers, if the server sent them. A cached body is served
+ * straight from disk until it is older than the TTL. After that the server is asked
+ * again with If-None-Match/If-Modified-Since, so an unchanged clue set comes back as
+ * a tiny '304 Not Modified' instead of the whole body. If the server can't be reached,
+ * or has a server error, the stale copy on disk is used so the game keeps working offline.
+ *
+ * @author Ethan Tauriainen
+ */
+public class ClueCache {
+
+    public static final Duration DEFAULT_TTL = Duration.ofHours(24);
+
+    private static final String FETCHED_AT = "fetchedAt";
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "lastModified";
+
+    private final Path directory;
+    private final Duration ttl;
+    private final Clock clock;
+    private final SingleFlight<String, List<ClueDTO>> loads = new SingleFlight<>(ArrayList::new);
+
+    /**
+     * Creates a cache under the user's home directory with the default TTL.
+     */
+    public ClueCache() {
+        this(defaultDirectory(), DEFAULT_TTL);
+    }
+
+    public ClueCache(Path directory, Duration ttl) {
+        this(directory, ttl, Clock.systemUTC());
+    }
+
+    ClueCache(Path directory, Duration ttl, Clock clock) {
+        this.directory = directory;
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    /**
+     * @return the directory the cache uses when none is given: ~/.trivia/clue-cache
+     */
+    public static Path defaultDirectory() {
+        return Path.of(System.getProperty("user.home"), ".trivia", "clue-cache");
+    }
+
+    /**
+     * Loads the clues at the given URL, from disk when possible. The body is parsed with
+     * the streaming parser in CustomHttpClient straight from the cached file.
+     *
+     * Loads of the same URL that overlap share one fetch and one parse (see SingleFlight);
+     * each caller still gets a list of their own.
+     *
+     * @param URLString the URL of the clues.
+     * @return a future holding the clues. Completes exceptionally (wrapped in a
+     * CompletionException) if there is no usable copy on disk and the request fails.
+     * @throws URISyntaxException thrown right away if the URL provided cannot be parsed.
+     */
+    public CompletableFuture<List<ClueDTO>> getCluesAsync(String URLString) throws URISyntaxException {
+        String key = new URI(URLString).normalize().toString();
+        return loads.execute(key, () -> {
+            try {
+                return fetchAsync(URLString).thenApply(body -> {
+                    try (InputStream in = Files.newInputStream(body)) {
+                        return Collections.unmodifiableList(CustomHttpClient.getCluesList(in));
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+            } catch (URISyntaxException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    /**
+     * Blocking version of fetchAsync.
+     *
+     * @param URLString the URL of the clues.
+     * @return the path of the cached body for the URL.
+     *
+     * @throws URISyntaxException thrown if the URL provided cannot be parsed.
+     * @throws IOException if the request fails and there is nothing on disk to fall back to.
+     * @throws InterruptedException thrown if the thread is interrupted while waiting.
+     * @throws ResponseCodeException thrown if a bad response code is received and there
+     * is nothing on disk to fall back to.
+     */
+    public Path fetch(String URLString) throws URISyntaxException, IOException,
+            InterruptedException, ResponseCodeException {
+        try {
+            return fetchAsync(URLString).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof ResponseCodeException) {
+                throw (ResponseCodeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Makes sure the body for the given URL is on disk and up to date (or as up to date as
+     * it can be while offline) and returns where it is.
+     *
+     * @param URLString the URL of the clues.
+     * @return a future holding the path of the cached body.
+     * @throws URISyntaxException thrown right away if the URL provided cannot be parsed.
+     */
+    public CompletableFuture<Path> fetchAsync(String URLString) throws URISyntaxException {
+        HttpRequest.Builder builder = CustomHttpClient.newRequestBuilder(URLString);
+        String key = keyFor(URLString);
+        Path body = directory.resolve(key + ".json");
+        Path metaFile = directory.resolve(key + ".properties");
+
+        Properties meta;
+        Path download;
+        try {
+            meta = readMeta(metaFile, body);
+            if (meta != null && isFresh(meta)) {
+                return CompletableFuture.completedFuture(body);
+            }
+            Files.createDirectories(directory);
+            download = Files.createTempFile(directory, key, ".tmp");
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        // Conditional revalidation, only if the server gave us something to validate with.
+        if (meta != null && meta.getProperty(ETAG) != null) {
+            builder.header("If-None-Match", meta.getProperty(ETAG));
+        }
+        if (meta != null && meta.getProperty(LAST_MODIFIED) != null) {
+            builder.header("If-Modified-Since", meta.getProperty(LAST_MODIFIED));
+        }
+
+        // The body goes straight to a temporary file and is only moved into place once
+        // it has been received in full, so a dropped connection can't corrupt the cache.
+        return CustomHttpClient.recorded(CustomHttpClient.client()
+                .sendAsync(builder.build(), HttpResponse.BodyHandlers.ofFile(download)))
+                .handle((httpResponse, error) -> {
+                    try {
+                        if (error != null) {
+                            Files.deleteIfExists(download);
+                            if (meta != null) {
+                                return body;    // Offline: serve whatever we have.
+                            }
+                            throw error instanceof CompletionException ? (CompletionException) error
+                                    : new CompletionException(error);
+                        }
+                        int status = httpResponse.statusCode();
+                        if (status == 200) {
+                            try {
+                                decompress(download, httpResponse.headers());
+                            } catch (IOException e) {
+                                Files.deleteIfExists(download);
+                                if (meta != null) {
+                                    return body;    // A bad body: the copy we have is still better.
+                                }
+                                throw e;
+                            }
+                            Files.move(download, body, StandardCopyOption.REPLACE_EXISTING,
+                                    StandardCopyOption.ATOMIC_MOVE);
+                            Properties updated = new Properties();
+                            httpResponse.headers().firstValue("ETag")
+                                    .ifPresent(etag -> updated.setProperty(ETAG, etag));
+                            httpResponse.headers().firstValue("Last-Modified")
+                                    .ifPresent(modified -> updated.setProperty(LAST_MODIFIED, modified));
+                            writeMeta(metaFile, updated);
+                            return body;
+                        }
+                        Files.deleteIfExists(download);
+                        if (status == 304 && meta != null) {
+                            writeMeta(metaFile, meta);  // Still good, restart the TTL.
+                            return body;
+                        }
+                        if (status >= 500 && meta != null) {
+                            return body;
+                        }
+                        Metrics.get().recordResponseCodeException();
+                        throw new CompletionException(
+                                new ResponseCodeException("Error: bad response code of " + status + " received."));
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    /**
+     * The body is saved as it came over the wire. If the server compressed it, it is
+     * decompressed once here so that the cached copy is plain JSON, ready for the
+     * streaming parser every time it is read.
+     */
+    private static void decompress(Path download, HttpHeaders headers) throws IOException {
+        if (headers.firstValue("Content-Encoding").isEmpty()) {
+            long size = Files.size(download);
+            Metrics.get().recordWireBytes(size);
+            Metrics.get().recordDecodedBytes(size);
+            return;
+        }
+        Path decoded = Files.createTempFile(download.getParent(), download.getFileName().toString(), ".json");
+        try (InputStream in = CustomHttpClient.decode(Files.newInputStream(download), headers)) {
+            Files.copy(in, decoded, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(decoded, download, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(decoded);
+        }
+    }
+
+    /**
+     * Reads the properties saved next to a cached body.
+     *
+     * @return the saved properties, or null if there is no complete entry on disk. A file
+     * that can't be made sense of (say one edited by hand) counts as no entry, so the next
+     * fetch replaces it.
+     */
+    private Properties readMeta(Path metaFile, Path body) throws IOException {
+        if (!Files.exists(metaFile) || !Files.exists(body)) {
+            return null;
+        }
+        Properties meta = new Properties();
+        try (InputStream in = Files.newInputStream(metaFile)) {
+            meta.load(in);
+        } catch (IllegalArgumentException e) {
+            return null;    // A malformed unicode escape.
+        }
+        String fetchedAt = meta.getProperty(FETCHED_AT);
+        if (fetchedAt == null) {
+            return null;
+        }
+        try {
+            Instant.parse(fetchedAt);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+        return meta;
+    }
+
+    /**
+     * Stamps the entry with the current time and writes it out, again through a
+     * temporary file so it is replaced in one step.
+     */
+    private void writeMeta(Path metaFile, Properties meta) throws IOException {
+        meta.setProperty(FETCHED_AT, clock.instant().toString());
+        Path temp = Files.createTempFile(directory, metaFile.getFileName().toString(), ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            meta.store(out, null);
+        }
+        Files.move(temp, metaFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private boolean isFresh(Properties meta) {
+        Instant fetchedAt = Instant.parse(meta.getProperty(FETCHED_AT));
+        return clock.instant().isBefore(fetchedAt.plus(ttl));
+    }
+
+    /**
+     * Turns a URL into a safe file name by hashing it.
+     */
+    static String keyFor(String URLString) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(URLString.getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                key.append(String.format("%02x", hash[i]));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available.", e);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.kenzie.app;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bulk ingestion of clues from many pages of the API at once.
+ *
+ * CustomHttpClient fetches one URL and gives up on anything but a 200. The crawler
+ * works through a list of URLs with a bounded number of requests in flight, keeps the
+ * overall request rate under a TokenBucketRateLimiter, and retries '429 Too Many
+ * Requests', 5xx responses and network errors with exponential backoff (or the
+ * server's Retry-After, when given). Each page is parsed with the streaming parser and
+ * clues are deduplicated by id as they come in.
+ *
+ * A page that still fails after its retries doesn't stop the crawl; it is reported in
+ * the Result along with what was collected from the other pages.
+ *
+ * @author Ethan Tauriainen
+ */
+public class ClueCrawler {
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "clue-crawler-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final int maxConcurrency;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final int maxRetries;
+    private final Duration baseBackoff;
+    private final Duration maxBackoff;
+
+    /**
+     * @param maxConcurrency the most requests in flight at the same time.
+     * @param rateLimiter keeps the crawler under the server's request rate.
+     * @param maxRetries how many times a failed page is tried again.
+     * @param baseBackoff the wait before the first retry. Doubles with each retry.
+     */
+    public ClueCrawler(int maxConcurrency, TokenBucketRateLimiter rateLimiter, int maxRetries, Duration baseBackoff) {
+        if (maxConcurrency < 1 || maxRetries < 0) {
+            throw new IllegalArgumentException("Need at least one request in flight and no negative retries.");
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.rateLimiter = rateLimiter;
+        this.maxRetries = maxRetries;
+        this.baseBackoff = baseBackoff;
+        this.maxBackoff = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Builds the URLs for a range of pages of the clue API.
+     *
+     * @param baseURL the clue endpoint, e.g. https://jservice.kenzie.academy/api/clues
+     * @param firstPage the first page number.
+     * @param lastPage the last page number, inclusive.
+     * @return one URL per page.
+     */
+    public static List<String> pageURLs(String baseURL, int firstPage, int lastPage) {
+        String separator = baseURL.contains("?") ? "&" : "?";
+        List<String> urls = new ArrayList<>();
+        for (int page = firstPage; page <= lastPage; page++) {
+            urls.add(baseURL + separator + "page=" + page);
+        }
+        return urls;
+    }
+
+    /**
+     * Fetches every URL and collects the distinct clues found.
+     *
+     * @param urls the pages to fetch.
+     * @return a future holding the result once every page has been fetched or has given up.
+     */
+    public CompletableFuture<Result> crawl(List<String> urls) {
+        Crawl crawl = new Crawl(urls);
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < Math.min(maxConcurrency, urls.size()); i++) {
+            workers.add(crawl.nextPage());
+        }
+        return CompletableFuture.allOf(workers.toArray(new CompletableFuture<?>[0])).thenApply(done -> crawl.result());
+    }
+
+    /**
+     * The state of one call to crawl(). Each worker takes the next URL off the queue
+     * once its current page is done, which is what bounds the concurrency.
+     */
+    private class Crawl {
+        private final ConcurrentLinkedQueue<String> queue;
+        private final Map<Long, ClueDTO> clues = new ConcurrentHashMap<>();
+        private final Map<String, Throwable> failures = new ConcurrentHashMap<>();
+        private final AtomicInteger pagesFetched = new AtomicInteger();
+        private final AtomicInteger duplicates = new AtomicInteger();
+        private final AtomicInteger retries = new AtomicInteger();
+
+        private Crawl(List<String> urls) {
+            this.queue = new ConcurrentLinkedQueue<>(urls);
+        }
+
+        private CompletableFuture<Void> nextPage() {
+            String url = queue.poll();
+            if (url == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return fetch(url, 0)
+                    .handle((count, error) -> {
+                        if (error != null) {
+                            failures.put(url, error instanceof CompletionException ? error.getCause() : error);
+                        } else {
+                            pagesFetched.incrementAndGet();
+                        }
+                        return null;
+                    })
+                    .thenCompose(done -> nextPage());
+        }
+
+        private CompletableFuture<Integer> fetch(String url, int attempt) {
+            HttpRequest request;
+            try {
+                request = CustomHttpClient.newRequestBuilder(url).build();
+            } catch (URISyntaxException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            return after(rateLimiter.reserve(), () -> CustomHttpClient.recorded(CustomHttpClient.client()
+                    .sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())))
+                    .handle((httpResponse, error) -> {
+                        if (error != null) {
+                            // Network trouble is worth another try.
+                            return retryOrFail(url, attempt, null, error);
+                        }
+                        int status = httpResponse.statusCode();
+                        try (InputStream body = httpResponse.body()) {
+                            if (status == 200) {
+                                try (InputStream clues = CustomHttpClient.decode(body, httpResponse.headers())) {
+                                    return CompletableFuture.completedFuture(CustomHttpClient.readClues(clues, this::add));
+                                }
+                            }
+                            Metrics.get().recordResponseCodeException();
+                            ResponseCodeException e =
+                                    new ResponseCodeException("Error: bad response code of " + status + " received.");
+                            if (status == 429 || status >= 500) {
+                                return retryOrFail(url, attempt, httpResponse, e);
+                            }
+                            return CompletableFuture.<Integer>failedFuture(e);
+                        } catch (IOException e) {
+                            return CompletableFuture.<Integer>failedFuture(e);
+                        }
+                    })
+                    .thenCompose(next -> next);
+        }
+
+        private CompletableFuture<Integer> retryOrFail(String url, int attempt, HttpResponse<?> httpResponse,
+                                                       Throwable error) {
+            if (attempt >= maxRetries) {
+                return CompletableFuture.failedFuture(error);
+            }
+            retries.incrementAndGet();
+            long delay = backoffNanos(attempt, httpResponse);
+            return after(delay, () -> fetch(url, attempt + 1));
+        }
+
+        private void add(ClueDTO clue) {
+            if (clues.putIfAbsent(clue.getId(), clue) != null) {
+                duplicates.incrementAndGet();
+            }
+        }
+
+        private Result result() {
+            List<ClueDTO> list = new ArrayList<>(clues.values());
+            return new Result(list, pagesFetched.get(), Map.copyOf(failures), duplicates.get(), retries.get());
+        }
+    }
+
+    /**
+     * Exponential backoff with a little jitter so that retries from several workers
+     * don't all land at the same moment. A Retry-After given in seconds wins, though never
+     * for longer than the maximum backoff.
+     */
+    private long backoffNanos(int attempt, HttpResponse<?> httpResponse) {
+        if (httpResponse != null) {
+            String retryAfter = httpResponse.headers().firstValue("Retry-After").orElse(null);
+            if (retryAfter != null) {
+                try {
+                    long seconds = Long.parseLong(retryAfter.trim());
+                    return Math.min(maxBackoff.toNanos(), TimeUnit.SECONDS.toNanos(Math.max(0, seconds)));
+                } catch (NumberFormatException ignored) {
+                    // An HTTP date; fall back to our own backoff.
+                }
+            }
+        }
+        long backoff = Math.min(maxBackoff.toNanos(), baseBackoff.toNanos() << Math.min(attempt, 20));
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    /**
+     * Runs the task after the delay without holding a thread in the meantime.
+     */
+    private static <T> CompletableFuture<T> after(long delayNanos, Supplier<CompletableFuture<T>> task) {
+        if (delayNanos <= 0) {
+            return task.get();
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        SCHEDULER.schedule(() -> {
+            try {
+                task.get().whenComplete((value, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    /**
+     * What a crawl came back with.
+     */
+    public static class Result {
+        private final List<ClueDTO> clues;
+        private final int pagesFetched;
+        private final Map<String, Throwable> failures;
+        private final int duplicates;
+        private final int retries;
+
+        Result(List<ClueDTO> clues, int pagesFetched, Map<String, Throwable> failures, int duplicates, int retries) {
+            this.clues = Collections.unmodifiableList(clues);
+            this.pagesFetched = pagesFetched;
+            this.failures = failures;
+            this.duplicates = duplicates;
+            this.retries = retries;
+        }
+
+        /**
+         * @return every distinct clue found, in no particular order.
+         */
+        public List<ClueDTO> getClues() {
+            return clues;
+        }
+
+        public int getPagesFetched() {
+            return pagesFetched;
+        }
+
+        /**
+         * @return the pages that still failed after their retries, with the last error of each.
+         */
+        public Map<String, Throwable> getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return how many clues were skipped because a clue with the same id was already found.
+         */
+        public int getDuplicates() {
+            return duplicates;
+        }
+
+        public int getRetries() {
+            return retries;
+        }
+    }
+}
@@ -9,8 +9,12 @@ import com.fasterxml.jackson.annotation.JsonPropertyOrder;
  *
  * Contains two nested classes: Category and Game.
  *
+ * ClueDTOCodec, which reads and writes clues without databind, is generated from the
+ * annotations here when the project is built (see JsonCodec).
+ *
  * @author Ethan Tauriainen
  */
+@JsonCodec
 @JsonPropertyOrder({"id", "answer", "question", "value", "categoryId", "gameId", "invalidCount", "category", "game", "canon"})
 public class ClueDTO {
 
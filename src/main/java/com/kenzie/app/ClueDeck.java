@@ -0,0 +1,55 @@
+package com.kenzie.app;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The clues for one game, in the order they will be asked, along with their answers
+ * already prepared by an AnswerMatcher. A deck never changes once it is built, so it
+ * can be handed between threads freely.
+ *
+ * @author Ethan Tauriainen
+ */
+public final class ClueDeck {
+
+    private final List<ClueDTO> clues;
+    private final List<PreparedAnswer> answers;
+
+    private ClueDeck(List<ClueDTO> clues, List<PreparedAnswer> answers) {
+        this.clues = clues;
+        this.answers = answers;
+    }
+
+    /**
+     * @param clues the clues, in the order they will be asked. The list is copied.
+     * @param matcher prepares each clue's answer.
+     * @return a new deck.
+     */
+    public static ClueDeck of(List<ClueDTO> clues, AnswerMatcher matcher) {
+        if (clues.isEmpty()) {
+            throw new IllegalArgumentException("A deck needs at least one clue.");
+        }
+        List<PreparedAnswer> answers = new ArrayList<>(clues.size());
+        for (ClueDTO clue : clues) {
+            answers.add(matcher.prepare(clue.getAnswer()));
+        }
+        return new ClueDeck(List.copyOf(clues), Collections.unmodifiableList(answers));
+    }
+
+    public int size() {
+        return clues.size();
+    }
+
+    public ClueDTO clue(int index) {
+        return clues.get(index);
+    }
+
+    public PreparedAnswer answer(int index) {
+        return answers.get(index);
+    }
+
+    public List<ClueDTO> clues() {
+        return clues;
+    }
+}
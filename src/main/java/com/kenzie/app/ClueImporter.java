@@ -0,0 +1,541 @@
+package com.kenzie.app;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Imports clue dumps (JSON files in the same shape as clues.json) into a ClueStore, as
+ * fast as the machine has cores.
+ *
+ * The work is spread over a ForkJoinPool. The list of files is split in halves until
+ * each task has one file. A small file is parsed whole with the streaming parser. A
+ * large one is split further: one pass over its bytes (far quicker than parsing them)
+ * finds where each clue in the "clues" array starts, and every few megabytes of clues
+ * are handed to a task of their own as soon as they are found, so the cores start
+ * parsing while the rest of the file is still being split. One huge file scales as well
+ * as many small ones.
+ *
+ * Every clue is checked before it goes in: it needs an id, a question and an answer,
+ * and no negative value. A clue whose id has already been imported (or was in the store
+ * to begin with) is a duplicate and is skipped. Each task adds its clues to the store in
+ * batches, so the store's lock is taken once per batch rather than once per clue.
+ *
+ * A file that can't be read or parsed doesn't stop the others; what went wrong is in the
+ * Report. Progress can be reported while the import runs.
+ *
+ * From the command line:
+ *
+ *   ClueImporter [--threads n] [--archive out.archive] file-or-directory...
+ *
+ * imports every .json file given (or found in the directories given), printing the
+ * progress and throughput, and can write what was imported out as a ClueArchive.
+ *
+ * @author Ethan Tauriainen
+ */
+public class ClueImporter {
+
+    static final int DEFAULT_CHUNK_BYTES = 8 << 20;
+    private static final int BATCH_SIZE = 1024;
+    private static final int READ_BUFFER_BYTES = 1 << 20;
+
+    private final ForkJoinPool pool;
+    private final ClueStore store;
+    private final int chunkBytes;
+    private final Set<Long> seen = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param pool does the parsing.
+     * @param store where the clues go. Clues already in it are not imported again.
+     */
+    public ClueImporter(ForkJoinPool pool, ClueStore store) {
+        this(pool, store, DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * @param chunkBytes files larger than this are split into chunks about this size.
+     */
+    ClueImporter(ForkJoinPool pool, ClueStore store, int chunkBytes) {
+        this.pool = pool;
+        this.store = store;
+        this.chunkBytes = chunkBytes;
+        for (int i = 0; i < store.size(); i++) {
+            seen.add(store.id(i));
+        }
+    }
+
+    /**
+     * Imports the files and waits for them to finish.
+     *
+     * @param files the JSON files.
+     * @param progress told how the import is going about once a second, or null.
+     * @return how it went.
+     * @throws IOException if a file's size can't be read.
+     */
+    public Report importFiles(List<Path> files, Consumer<Report> progress) throws IOException {
+        long totalBytes = 0;
+        for (Path file : files) {
+            totalBytes += Files.size(file);
+        }
+        Run run = new Run(files.size(), totalBytes);
+        ScheduledExecutorService reporter = null;
+        if (progress != null) {
+            reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "clue-import-progress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reporter.scheduleAtFixedRate(() -> progress.accept(run.report()), 1, 1, TimeUnit.SECONDS);
+        }
+        try {
+            pool.invoke(new FilesTask(run, files));
+        } finally {
+            if (reporter != null) {
+                reporter.shutdownNow();
+            }
+        }
+        return run.report();
+    }
+
+    /**
+     * Imports every file, from a directory if need be, from the command line.
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path archive = null;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if ("--archive".equals(args[i]) && i + 1 < args.length) {
+                archive = Path.of(args[++i]);
+            } else {
+                files.addAll(jsonFiles(Path.of(args[i])));
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: ClueImporter [--threads n] [--archive out.archive] file-or-directory...");
+            System.exit(1);
+        }
+
+        ClueStore store = new ClueStore();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        Report report;
+        try {
+            report = new ClueImporter(pool, store).importFiles(files, System.err::println);
+        } finally {
+            pool.shutdown();
+        }
+        for (String error : report.getErrors()) {
+            System.err.println(error);
+        }
+        System.out.println(report + " on " + threads + " threads.");
+        if (archive != null) {
+            ClueArchive.write(store, archive);
+            System.out.println("Wrote " + store.size() + " clues to " + archive + ".");
+        }
+    }
+
+    /**
+     * @return the file itself, or the .json files under a directory.
+     */
+    private static List<Path> jsonFiles(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return List.of(path);
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            return walk.filter(file -> Files.isRegularFile(file) && file.toString().endsWith(".json")).sorted().toList();
+        }
+    }
+
+    /**
+     * @return true if the clue can be played.
+     */
+    private static boolean isValid(ClueDTO clue) {
+        return clue != null
+                && clue.getId() > 0
+                && clue.getValue() >= 0 && clue.getValue() <= Integer.MAX_VALUE
+                && clue.getQuestion() != null && !clue.getQuestion().isBlank()
+                && clue.getAnswer() != null && !clue.getAnswer().isBlank();
+    }
+
+    /**
+     * Splits the files in halves until there is one per task.
+     */
+    private final class FilesTask extends RecursiveAction {
+        private final Run run;
+        private final List<Path> files;
+
+        private FilesTask(Run run, List<Path> files) {
+            this.run = run;
+            this.files = files;
+        }
+
+        @Override
+        protected void compute() {
+            if (files.size() > 1) {
+                int half = files.size() / 2;
+                invokeAll(new FilesTask(run, files.subList(0, half)), new FilesTask(run, files.subList(half, files.size())));
+                return;
+            }
+            if (files.isEmpty()) {
+                return;
+            }
+            Path file = files.get(0);
+            try {
+                if (Files.size(file) <= chunkBytes) {
+                    parseWhole(file);
+                } else {
+                    splitAndParse(file);
+                }
+            } catch (IOException | RuntimeException e) {
+                run.errors.add(file + ": " + e.getMessage());
+            }
+            run.files.increment();
+        }
+
+        private void parseWhole(Path file) throws IOException {
+            long start = System.nanoTime();
+            Batch batch = new Batch(run);
+            try (InputStream in = Files.newInputStream(file);
+                 JsonParser parser = CustomHttpClient.cluesArray(in)) {
+                CustomHttpClient.readClueArray(parser, batch::accept);
+            } finally {
+                batch.flush();
+                run.bytes.add(Files.size(file));
+                Metrics.get().recordParse(start, batch.parsed);
+            }
+        }
+
+        /**
+         * Scans the file for the clues in its "clues" array, forking a ChunkTask for every
+         * chunkBytes or so of them, then waits for the chunks.
+         */
+        private void splitAndParse(Path file) throws IOException {
+            List<ForkJoinTask<?>> chunks = new ArrayList<>();
+            long chunked = 0;
+            long arrayStart = findCluesArray(file);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+                byte[] bytes = buffer.array();
+                long position = arrayStart + 1;
+                long chunkStart = -1;
+                int depth = 0;
+                boolean inString = false;
+                boolean escaped = false;
+                scan:
+                while (position < size) {
+                    buffer.clear();
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        break;
+                    }
+                    for (int i = 0; i < read; i++) {
+                        byte b = bytes[i];
+                        if (inString) {
+                            if (escaped) {
+                                escaped = false;
+                            } else if (b == '\\') {
+                                escaped = true;
+                            } else if (b == '"') {
+                                inString = false;
+                            }
+                            continue;
+                        }
+                        long at = position + i;
+                        if (b == '"') {
+                            inString = true;
+                        } else if (b == '{' || b == '[') {
+                            if (depth == 0 && chunkStart < 0) {
+                                chunkStart = at;
+                            }
+                            depth++;
+                        } else if (b == '}' || b == ']') {
+                            if (depth == 0) {
+                                // The end of the clues array.
+                                if (chunkStart >= 0) {
+                                    chunks.add(new ChunkTask(run, file, chunkStart, at).fork());
+                                    chunked += at - chunkStart;
+                                }
+                                chunkStart = -1;
+                                break scan;
+                            }
+                            depth--;
+                        } else if (b == ',' && depth == 0 && chunkStart >= 0 && at - chunkStart >= chunkBytes) {
+                            chunks.add(new ChunkTask(run, file, chunkStart, at).fork());
+                            chunked += at - chunkStart;
+                            chunkStart = -1;
+                        }
+                    }
+                    position += read;
+                }
+                if (chunkStart >= 0 || depth != 0) {
+                    run.errors.add(file + ": the clues array isn't closed; the last clues were skipped");
+                }
+                run.bytes.add(size - chunked);  // Whatever the chunks don't cover.
+            } finally {
+                for (ForkJoinTask<?> chunk : chunks) {
+                    chunk.join();
+                }
+            }
+        }
+
+        /**
+         * @return the position of the '[' that opens the "clues" array.
+         */
+        private long findCluesArray(Path file) throws IOException {
+            try (InputStream in = Files.newInputStream(file);
+                 JsonParser parser = CustomHttpClient.OBJECT_MAPPER.getFactory().createParser(in)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new IOException("Expected a JSON object holding a \"clues\" array.");
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    if ("clues".equals(field) && value == JsonToken.START_ARRAY) {
+                        return parser.getTokenLocation().getByteOffset();
+                    }
+                    parser.skipChildren();
+                }
+                throw new IOException("No \"clues\" array.");
+            }
+        }
+    }
+
+    /**
+     * Parses the clues between two positions of a file: a run of clue objects separated
+     * by commas, read as a JSON array of its own.
+     */
+    private final class ChunkTask extends RecursiveAction {
+        private final Run run;
+        private final Path file;
+        private final long start;
+        private final long end;
+
+        private ChunkTask(Run run, Path file, long start, long end) {
+            this.run = run;
+            this.file = file;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            long startNanos = System.nanoTime();
+            Batch batch = new Batch(run);
+            try {
+                if (end - start > Integer.MAX_VALUE - 2) {
+                    throw new IOException("A single clue is too large");
+                }
+                byte[] json = new byte[(int) (end - start) + 2];
+                json[0] = '[';
+                json[json.length - 1] = ']';
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    ByteBuffer buffer = ByteBuffer.wrap(json, 1, json.length - 2);
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer, start + buffer.position() - 1) < 0) {
+                            throw new IOException("The file got shorter while being imported");
+                        }
+                    }
+                }
+                try (JsonParser parser = CustomHttpClient.OBJECT_MAPPER.getFactory().createParser(json)) {
+                    parser.nextToken();     // The '['.
+                    CustomHttpClient.readClueArray(parser, batch::accept);
+                }
+            } catch (IOException | RuntimeException e) {
+                run.errors.add(file + " at " + start + ": " + e.getMessage());
+            } finally {
+                batch.flush();
+                run.bytes.add(end - start);
+                Metrics.get().recordParse(startNanos, batch.parsed);
+            }
+        }
+    }
+
+    /**
+     * One task's clues on their way into the store.
+     */
+    private final class Batch {
+        private final Run run;
+        private final List<ClueDTO> clues = new ArrayList<>(BATCH_SIZE);
+        private int parsed;
+
+        private Batch(Run run) {
+            this.run = run;
+        }
+
+        private void accept(ClueDTO clue) {
+            parsed++;
+            run.parsed.increment();
+            if (!isValid(clue)) {
+                run.invalid.increment();
+            } else if (!seen.add(clue.getId())) {
+                run.duplicates.increment();
+            } else {
+                clues.add(clue);
+                if (clues.size() == BATCH_SIZE) {
+                    flush();
+                }
+            }
+        }
+
+        private void flush() {
+            if (!clues.isEmpty()) {
+                store.addAll(clues);
+                run.imported.add(clues.size());
+                clues.clear();
+            }
+        }
+    }
+
+    /**
+     * The counters for one call to importFiles().
+     */
+    private static final class Run {
+        private final long startNanos = System.nanoTime();
+        private final int totalFiles;
+        private final long totalBytes;
+        private final LongAdder files = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder parsed = new LongAdder();
+        private final LongAdder imported = new LongAdder();
+        private final LongAdder duplicates = new LongAdder();
+        private final LongAdder invalid = new LongAdder();
+        private final ConcurrentLinkedQueue<String> errors = new ConcurrentLinkedQueue<>();
+
+        private Run(int totalFiles, long totalBytes) {
+            this.totalFiles = totalFiles;
+            this.totalBytes = totalBytes;
+        }
+
+        private Report report() {
+            return new Report(files.intValue(), totalFiles, bytes.sum(), totalBytes, parsed.sum(), imported.sum(),
+                    duplicates.sum(), invalid.sum(), List.copyOf(errors), Duration.ofNanos(System.nanoTime() - startNanos));
+        }
+    }
+
+    /**
+     * How an import went, or is going.
+     */
+    public static final class Report {
+        private final int files;
+        private final int totalFiles;
+        private final long bytes;
+        private final long totalBytes;
+        private final long parsed;
+        private final long imported;
+        private final long duplicates;
+        private final long invalid;
+        private final List<String> errors;
+        private final Duration elapsed;
+
+        private Report(int files, int totalFiles, long bytes, long totalBytes, long parsed, long imported,
+                       long duplicates, long invalid, List<String> errors, Duration elapsed) {
+            this.files = files;
+            this.totalFiles = totalFiles;
+            this.bytes = bytes;
+            this.totalBytes = totalBytes;
+            this.parsed = parsed;
+            this.imported = imported;
+            this.duplicates = duplicates;
+            this.invalid = invalid;
+            this.errors = errors;
+            this.elapsed = elapsed;
+        }
+
+        /**
+         * @return how many files are done.
+         */
+        public int getFiles() {
+            return files;
+        }
+
+        public int getTotalFiles() {
+            return totalFiles;
+        }
+
+        /**
+         * @return how many bytes of the files have been parsed.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        /**
+         * @return how many clues were read, whether they went in or not.
+         */
+        public long getParsed() {
+            return parsed;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getDuplicates() {
+            return duplicates;
+        }
+
+        public long getInvalid() {
+            return invalid;
+        }
+
+        /**
+         * @return a message for every file, or part of a file, that couldn't be imported.
+         */
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        public Duration getElapsed() {
+            return elapsed;
+        }
+
+        public double getCluesPerSecond() {
+            return parsed / seconds();
+        }
+
+        public double getMegabytesPerSecond() {
+            return bytes / 1e6 / seconds();
+        }
+
+        private double seconds() {
+            return Math.max(elapsed.toNanos(), 1) / 1e9;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d/%d files, %.1f/%.1f MB, %d clues imported (%d duplicates, %d invalid, %d errors)"
+                            + " in %.1f s: %.0f clues/s, %.1f MB/s",
+                    files, totalFiles, bytes / 1e6, totalBytes / 1e6, imported, duplicates, invalid, errors.size(),
+                    seconds(), getCluesPerSecond(), getMegabytesPerSecond());
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.kenzie.app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * An inverted index over the clues in a ClueStore, for building themed games.
+ *
+ * Every word of every question, every category and every dollar value has a posting list:
+ * the store indexes of the clues it appears in, as a sorted int array. A query such as
+ * "category THE OLD TESTAMENT, value 400 and up, mentioning Moses" intersects the lists
+ * involved, starting with the shortest and skipping through the others with a galloping
+ * search, instead of looking at every clue.
+ *
+ * Words are split the same plain way for indexing and for searching: lower case, with
+ * punctuation taken out, and nothing else dropped (unlike the FuzzyAnswerMatcher, which
+ * strips "what is" and articles from answers; a search for "the" should find "the").
+ * Category titles are matched whole, in the same form.
+ *
+ * The store is append-only, and so are the posting lists: update() indexes whatever was
+ * added to the store since the last call, and new indexes always go on the end of a list,
+ * which keeps it sorted for free. Queries and updates may run from any thread.
+ *
+ * @author Ethan Tauriainen
+ */
+public class ClueIndex {
+
+    private static final int[] NONE = new int[0];
+    private static final Pattern NOT_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ClueStore store;
+    private final Map<String, Postings> words = new HashMap<>();
+    private final Map<String, Postings> categoriesByTitle = new HashMap<>();
+    private final List<Postings> categories = new ArrayList<>();
+    private final NavigableMap<Integer, Postings> values = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int indexed;
+
+    private ClueIndex(ClueStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Indexes every clue already in the store.
+     *
+     * @param store the clues to index.
+     * @return the index, kept up to date with update().
+     */
+    public static ClueIndex from(ClueStore store) {
+        ClueIndex index = new ClueIndex(store);
+        index.update();
+        return index;
+    }
+
+    /**
+     * Adds a clue to the store and indexes it.
+     *
+     * @param clue the clue to add.
+     * @return the store index of the clue.
+     */
+    public int add(ClueDTO clue) {
+        int index = store.add(clue);
+        update();
+        return index;
+    }
+
+    /**
+     * Indexes the clues added to the store since the last update.
+     *
+     * @return how many clues were indexed.
+     */
+    public int update() {
+        lock.writeLock().lock();
+        try {
+            int size = store.size();
+            int added = size - indexed;
+            ClueStore.View view = store.view();
+            for (int i = indexed; i < size; i++) {
+                view.moveTo(i);
+                for (String word : tokenize(view.question())) {
+                    words.computeIfAbsent(word, w -> new Postings()).add(i);
+                }
+                int category = store.category(i);
+                while (categories.size() <= category) {
+                    int number = categories.size();
+                    categories.add(new Postings());
+                    categoriesByTitle.computeIfAbsent(plain(store.categoryTitle(number)),
+                            t -> new Postings()).add(number);
+                }
+                categories.get(category).add(i);
+                values.computeIfAbsent(view.value(), v -> new Postings()).add(i);
+            }
+            indexed = size;
+            return added;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return how many clues are in the index.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return indexed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public ClueStore getStore() {
+        return store;
+    }
+
+    /**
+     * @return a new, empty query. With no conditions it matches every clue.
+     */
+    public Query query() {
+        return new Query();
+    }
+
+    /**
+     * Copies the matching clues out of the store.
+     *
+     * @param matches store indexes, as returned by Query.run().
+     * @return a new ClueDTO per index.
+     */
+    public List<ClueDTO> clues(int[] matches) {
+        List<ClueDTO> clues = new ArrayList<>(matches.length);
+        for (int index : matches) {
+            clues.add(store.toClueDTO(index));
+        }
+        return clues;
+    }
+
+    /**
+     * The conditions of a search. Every condition must hold.
+     */
+    public class Query {
+        private final List<String> keywords = new ArrayList<>();
+        private final List<String> categoryTitles = new ArrayList<>();
+        private int minValue = Integer.MIN_VALUE;
+        private int maxValue = Integer.MAX_VALUE;
+
+        private Query() {
+        }
+
+        /**
+         * @param text one or more words that must all appear in the question.
+         */
+        public Query keyword(String text) {
+            keywords.addAll(tokenize(text));
+            return this;
+        }
+
+        /**
+         * @param title the category's title, e.g. "The Old Testament".
+         */
+        public Query category(String title) {
+            categoryTitles.add(plain(title));
+            return this;
+        }
+
+        /**
+         * @param min the lowest value, inclusive.
+         * @param max the highest value, inclusive.
+         */
+        public Query values(int min, int max) {
+            minValue = Math.max(minValue, min);
+            maxValue = Math.min(maxValue, max);
+            return this;
+        }
+
+        public Query minValue(int min) {
+            return values(min, Integer.MAX_VALUE);
+        }
+
+        /**
+         * @return the store indexes of the matching clues, in ascending order.
+         */
+        public int[] run() {
+            lock.readLock().lock();
+            try {
+                return search();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * @return copies of the matching clues.
+         */
+        public List<ClueDTO> clues() {
+            return ClueIndex.this.clues(run());
+        }
+
+        private int[] search() {
+            if (minValue > maxValue) {
+                return NONE;
+            }
+            List<Postings> lists = new ArrayList<>();
+            for (String keyword : keywords) {
+                Postings postings = words.get(keyword);
+                if (postings == null) {
+                    return NONE;
+                }
+                lists.add(postings);
+            }
+            for (String title : categoryTitles) {
+                Postings numbers = categoriesByTitle.get(title);
+                if (numbers == null) {
+                    return NONE;
+                }
+                List<Postings> sameTitle = new ArrayList<>();
+                for (int i = 0; i < numbers.size; i++) {
+                    sameTitle.add(categories.get(numbers.values[i]));
+                }
+                lists.add(union(sameTitle));
+            }
+            boolean valueRange = minValue != Integer.MIN_VALUE || maxValue != Integer.MAX_VALUE;
+            if (lists.isEmpty()) {
+                if (!valueRange) {
+                    int[] all = new int[indexed];
+                    Arrays.setAll(all, i -> i);
+                    return all;
+                }
+                List<Postings> inRange = new ArrayList<>(values.subMap(minValue, true, maxValue, true).values());
+                return inRange.isEmpty() ? NONE : union(inRange).toArray();
+            }
+
+            int[] result = intersect(lists);
+            if (valueRange) {
+                // Cheaper to check the few candidates left than to merge every value in range.
+                int kept = 0;
+                for (int index : result) {
+                    int value = store.value(index);
+                    if (value >= minValue && value <= maxValue) {
+                        result[kept++] = index;
+                    }
+                }
+                result = Arrays.copyOf(result, kept);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Splits text into the words the index is keyed by.
+     */
+    static List<String> tokenize(String text) {
+        String plain = plain(text);
+        if (plain.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.asList(plain.split(" "));
+    }
+
+    /**
+     * @return the text in lower case, its words separated by single spaces.
+     */
+    private static String plain(String text) {
+        if (text == null) {
+            return "";
+        }
+        // "it's" becomes "its", not "it" and "s".
+        String words = text.replace("'", "").toLowerCase(Locale.ROOT);
+        return NOT_WORD.matcher(words).replaceAll(" ").trim();
+    }
+
+    /**
+     * Intersects sorted lists, walking the shortest and galloping through the rest.
+     */
+    private static int[] intersect(List<Postings> lists) {
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+        Postings smallest = lists.get(0);
+        int[] result = new int[smallest.size];
+        int[] positions = new int[lists.size()];
+        int count = 0;
+        candidates:
+        for (int c = 0; c < smallest.size; c++) {
+            int candidate = smallest.values[c];
+            for (int l = 1; l < lists.size(); l++) {
+                Postings list = lists.get(l);
+                int position = gallop(list.values, list.size, positions[l], candidate);
+                positions[l] = position;
+                if (position == list.size) {
+                    break candidates;   // This list has nothing left this large.
+                }
+                if (list.values[position] != candidate) {
+                    continue candidates;
+                }
+            }
+            result[count++] = candidate;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * @return the first position in list[from, size) whose value is at least target, or
+     * size if there is none.
+     */
+    static int gallop(int[] list, int size, int from, int target) {
+        int low = from;
+        int high = from;
+        int step = 1;
+        while (high < size && list[high] < target) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        int found = Arrays.binarySearch(list, low, Math.min(high + 1, size), target);
+        return found >= 0 ? found : -found - 1;
+    }
+
+    /**
+     * Merges sorted lists that don't share any index.
+     */
+    private static Postings union(List<Postings> lists) {
+        if (lists.size() == 1) {
+            return lists.get(0);
+        }
+        Postings result = new Postings();
+        int length = 0;
+        for (Postings list : lists) {
+            length += list.size;
+        }
+        result.values = new int[Math.max(1, length)];
+        for (Postings list : lists) {
+            System.arraycopy(list.values, 0, result.values, result.size, list.size);
+            result.size += list.size;
+        }
+        Arrays.sort(result.values, 0, result.size);
+        return result;
+    }
+
+    /**
+     * A growable, sorted list of store indexes.
+     */
+    private static final class Postings {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int index) {
+            if (size > 0 && values[size - 1] == index) {
+                return;     // The same word twice in one question.
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = index;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
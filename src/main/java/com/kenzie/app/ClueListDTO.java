@@ -13,6 +13,7 @@ import java.util.List;
  *
  * @author Ethan Tauriainen
  */
+@JsonCodec
 @JsonPropertyOrder({"clues"})
 public class ClueListDTO {
 
@@ -0,0 +1,385 @@
+package com.kenzie.app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Deals decks out of a ClueStore without shuffling the store, and without giving a player
+ * a clue they have already seen.
+ *
+ * Shuffling the whole list to take ten clues costs time in proportion to the size of the
+ * list, every game. The sampler only does work in proportion to the size of the deck:
+ *
+ *   Uniform sampling runs a partial Fisher-Yates shuffle over a virtual array of the
+ *   store's indexes, remembering only the few positions it swapped (in a small int map
+ *   each thread keeps and reuses), and stops once it has enough clues.
+ *
+ *   Weighted sampling (say, by value, or by how hard a clue turned out to be) uses
+ *   Walker's alias method: after an O(n) setup, each draw is a coin flip and one table
+ *   look-up.
+ *
+ * Each player has a BitSet of the clues they have been dealt, and a draw that lands on
+ * one of those is simply drawn again. That stays cheap until a player has seen most of
+ * the store; after too many misses in a row the sampler falls back to one pass over the
+ * unseen clues (a weighted reservoir sample). Once a player has seen every clue, their
+ * set is cleared and they start over.
+ *
+ * Clues added to the store after the sampler was made, or weights that have changed,
+ * are picked up by refresh().
+ *
+ * @author Ethan Tauriainen
+ */
+public class ClueSampler {
+
+    // How many draws per clue needed before giving up on drawing and scanning instead.
+    private static final int DRAWS_PER_CLUE = 16;
+
+    private static final ThreadLocal<Swaps> SWAPS = ThreadLocal.withInitial(Swaps::new);
+
+    private final ClueStore store;
+    private final IntToDoubleFunction weight;
+    private final Map<String, Seen> players = new ConcurrentHashMap<>();
+    private volatile Table table;
+
+    private ClueSampler(ClueStore store, IntToDoubleFunction weight) {
+        this.store = store;
+        this.weight = weight;
+        refresh();
+    }
+
+    /**
+     * @param store the clues to deal from.
+     * @return a sampler that gives every clue the same chance.
+     */
+    public static ClueSampler uniform(ClueStore store) {
+        return new ClueSampler(store, null);
+    }
+
+    /**
+     * @param store the clues to deal from.
+     * @param weight the relative chance of each store index being dealt. Must be positive.
+     * @return a sampler that favours clues with more weight.
+     */
+    public static ClueSampler weighted(ClueStore store, IntToDoubleFunction weight) {
+        return new ClueSampler(store, weight);
+    }
+
+    /**
+     * Weighs clues by their dollar value, so the harder, pricier clues come up more often.
+     */
+    public static IntToDoubleFunction byValue(ClueStore store) {
+        return index -> Math.max(1, store.value(index));
+    }
+
+    /**
+     * Catches up with clues added to the store and, for a weighted sampler, rebuilds the
+     * alias table from the current weights.
+     */
+    public synchronized void refresh() {
+        int size = store.size();
+        table = weight == null ? new Table(size, null, null) : Table.alias(size, weight);
+    }
+
+    public ClueStore getStore() {
+        return store;
+    }
+
+    /**
+     * Picks clues the player hasn't been dealt before and marks them as seen.
+     *
+     * @param playerId whose seen clues to avoid.
+     * @param count how many clues. Fewer are returned only if the store is smaller.
+     * @return store indexes, in the order drawn.
+     */
+    public int[] sample(String playerId, int count) {
+        return sample(players.computeIfAbsent(playerId, id -> new Seen()), count);
+    }
+
+    private int[] sample(Seen seen, int count) {
+        Table current = table;
+        Random random = ThreadLocalRandom.current();
+        synchronized (seen) {
+            count = Math.min(count, current.size);
+            if (current.size - seen.count < count) {
+                seen.clear();   // Not enough unseen clues left; start over.
+            }
+            int[] deck = new int[count];
+            int dealt = current.prob == null
+                    ? drawUniform(current.size, seen, deck, random)
+                    : drawWeighted(current, seen, deck, random);
+            if (dealt < count) {
+                scanUnseen(current, seen, deck, dealt, random);
+            }
+            return deck;
+        }
+    }
+
+    /**
+     * Like sample(), but copies the clues out of the store.
+     */
+    public List<ClueDTO> deal(String playerId, int count) {
+        return toClues(sample(playerId, count));
+    }
+
+    private List<ClueDTO> toClues(int[] indexes) {
+        List<ClueDTO> deck = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            deck.add(store.toClueDTO(index));
+        }
+        return deck;
+    }
+
+    /**
+     * A deck source for a GameEngine that deals every game to the same player, so no
+     * clue repeats across the engine's games until the store runs out.
+     *
+     * @param playerId whose seen clues to avoid.
+     */
+    public IntFunction<CompletableFuture<List<ClueDTO>>> deckSource(String playerId) {
+        return count -> CompletableFuture.completedFuture(deal(playerId, count));
+    }
+
+    /**
+     * A deck source for a GameEngine hosting many players at once. A player's games are
+     * dealt with deal(), so no clue repeats for them until they have seen the store. A
+     * game for nobody in particular (a null player) is dealt as if to a new player: no
+     * clue repeats within the game, and nothing is remembered afterwards.
+     */
+    public BiFunction<String, Integer, CompletableFuture<List<ClueDTO>>> deckSource() {
+        return (playerId, count) -> CompletableFuture.completedFuture(playerId == null
+                ? toClues(sample(new Seen(), count))
+                : deal(playerId, count));
+    }
+
+    /**
+     * @return how many clues the player has been dealt since they last started over.
+     */
+    public int seenCount(String playerId) {
+        Seen seen = players.get(playerId);
+        if (seen == null) {
+            return 0;
+        }
+        synchronized (seen) {
+            return seen.count;
+        }
+    }
+
+    /**
+     * Forgets everything the player has been dealt.
+     */
+    public void forget(String playerId) {
+        players.remove(playerId);
+    }
+
+    /**
+     * A partial Fisher-Yates shuffle over 0..size-1 that only remembers the swapped
+     * positions, skipping clues already seen.
+     *
+     * @return how many clues were dealt before the draw budget ran out.
+     */
+    private static int drawUniform(int size, Seen seen, int[] deck, Random random) {
+        int budget = deck.length * DRAWS_PER_CLUE;
+        Swaps swapped = SWAPS.get();
+        swapped.reset(Math.min(size, budget));
+        int dealt = 0;
+        for (int i = 0; i < size && dealt < deck.length && budget-- > 0; i++) {
+            int j = i + random.nextInt(size - i);
+            int picked = swapped.get(j);
+            swapped.put(j, swapped.get(i));
+            if (seen.add(picked)) {
+                deck[dealt++] = picked;
+            }
+        }
+        return dealt;
+    }
+
+    private static int drawWeighted(Table table, Seen seen, int[] deck, Random random) {
+        int budget = deck.length * DRAWS_PER_CLUE;
+        int dealt = 0;
+        while (dealt < deck.length && budget-- > 0) {
+            int column = random.nextInt(table.size);
+            int picked = random.nextDouble() < table.prob[column] ? column : table.alias[column];
+            if (seen.add(picked)) {
+                deck[dealt++] = picked;
+            }
+        }
+        return dealt;
+    }
+
+    /**
+     * The slow path, for a player who has seen most of the store: one pass over the
+     * unseen clues keeping the ones with the largest random keys u^(1/w) (Efraimidis and
+     * Spirakis), which is a weighted sample without replacement.
+     */
+    private void scanUnseen(Table table, Seen seen, int[] deck, int dealt, Random random) {
+        int needed = deck.length - dealt;
+        PriorityQueue<double[]> best = new PriorityQueue<>(needed, (a, b) -> Double.compare(a[0], b[0]));
+        for (int i = seen.bits.nextClearBit(0); i < table.size; i = seen.bits.nextClearBit(i + 1)) {
+            double w = weight == null ? 1 : Math.max(Double.MIN_NORMAL, weight.applyAsDouble(i));
+            double key = Math.pow(random.nextDouble(), 1 / w);
+            if (best.size() < needed) {
+                best.add(new double[] {key, i});
+            } else if (key > best.peek()[0]) {
+                best.poll();
+                best.add(new double[] {key, i});
+            }
+        }
+        while (!best.isEmpty()) {
+            int picked = (int) best.poll()[1];
+            seen.add(picked);
+            deck[dealt++] = picked;
+        }
+    }
+
+    /**
+     * The positions a partial shuffle has swapped, as an open-addressing map from int to
+     * int; a position that isn't in it holds itself. Each thread reuses one. Rather than
+     * being cleared, the map moves on to a new stamp, and slots from older stamps count
+     * as empty.
+     */
+    private static final class Swaps {
+        private int[] keys = new int[0];
+        private int[] values = new int[0];
+        private int[] stamps = new int[0];
+        private int stamp;
+        private int mask;
+
+        /**
+         * Empties the map, making room for the given number of keys.
+         */
+        private void reset(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(8, expected * 2 - 1)) << 1;
+            if (capacity > keys.length) {
+                keys = new int[capacity];
+                values = new int[capacity];
+                stamps = new int[capacity];
+                mask = capacity - 1;
+                stamp = 0;
+            } else if (stamp == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                stamp = 0;
+            }
+            stamp++;
+        }
+
+        private int get(int key) {
+            for (int slot = slot(key); stamps[slot] == stamp; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+            }
+            return key;
+        }
+
+        private void put(int key, int value) {
+            int slot = slot(key);
+            while (stamps[slot] == stamp && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            stamps[slot] = stamp;
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        private int slot(int key) {
+            int h = key * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+
+    /**
+     * The clues one player has been dealt.
+     */
+    private static final class Seen {
+        private final BitSet bits = new BitSet();
+        private int count;
+
+        /**
+         * @return true if the clue hadn't been seen before.
+         */
+        private boolean add(int index) {
+            if (bits.get(index)) {
+                return false;
+            }
+            bits.set(index);
+            count++;
+            return true;
+        }
+
+        private void clear() {
+            bits.clear();
+            count = 0;
+        }
+    }
+
+    /**
+     * The corpus size as of the last refresh, and for a weighted sampler its alias table.
+     */
+    private static final class Table {
+        private final int size;
+        private final double[] prob;
+        private final int[] alias;
+
+        private Table(int size, double[] prob, int[] alias) {
+            this.size = size;
+            this.prob = prob;
+            this.alias = alias;
+        }
+
+        /**
+         * Builds the table with Vose's method: columns below the average weight are
+         * topped up from columns above it, so each column holds at most two clues.
+         */
+        private static Table alias(int size, IntToDoubleFunction weight) {
+            double[] prob = new double[size];
+            int[] alias = new int[size];
+            double total = 0;
+            for (int i = 0; i < size; i++) {
+                prob[i] = Math.max(Double.MIN_NORMAL, weight.applyAsDouble(i));
+                total += prob[i];
+            }
+            int[] small = new int[size];
+            int[] large = new int[size];
+            int smallCount = 0;
+            int largeCount = 0;
+            for (int i = 0; i < size; i++) {
+                prob[i] = prob[i] * size / total;
+                if (prob[i] < 1) {
+                    small[smallCount++] = i;
+                } else {
+                    large[largeCount++] = i;
+                }
+            }
+            while (smallCount > 0 && largeCount > 0) {
+                int less = small[--smallCount];
+                int more = large[--largeCount];
+                alias[less] = more;
+                prob[more] = prob[more] + prob[less] - 1;
+                if (prob[more] < 1) {
+                    small[smallCount++] = more;
+                } else {
+                    large[largeCount++] = more;
+                }
+            }
+            // Whatever is left is 1 give or take rounding.
+            while (largeCount > 0) {
+                prob[large[--largeCount]] = 1;
+            }
+            while (smallCount > 0) {
+                prob[small[--smallCount]] = 1;
+            }
+            return new Table(size, prob, alias);
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package com.kenzie.app;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Learns which clues are hard from how players do on them.
+ *
+ * For every clue and every category the stats count how often the question was played
+ * to an end (answered, timed out or skipped), how often it was answered correctly, the
+ * wrong guesses, and the total time taken by the correct answers. Sessions record into
+ * it as they are played (see GameEngine.setStats()).
+ *
+ * Thousands of sessions may record at once, so the counters are LongAdders: each thread
+ * adds to its own cell and the cells are only summed when the counts are read. Reading
+ * is the rare operation here.
+ *
+ * The stats can be written to a small CSV file and loaded back, and startSnapshots()
+ * does the writing periodically, so what was learned survives a restart.
+ *
+ * targeting() turns the stats into weights for a ClueSampler that deals mostly clues
+ * players answer at about a chosen rate, say 60% of the time.
+ *
+ * @author Ethan Tauriainen
+ */
+public class ClueStats {
+
+    public static final double DEFAULT_TARGET_SUCCESS_RATE = 0.6;
+
+    private static final String HEADER = "kind,id,attempts,correct,wrong,timeouts,skips,answerNanos";
+
+    // How many plays an estimate borrows from the level above it (category, then overall).
+    private static final double PRIOR_WEIGHT = 5;
+    // How quickly a clue's weight drops off as its success rate moves away from the target.
+    private static final double TARGET_WIDTH = 0.15;
+    private static final double MIN_WEIGHT = 0.01;
+
+    private static final ScheduledExecutorService SNAPSHOTS = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "clue-stats-snapshots");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<Long, Counters> clues = new ConcurrentHashMap<>();
+    private final Map<Long, Counters> categories = new ConcurrentHashMap<>();
+    private final Counters overall = new Counters();
+
+    /**
+     * @return where the game keeps its stats when none is given: ~/.trivia/clue-stats.csv
+     */
+    public static Path defaultFile() {
+        return Path.of(System.getProperty("user.home"), ".trivia", "clue-stats.csv");
+    }
+
+    /**
+     * @return where the game server keeps its stats: ~/.trivia/server-clue-stats.csv. Kept
+     * apart from the desktop game's, so the two don't overwrite each other's.
+     */
+    public static Path serverFile() {
+        return Path.of(System.getProperty("user.home"), ".trivia", "server-clue-stats.csv");
+    }
+
+    /**
+     * Records a correct answer.
+     *
+     * @param clue the clue answered.
+     * @param answerNanos how long after the question was asked.
+     */
+    public void recordCorrect(ClueDTO clue, long answerNanos) {
+        for (Counters counters : countersFor(clue)) {
+            counters.attempts.increment();
+            counters.correct.increment();
+            counters.answerNanos.add(answerNanos);
+        }
+    }
+
+    /**
+     * Records a wrong guess. The question is still open, so it isn't an attempt yet.
+     */
+    public void recordWrong(ClueDTO clue) {
+        for (Counters counters : countersFor(clue)) {
+            counters.wrong.increment();
+        }
+    }
+
+    public void recordTimeout(ClueDTO clue) {
+        for (Counters counters : countersFor(clue)) {
+            counters.attempts.increment();
+            counters.timeouts.increment();
+        }
+    }
+
+    /**
+     * Records the player moving on without answering.
+     */
+    public void recordSkip(ClueDTO clue) {
+        for (Counters counters : countersFor(clue)) {
+            counters.attempts.increment();
+            counters.skips.increment();
+        }
+    }
+
+    /**
+     * @return the counts for one clue, all zero if it has never been played.
+     */
+    public Counts forClue(long clueId) {
+        return Counts.of(clues.get(clueId));
+    }
+
+    public Counts forCategory(long categoryId) {
+        return Counts.of(categories.get(categoryId));
+    }
+
+    public Counts overall() {
+        return Counts.of(overall);
+    }
+
+    /**
+     * The chance a player answers the clue correctly. A clue played only a few times
+     * leans on its category's rate, and a category on the overall rate, so one lucky
+     * guess doesn't make a clue look easy.
+     *
+     * @return an estimate between 0 and 1.
+     */
+    public double estimatedSuccessRate(long clueId, long categoryId) {
+        double overallRate = smoothed(overall, 0.5);
+        double categoryRate = smoothed(categories.get(categoryId), overallRate);
+        return smoothed(clues.get(clueId), categoryRate);
+    }
+
+    /**
+     * Weights for ClueSampler.weighted() that favour clues whose estimated success rate
+     * is close to the target. Call refresh() on the sampler now and then to pick up what
+     * has been learned since.
+     *
+     * @param store the clues the sampler deals from.
+     * @param targetSuccessRate e.g. 0.6 for questions most players get right.
+     */
+    public IntToDoubleFunction targeting(ClueStore store, double targetSuccessRate) {
+        return index -> {
+            double rate = estimatedSuccessRate(store.id(index), store.categoryId(store.category(index)));
+            double distance = (rate - targetSuccessRate) / TARGET_WIDTH;
+            return Math.max(MIN_WEIGHT, Math.exp(-distance * distance / 2));
+        };
+    }
+
+    /**
+     * Writes the counts to a CSV file. The file is written next to the target first and
+     * moved into place once complete.
+     *
+     * @param file where to write.
+     * @throws IOException if the file can't be written.
+     */
+    public void save(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            out.write(HEADER);
+            out.newLine();
+            for (Map.Entry<Long, Counters> entry : categories.entrySet()) {
+                writeRow(out, "category", entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<Long, Counters> entry : clues.entrySet()) {
+                writeRow(out, "clue", entry.getKey(), entry.getValue());
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads counts written by save().
+     *
+     * @param file the CSV file. A missing file gives empty stats.
+     * @return the stats.
+     * @throws IOException if the file can't be read or isn't in the expected format.
+     */
+    public static ClueStats load(Path file) throws IOException {
+        ClueStats stats = new ClueStats();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = in.readLine();
+            if (!HEADER.equals(line)) {
+                throw new IOException("Not a clue stats file: " + file);
+            }
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (fields.length != 8) {
+                    throw new IOException("Bad clue stats line: " + line);
+                }
+                try {
+                    long id = Long.parseLong(fields[1]);
+                    Counters counters = new Counters();
+                    counters.attempts.add(Long.parseLong(fields[2]));
+                    counters.correct.add(Long.parseLong(fields[3]));
+                    counters.wrong.add(Long.parseLong(fields[4]));
+                    counters.timeouts.add(Long.parseLong(fields[5]));
+                    counters.skips.add(Long.parseLong(fields[6]));
+                    counters.answerNanos.add(Long.parseLong(fields[7]));
+                    if ("category".equals(fields[0])) {
+                        stats.categories.put(id, counters);
+                        counters.addTo(stats.overall);
+                    } else {
+                        stats.clues.put(id, counters);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException("Bad clue stats line: " + line, e);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Nothing learned yet.
+        }
+        return stats;
+    }
+
+    /**
+     * Like load(), but never fails: stats that can't be read are moved aside (to the same
+     * name with .bad on the end, so the next save doesn't write over them) and the game
+     * starts over with empty stats. Losing what was learned isn't worth not starting.
+     *
+     * @param file the CSV file.
+     * @return the stats, or empty stats.
+     */
+    public static ClueStats loadOrStartOver(Path file) {
+        try {
+            return load(file);
+        } catch (IOException e) {
+            System.err.println("Starting the clue stats over: " + e.getMessage());
+            try {
+                Files.move(file, file.resolveSibling(file.getFileName() + ".bad"), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException moveFailed) {
+                System.err.println("Couldn't move the clue stats aside: " + moveFailed.getMessage());
+            }
+            return new ClueStats();
+        }
+    }
+
+    /**
+     * Saves the stats to the file every period, in the background.
+     *
+     * @param file where to write.
+     * @param period how often.
+     * @param afterEach run after each save, e.g. a sampler's refresh(). May be null.
+     * @return the scheduled task, for cancelling.
+     */
+    public ScheduledFuture<?> startSnapshots(Path file, Duration period, Runnable afterEach) {
+        long millis = Math.max(1, period.toMillis());
+        return SNAPSHOTS.scheduleWithFixedDelay(() -> {
+            try {
+                save(file);
+            } catch (IOException e) {
+                System.err.println("Couldn't save the clue stats: " + e.getMessage());
+            }
+            if (afterEach != null) {
+                afterEach.run();
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    private Counters[] countersFor(ClueDTO clue) {
+        long categoryId = clue.getCategory() != null ? clue.getCategory().getId() : clue.getCategoryId();
+        return new Counters[] {
+                clues.computeIfAbsent(clue.getId(), id -> new Counters()),
+                categories.computeIfAbsent(categoryId, id -> new Counters()),
+                overall
+        };
+    }
+
+    private static double smoothed(Counters counters, double prior) {
+        if (counters == null) {
+            return prior;
+        }
+        return (counters.correct.sum() + PRIOR_WEIGHT * prior) / (counters.attempts.sum() + PRIOR_WEIGHT);
+    }
+
+    private static void writeRow(BufferedWriter out, String kind, long id, Counters counters) throws IOException {
+        out.write(kind + "," + id + "," + counters.attempts.sum() + "," + counters.correct.sum() + ","
+                + counters.wrong.sum() + "," + counters.timeouts.sum() + "," + counters.skips.sum() + ","
+                + counters.answerNanos.sum());
+        out.newLine();
+    }
+
+    private static final class Counters {
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder correct = new LongAdder();
+        private final LongAdder wrong = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder skips = new LongAdder();
+        private final LongAdder answerNanos = new LongAdder();
+
+        private void addTo(Counters total) {
+            total.attempts.add(attempts.sum());
+            total.correct.add(correct.sum());
+            total.wrong.add(wrong.sum());
+            total.timeouts.add(timeouts.sum());
+            total.skips.add(skips.sum());
+            total.answerNanos.add(answerNanos.sum());
+        }
+    }
+
+    /**
+     * The counts for one clue or category at the moment they were read.
+     */
+    public static final class Counts {
+        private final long attempts;
+        private final long correct;
+        private final long wrong;
+        private final long timeouts;
+        private final long skips;
+        private final long answerNanos;
+
+        private Counts(long attempts, long correct, long wrong, long timeouts, long skips, long answerNanos) {
+            this.attempts = attempts;
+            this.correct = correct;
+            this.wrong = wrong;
+            this.timeouts = timeouts;
+            this.skips = skips;
+            this.answerNanos = answerNanos;
+        }
+
+        private static Counts of(Counters counters) {
+            if (counters == null) {
+                return new Counts(0, 0, 0, 0, 0, 0);
+            }
+            return new Counts(counters.attempts.sum(), counters.correct.sum(), counters.wrong.sum(),
+                    counters.timeouts.sum(), counters.skips.sum(), counters.answerNanos.sum());
+        }
+
+        public long getAttempts() {
+            return attempts;
+        }
+
+        public long getCorrect() {
+            return correct;
+        }
+
+        public long getWrong() {
+            return wrong;
+        }
+
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        public long getSkips() {
+            return skips;
+        }
+
+        /**
+         * @return the share of attempts answered correctly, or 0 if never played.
+         */
+        public double getSuccessRate() {
+            return attempts == 0 ? 0 : (double) correct / attempts;
+        }
+
+        /**
+         * @return how long the correct answers took on average.
+         */
+        public Duration getMeanAnswerTime() {
+            return correct == 0 ? Duration.ZERO : Duration.ofNanos(answerNanos / correct);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.kenzie.app;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A compact, column-oriented home for a large number of clues.
+ *
+ * A ClueDTO is a small object graph: the clue itself, a Category, a Game, the strings
+ * behind them and several fields the game never looks at. Multiplied by tens of thousands
+ * of clues that overhead adds up to most of the heap. The store keeps only what the game
+ * plays with, one primitive array per field:
+ *
+ *   ids, values and a category number per clue;
+ *   each category's id and title once, no matter how many clues share it;
+ *   every question and answer as UTF-8 bytes in one shared byte pool, with an offset table.
+ *
+ * Clues are read through a View, a reusable flyweight that points at one row at a time
+ * and only decodes the question or answer when asked for it.
+ *
+ * Adding is synchronized, so one writer at a time. Reading needs no lock for any index
+ * below size(). All the arrays hang off one Columns object, which is replaced as a whole
+ * (through a volatile field) once the larger copies are filled in, and size, also
+ * volatile, is written after the row it covers. Readers always read size first and the
+ * columns after it, so whatever columns they see hold every row below that size.
+ *
+ * @author Ethan Tauriainen
+ */
+public class ClueStore {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private volatile Columns columns = new Columns(INITIAL_CAPACITY, INITIAL_CAPACITY * 64, 16);
+    private final Map<Long, Integer> categoryIndex = new HashMap<>();
+
+    private volatile int size;
+    private volatile int categoryCount;
+
+    /**
+     * Builds a store holding the clues in the given list.
+     *
+     * @param clueList the clues, as mapped from the API response.
+     * @return a new store.
+     */
+    public static ClueStore from(ClueListDTO clueList) {
+        ClueStore store = new ClueStore();
+        store.addAll(clueList.getClues());
+        return store;
+    }
+
+    /**
+     * Builds a store straight from a JSON response using the streaming parser, so no
+     * ClueDTO lives longer than it takes to copy it in.
+     *
+     * @param body the JSON response. It is not closed by this method.
+     * @return a new store.
+     * @throws IOException in case the stream cannot be read or parsed as JSON.
+     */
+    public static ClueStore from(InputStream body) throws IOException {
+        ClueStore store = new ClueStore();
+        CustomHttpClient.readClues(body, store::add);
+        return store;
+    }
+
+    /**
+     * Copies a batch of clues into the store, taking the lock once for the whole batch.
+     */
+    public synchronized void addAll(Iterable<ClueDTO> clues) {
+        for (ClueDTO clue : clues) {
+            add(clue);
+        }
+    }
+
+    /**
+     * Copies one clue into the store.
+     *
+     * @param clue the clue to copy.
+     * @return the index the clue was stored at.
+     * @throws ArithmeticException if the value doesn't fit in an int. Nothing is stored.
+     */
+    public synchronized int add(ClueDTO clue) {
+        int index = size;
+        byte[] question = bytesOf(clue.getQuestion());
+        byte[] answer = bytesOf(clue.getAnswer());
+        int value = Math.toIntExact(clue.getValue());
+        ensureCapacity(index + 1, question.length + answer.length);
+        int category = internCategory(clue);
+
+        Columns c = columns;
+        c.ids[index] = clue.getId();
+        c.values[index] = value;
+        c.categories[index] = category;
+
+        int offset = c.textOffsets[2 * index];
+        System.arraycopy(question, 0, c.textPool, offset, question.length);
+        offset += question.length;
+        c.textOffsets[2 * index + 1] = offset;
+        System.arraycopy(answer, 0, c.textPool, offset, answer.length);
+        c.textOffsets[2 * index + 2] = offset + answer.length;
+
+        size = index + 1;   // Publishes the row to readers.
+        return index;
+    }
+
+    /**
+     * @return the number of clues in the store.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of distinct categories in the store.
+     */
+    public int categoryCount() {
+        return categoryCount;
+    }
+
+    public long id(int index) {
+        checkIndex(index);
+        return columns.ids[index];
+    }
+
+    public int value(int index) {
+        checkIndex(index);
+        return columns.values[index];
+    }
+
+    /**
+     * @return the category number (0 to categoryCount() - 1) of the clue at the index.
+     */
+    public int category(int index) {
+        checkIndex(index);
+        return columns.categories[index];
+    }
+
+    public long categoryId(int category) {
+        checkCategory(category);
+        return columns.categoryIds[category];
+    }
+
+    public String categoryTitle(int category) {
+        checkCategory(category);
+        return columns.categoryTitles[category];
+    }
+
+    public String question(int index) {
+        checkIndex(index);
+        Columns c = columns;
+        return decode(c, c.textOffsets[2 * index], c.textOffsets[2 * index + 1]);
+    }
+
+    public String answer(int index) {
+        checkIndex(index);
+        Columns c = columns;
+        return decode(c, c.textOffsets[2 * index + 1], c.textOffsets[2 * index + 2]);
+    }
+
+    /**
+     * Total bytes used by the question and answer text. Handy for sizing.
+     */
+    public int textBytes() {
+        int rows = size;
+        return columns.textOffsets[2 * rows];
+    }
+
+    /**
+     * @return a new flyweight view. One view can be moved over every clue in the store.
+     */
+    public View view() {
+        return new View();
+    }
+
+    /**
+     * Rebuilds a full ClueDTO for the clue at the index, for code that still works
+     * with ClueDTO (the game itself only ever deals a few at a time). Fields the store
+     * doesn't keep are left at their defaults.
+     *
+     * @param index the clue to copy out.
+     * @return a new ClueDTO.
+     */
+    public ClueDTO toClueDTO(int index) {
+        ClueDTO clue = new ClueDTO();
+        clue.setId(id(index));
+        clue.setQuestion(question(index));
+        clue.setAnswer(answer(index));
+        clue.setValue(value(index));
+        ClueDTO.Category category = new ClueDTO.Category();
+        category.setId(categoryId(category(index)));
+        category.setTitle(categoryTitle(category(index)));
+        clue.setCategoryId(category.getId());
+        clue.setCategory(category);
+        clue.setGame(new ClueDTO.Game());
+        return clue;
+    }
+
+    private int internCategory(ClueDTO clue) {
+        long categoryId = clue.getCategory() != null ? clue.getCategory().getId() : clue.getCategoryId();
+        Integer existing = categoryIndex.get(categoryId);
+        if (existing != null) {
+            return existing;
+        }
+        int category = categoryCount;
+        Columns c = columns;
+        if (category == c.categoryIds.length) {
+            c = new Columns(c, c.ids.length, c.textPool.length, category * 2);
+            columns = c;
+        }
+        c.categoryIds[category] = categoryId;
+        c.categoryTitles[category] = clue.getCategory() != null && clue.getCategory().getTitle() != null
+                ? clue.getCategory().getTitle() : "";
+        categoryIndex.put(categoryId, category);
+        categoryCount = category + 1;
+        return category;
+    }
+
+    private void ensureCapacity(int rows, int extraText) {
+        Columns c = columns;
+        int capacity = rows > c.ids.length ? Math.max(rows, c.ids.length * 2) : c.ids.length;
+        int needed = c.textOffsets[2 * size] + extraText;
+        int pool = needed > c.textPool.length ? Math.max(needed, c.textPool.length * 2) : c.textPool.length;
+        if (capacity != c.ids.length || pool != c.textPool.length) {
+            // Filled in completely before it is published.
+            columns = new Columns(c, capacity, pool, c.categoryIds.length);
+        }
+    }
+
+    private static String decode(Columns c, int from, int to) {
+        return new String(c.textPool, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    private void checkCategory(int category) {
+        if (category < 0 || category >= categoryCount) {
+            throw new IndexOutOfBoundsException("Category " + category + " out of bounds for " + categoryCount);
+        }
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return index;
+    }
+
+    private static byte[] bytesOf(String text) {
+        return text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A movable window onto one clue in the store. Create one and call moveTo() for each
+     * clue instead of allocating an object per clue.
+     */
+    public class View {
+        private int index = -1;
+
+        public View moveTo(int index) {
+            this.index = checkIndex(index);
+            return this;
+        }
+
+        public int index() {
+            return index;
+        }
+
+        public long id() {
+            return ClueStore.this.id(index);
+        }
+
+        public int value() {
+            return ClueStore.this.value(index);
+        }
+
+        public long categoryId() {
+            return ClueStore.this.categoryId(category(index));
+        }
+
+        public String categoryTitle() {
+            return ClueStore.this.categoryTitle(category(index));
+        }
+
+        public String question() {
+            return ClueStore.this.question(index);
+        }
+
+        public String answer() {
+            return ClueStore.this.answer(index);
+        }
+    }
+
+    /**
+     * Every array of the store. A larger copy is filled in before it replaces the old one,
+     * so readers never see an array without its contents.
+     */
+    private static final class Columns {
+        private final long[] ids;
+        private final int[] values;
+        private final int[] categories;
+        // Question i is textPool[textOffsets[2i], textOffsets[2i + 1]),
+        // answer i is textPool[textOffsets[2i + 1], textOffsets[2i + 2]).
+        private final int[] textOffsets;
+        private final byte[] textPool;
+        private final long[] categoryIds;
+        private final String[] categoryTitles;
+
+        private Columns(int rows, int textBytes, int categoryCapacity) {
+            ids = new long[rows];
+            values = new int[rows];
+            categories = new int[rows];
+            textOffsets = new int[rows * 2 + 1];
+            textPool = new byte[textBytes];
+            categoryIds = new long[categoryCapacity];
+            categoryTitles = new String[categoryCapacity];
+        }
+
+        private Columns(Columns old, int rows, int textBytes, int categoryCapacity) {
+            ids = Arrays.copyOf(old.ids, rows);
+            values = Arrays.copyOf(old.values, rows);
+            categories = Arrays.copyOf(old.categories, rows);
+            textOffsets = Arrays.copyOf(old.textOffsets, rows * 2 + 1);
+            textPool = Arrays.copyOf(old.textPool, textBytes);
+            categoryIds = Arrays.copyOf(old.categoryIds, categoryCapacity);
+            categoryTitles = Arrays.copyOf(old.categoryTitles, categoryCapacity);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.kenzie.app;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Keeps a buffer of unused clues ready so that a new game can be dealt right away.
+ *
+ * A game only uses a handful of the clues that one request returns, so instead of
+ * throwing the rest away the supplier holds on to them, up to its capacity. Whenever
+ * the buffer drops below the low-water mark another batch is requested in the
+ * background. The low-water mark never counts for more than the source can give: if a
+ * batch only ever holds 100 clues, the buffer is topped up below 100, not below 300.
+ *
+ * Clues that have already been dealt are remembered by id and skipped, so the same clue
+ * doesn't show up again in the next game. A batch that adds nothing new means the source
+ * has nothing unseen left, so no more are requested in the background after one. Only
+ * when a game then can't be dealt from what is buffered is the memory cleared and the
+ * clues recycled.
+ *
+ * All state is guarded by the supplier's own lock. The source is called, and futures
+ * are completed, outside of it, so a source that completes right away doesn't call back
+ * into the supplier with the lock held.
+ *
+ * @author Ethan Tauriainen
+ */
+public class ClueSupplier {
+
+    private final Supplier<CompletableFuture<List<ClueDTO>>> source;
+    private final int capacity;
+    private final int lowWaterMark;
+    private final int maxRemembered;
+
+    private final ArrayDeque<ClueDTO> buffer = new ArrayDeque<>();
+    private final Set<Long> buffered = new HashSet<>();
+    private final LinkedHashSet<Long> seen = new LinkedHashSet<>();
+    private final ArrayDeque<PendingDeck> waiting = new ArrayDeque<>();
+    private boolean refilling;
+    private boolean exhausted;      // The last batch had nothing unseen in it.
+    private int corpusSize;         // The most clues one batch has held; 0 until the first.
+
+    /**
+     * @param source called every time another batch of clues is needed.
+     * @param capacity the most clues the buffer will hold.
+     * @param lowWaterMark a refill is started once fewer clues than this are buffered.
+     */
+    public ClueSupplier(Supplier<CompletableFuture<List<ClueDTO>>> source, int capacity, int lowWaterMark) {
+        if (capacity <= 0 || lowWaterMark < 0 || lowWaterMark > capacity) {
+            throw new IllegalArgumentException("Need 0 <= lowWaterMark <= capacity and capacity > 0.");
+        }
+        this.source = source;
+        this.capacity = capacity;
+        this.lowWaterMark = lowWaterMark;
+        this.maxRemembered = capacity * 10;
+    }
+
+    /**
+     * Starts filling the buffer ahead of the first game.
+     */
+    public void prefetch() {
+        boolean refill;
+        synchronized (this) {
+            refill = claimRefill();
+        }
+        if (refill) {
+            refill();
+        }
+    }
+
+    /**
+     * Deals the clues for a new game. If enough clues are buffered the future is already
+     * complete when it is returned, otherwise it completes once the next batch arrives.
+     *
+     * If the source can't supply enough distinct clues the deck may be smaller than asked
+     * for, but it is never empty.
+     *
+     * @param size the number of clues wanted.
+     * @return a future holding the deck.
+     */
+    public CompletableFuture<List<ClueDTO>> nextDeck(int size) {
+        PendingDeck pending = new PendingDeck(size);
+        List<ClueDTO> deck = null;
+        boolean refill;
+        synchronized (this) {
+            if (waiting.isEmpty() && buffer.size() >= size) {
+                deck = take(size);
+            } else {
+                waiting.add(pending);
+            }
+            refill = claimRefill();
+        }
+        if (deck != null) {
+            pending.future.complete(deck);
+        }
+        if (refill) {
+            refill();
+        }
+        return pending.future;
+    }
+
+    /**
+     * @return the number of clues ready to be dealt.
+     */
+    public synchronized int available() {
+        return buffer.size();
+    }
+
+    /**
+     * Decides, under the lock, whether another batch should be requested. If so the
+     * caller must call refill() once it has let go of the lock.
+     */
+    private boolean claimRefill() {
+        if (refilling) {
+            return false;
+        }
+        if (waiting.isEmpty()) {
+            int lowWater = corpusSize > 0 ? Math.min(lowWaterMark, corpusSize) : lowWaterMark;
+            if (exhausted || buffer.size() >= lowWater) {
+                return false;
+            }
+        }
+        refilling = true;
+        return true;
+    }
+
+    private void refill() {
+        CompletableFuture<List<ClueDTO>> batch;
+        try {
+            batch = source.get();
+        } catch (RuntimeException e) {
+            batch = CompletableFuture.failedFuture(e);
+        }
+        batch.whenComplete(this::onBatch);
+    }
+
+    private void onBatch(List<ClueDTO> batch, Throwable error) {
+        List<Runnable> completions = new ArrayList<>();
+        boolean refill = false;
+        synchronized (this) {
+            refilling = false;
+            if (error != null) {
+                // Nobody waiting gets a deck this time; the next call will try again.
+                while (!waiting.isEmpty()) {
+                    PendingDeck pending = waiting.poll();
+                    completions.add(() -> pending.future.completeExceptionally(error));
+                }
+            } else {
+                corpusSize = Math.max(corpusSize, batch.size());
+                List<ClueDTO> shuffled = new ArrayList<>(batch);
+                Collections.shuffle(shuffled);
+                int added = addUnseen(shuffled);
+                dealWaiting(completions);
+                if (added == 0 && !waiting.isEmpty()) {
+                    // Every clue the source has was dealt already and a game still can't be
+                    // dealt from the buffer. Start over.
+                    seen.clear();
+                    added = addUnseen(shuffled);
+                    dealWaiting(completions);
+                    if (added == 0) {
+                        // The source can't give us any more than this, deal what there is.
+                        while (!waiting.isEmpty()) {
+                            PendingDeck pending = waiting.poll();
+                            if (buffer.isEmpty()) {
+                                completions.add(() -> pending.future.completeExceptionally(
+                                        new IllegalStateException("No clues available.")));
+                            } else {
+                                List<ClueDTO> deck = take(Math.min(pending.size, buffer.size()));
+                                completions.add(() -> pending.future.complete(deck));
+                            }
+                        }
+                    }
+                }
+                exhausted = added == 0;
+                refill = claimRefill();
+            }
+        }
+        completions.forEach(Runnable::run);
+        if (refill) {
+            refill();
+        }
+    }
+
+    private void dealWaiting(List<Runnable> completions) {
+        while (!waiting.isEmpty() && buffer.size() >= waiting.peek().size) {
+            PendingDeck pending = waiting.poll();
+            List<ClueDTO> deck = take(pending.size);
+            completions.add(() -> pending.future.complete(deck));
+        }
+    }
+
+    private int addUnseen(List<ClueDTO> batch) {
+        int added = 0;
+        for (ClueDTO clue : batch) {
+            if (buffer.size() >= capacity) {
+                break;
+            }
+            if (!seen.contains(clue.getId()) && buffered.add(clue.getId())) {
+                buffer.add(clue);
+                added++;
+            }
+        }
+        return added;
+    }
+
+    private List<ClueDTO> take(int size) {
+        List<ClueDTO> deck = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ClueDTO clue = buffer.poll();
+            buffered.remove(clue.getId());
+            remember(clue.getId());
+            deck.add(clue);
+        }
+        return deck;
+    }
+
+    /**
+     * Records a dealt clue, forgetting the oldest ones so the memory stays bounded.
+     */
+    private void remember(long id) {
+        seen.add(id);
+        if (seen.size() > maxRemembered) {
+            Iterator<Long> oldest = seen.iterator();
+            oldest.next();
+            oldest.remove();
+        }
+    }
+
+    /**
+     * A request for a deck that is waiting on a refill.
+     */
+    private static class PendingDeck {
+        private final int size;
+        private final CompletableFuture<List<ClueDTO>> future = new CompletableFuture<>();
+
+        private PendingDeck(int size) {
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.kenzie.app;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A live leaderboard that any number of games can score into at once.
+ *
+ * Players are kept in a ConcurrentSkipListSet ordered by score (best first), so the top
+ * of the board is always at the front, and a ConcurrentHashMap from player to their
+ * place in the set. Adding points moves a player by taking them out of the set and
+ * putting them back with the new score, inside the map's compute() for that player, so
+ * two updates for the same player never interleave, and updates for different players
+ * never wait on each other.
+ *
+ * For ranks there is also a Fenwick tree (a binary indexed tree) counting how many
+ * players have each score, kept in an AtomicLongArray so updates to it need no lock
+ * either. A player's rank is one more than the number of players with a higher score,
+ * which is a prefix sum over the tree: O(log n) in the highest score, however many
+ * players there are. Players with the same score share a rank (1, 2, 2, 4).
+ *
+ * The one thing that does need a lock is a consistent top-K snapshot, since a player
+ * being moved is briefly missing from the set. Updates share a StampedLock in read mode;
+ * top() takes it in write mode just long enough to copy the first K players. A ranking
+ * read while updates are in flight may be off by those updates, and is exact otherwise.
+ *
+ * @author Ethan Tauriainen
+ */
+public class ConcurrentLeaderboard {
+
+    private static final int INITIAL_SCORES = 1 << 10;
+
+    // Best first; players with the same score in name order.
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong(Entry::getScore).reversed()
+            .thenComparing(Entry::getPlayerId);
+
+    private final ConcurrentSkipListSet<Entry> ranked = new ConcurrentSkipListSet<>(ORDER);
+    private final ConcurrentHashMap<String, Entry> players = new ConcurrentHashMap<>();
+    private final StampedLock lock = new StampedLock();
+    private volatile AtomicLongArray counts = new AtomicLongArray(INITIAL_SCORES + 1);
+
+    /**
+     * Adds points to a player's score, putting them on the board if they aren't yet.
+     *
+     * @param playerId who scored.
+     * @param points how many points. May be negative, but a score can't go below 0.
+     * @return the player's new score.
+     */
+    public long addPoints(String playerId, long points) {
+        while (true) {
+            long[] result = {-1};
+            long stamp = lock.readLock();
+            try {
+                AtomicLongArray tree = counts;
+                players.compute(playerId, (id, old) -> {
+                    long score = (old == null ? 0 : old.score) + points;
+                    if (score < 0) {
+                        throw new IllegalArgumentException(id + " can't have a score of " + score);
+                    }
+                    if (score >= tree.length() - 1) {
+                        return old;     // Doesn't fit in the tree; grow it and try again.
+                    }
+                    Entry entry = new Entry(id, score, 0);
+                    if (old != null) {
+                        ranked.remove(old);
+                        add(tree, old.score, -1);
+                    }
+                    ranked.add(entry);
+                    add(tree, score, 1);
+                    result[0] = score;
+                    return entry;
+                });
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            if (result[0] >= 0) {
+                return result[0];
+            }
+            grow(score(playerId) + points);
+        }
+    }
+
+    /**
+     * Takes a player off the board.
+     *
+     * @return true if they were on it.
+     */
+    public boolean remove(String playerId) {
+        boolean[] removed = {false};
+        long stamp = lock.readLock();
+        try {
+            AtomicLongArray tree = counts;
+            players.computeIfPresent(playerId, (id, old) -> {
+                ranked.remove(old);
+                add(tree, old.score, -1);
+                removed[0] = true;
+                return null;
+            });
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return removed[0];
+    }
+
+    /**
+     * @return the player's score, or 0 if they aren't on the board.
+     */
+    public long score(String playerId) {
+        Entry entry = players.get(playerId);
+        return entry == null ? 0 : entry.score;
+    }
+
+    /**
+     * @return the player's rank, 1 being the best, or 0 if they aren't on the board.
+     */
+    public long rank(String playerId) {
+        Entry entry = players.get(playerId);
+        if (entry == null) {
+            return 0;
+        }
+        AtomicLongArray tree = counts;
+        return 1 + prefixSum(tree, tree.length() - 1) - prefixSum(tree, entry.score + 1);
+    }
+
+    /**
+     * @param k how many players.
+     * @return the k best players with their ranks, best first, all as they stood at one
+     * moment.
+     */
+    public List<Entry> top(int k) {
+        List<Entry> top = new ArrayList<>(Math.min(k, 64));
+        long stamp = lock.writeLock();
+        try {
+            Iterator<Entry> it = ranked.iterator();
+            while (top.size() < k && it.hasNext()) {
+                top.add(it.next());
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        // Ranks are worked out after letting the updates go again.
+        List<Entry> withRanks = new ArrayList<>(top.size());
+        for (int i = 0; i < top.size(); i++) {
+            Entry entry = top.get(i);
+            long rank = i > 0 && top.get(i - 1).score == entry.score ? withRanks.get(i - 1).rank : i + 1;
+            withRanks.add(new Entry(entry.playerId, entry.score, rank));
+        }
+        return withRanks;
+    }
+
+    /**
+     * @return how many players are on the board.
+     */
+    public int size() {
+        return players.size();
+    }
+
+    /**
+     * Makes room in the tree for scores up to at least the given one. Updates are held
+     * off while the tree is rebuilt from the players' scores.
+     */
+    private void grow(long score) {
+        long stamp = lock.writeLock();
+        try {
+            int size = counts.length() - 1;
+            if (score < size) {
+                return;     // Someone else grew it.
+            }
+            while (size <= score) {
+                if (size > Integer.MAX_VALUE / 2) {
+                    throw new IllegalArgumentException("Score too high for the leaderboard: " + score);
+                }
+                size *= 2;
+            }
+            AtomicLongArray tree = new AtomicLongArray(size + 1);
+            for (Entry entry : players.values()) {
+                add(tree, entry.score, 1);
+            }
+            counts = tree;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Adds to the count of players with the score. Fenwick trees count from 1, so score s
+     * lives at index s + 1.
+     */
+    private static void add(AtomicLongArray tree, long score, long delta) {
+        for (int i = (int) score + 1; i < tree.length(); i += i & -i) {
+            tree.getAndAdd(i, delta);
+        }
+    }
+
+    /**
+     * @return how many players have a score below the given index (index - 1 or less).
+     */
+    private static long prefixSum(AtomicLongArray tree, long index) {
+        long sum = 0;
+        for (int i = (int) Math.min(index, tree.length() - 1); i > 0; i -= i & -i) {
+            sum += tree.get(i);
+        }
+        return sum;
+    }
+
+    /**
+     * A player's score and, in a snapshot from top(), their rank.
+     */
+    public static final class Entry {
+        private final String playerId;
+        private final long score;
+        private final long rank;
+
+        private Entry(String playerId, long score, long rank) {
+            this.playerId = playerId;
+            this.score = score;
+            this.rank = rank;
+        }
+
+        public String getPlayerId() {
+            return playerId;
+        }
+
+        public long getScore() {
+            return score;
+        }
+
+        /**
+         * @return 1 for the best score; players with the same score share a rank.
+         */
+        public long getRank() {
+            return rank;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                    "playerId='" + playerId + '\'' +
+                    ", score=" + score +
+                    ", rank=" + rank +
+                    '}';
+        }
+    }
+}
@@ -1,16 +1,46 @@
 package com.kenzie.app;
 
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 /**
  * This class will accomplish two things: 1. it will make a GET request to the
@@ -18,10 +48,184 @@ import java.util.List;
  * resulting HTTP response into a list of Clue Objects and store them in the
  * ClueListDTO.
  *
+ * A single HttpClient is shared by every request. Building a new client per call
+ * means a new selector thread, a new connection pool and a new TLS handshake each
+ * time the user hits 'Start', so the client is created once and reused. It can be
+ * swapped out with configure() if different timeouts or an executor are needed.
+ *
+ * Clue pages can be much larger than the 100 clues in clues.json, so there is also a
+ * streaming path: the body is read as an InputStream and the "clues" array is walked
+ * with a JsonParser one ClueDTO at a time, without ever holding the raw body as a String.
+ * ObjectMapper and ObjectReader are thread-safe once configured, so they are built once.
+ *
+ * The clues themselves are bound by ClueDTOCodec and ClueListDTOCodec, which are generated
+ * from the DTOs' annotations when the project is built, so there is no reflection on the
+ * way from tokens to ClueDTOs. Setting trivia.json.codec=databind (or calling
+ * setCodecMode) goes back to databind, which gives the same clues.
+ *
+ * By default every task runs on a virtual thread, so bulk jobs can simply call the blocking
+ * sendGET from thousands of tasks at once (see sendGETAll) without tying up a platform
+ * thread per request. Setting the system property trivia.http.executor=fixed (with
+ * trivia.http.threads for the pool size) falls back to a fixed pool of platform threads.
+ *
+ * Every request offers to take the body gzip or deflate compressed. Clue JSON repeats
+ * the same field names and category blocks over and over, so it shrinks a lot. The
+ * HttpClient doesn't decompress anything itself, so decode() wraps the body in a
+ * GZIPInputStream or InflaterInputStream as it comes in and the JSON parser reads
+ * straight from that; the compressed body is never held anywhere. Bytes are counted on
+ * both sides of the decompression (see Metrics.getWireBytes and getDecodedBytes).
+ *
  * @author Ethan Tauriainen
  */
 public class CustomHttpClient {
 
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * The encodings decode() understands, best first.
+     */
+    public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    static final String EXECUTOR_PROPERTY = "trivia.http.executor";
+    static final String THREADS_PROPERTY = "trivia.http.threads";
+    static final String CODEC_PROPERTY = "trivia.json.codec";
+
+    /**
+     * Which kind of threads the client's tasks (and bulk fetches) run on.
+     */
+    public enum ExecutorMode {
+        VIRTUAL,
+        FIXED
+    }
+
+    /**
+     * How clues are bound from JSON: by the codecs generated at build time (see JsonCodec),
+     * or by databind, looking the DTOs over by reflection.
+     */
+    public enum CodecMode {
+        GENERATED,
+        DATABIND
+    }
+
+    private static final int DECODE_BUFFER_BYTES = 8192;
+
+    static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    static final ObjectReader CLUE_LIST_READER = OBJECT_MAPPER.readerFor(ClueListDTO.class);
+    static final ObjectReader CLUE_READER = OBJECT_MAPPER.readerFor(ClueDTO.class);
+
+    private static final SingleFlight<String, List<ClueDTO>> CLUE_FETCHES = new SingleFlight<>(ArrayList::new);
+
+    private static volatile HttpClient client;
+    private static volatile Duration connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private static volatile Duration requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+    private static volatile ExecutorService fetchExecutor;
+    private static ExecutorService clientExecutor;     // Only the one configure(ExecutorMode, int) made.
+    private static volatile CodecMode codecMode = modeProperty(CODEC_PROPERTY, CodecMode.class, CodecMode.GENERATED);
+
+    static {
+        configure(modeProperty(EXECUTOR_PROPERTY, ExecutorMode.class, ExecutorMode.VIRTUAL),
+                Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors() * 4));
+    }
+
+    /**
+     * Switches between virtual threads and a fixed pool of platform threads.
+     *
+     * In VIRTUAL mode the HttpClient and bulk fetches share one virtual-thread-per-task
+     * executor. In FIXED mode bulk fetches run on a fixed pool of the given size, while
+     * the HttpClient keeps a cached pool of its own: the streaming parser blocks while it
+     * reads a body, and that must never starve the threads that are delivering it.
+     *
+     * The executors the previous call made are shut down, so switching modes doesn't leave
+     * their threads behind. Tasks already submitted to them still run to the end.
+     *
+     * @param mode the kind of threads to use.
+     * @param threads the pool size for FIXED mode. Ignored for VIRTUAL.
+     */
+    public static synchronized void configure(ExecutorMode mode, int threads) {
+        ExecutorService oldClient = clientExecutor;
+        ExecutorService oldFetch = fetchExecutor;
+        if (mode == ExecutorMode.VIRTUAL) {
+            ExecutorService virtual = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("http-client-", 1).factory());
+            configure(virtual, connectTimeout, requestTimeout);
+            clientExecutor = virtual;
+            fetchExecutor = virtual;
+        } else {
+            clientExecutor = newPlatformExecutor("http-client-", 0);
+            configure(clientExecutor, connectTimeout, requestTimeout);
+            fetchExecutor = newPlatformExecutor("http-fetch-", threads);
+        }
+        if (oldClient != null) {
+            oldClient.shutdown();
+        }
+        if (oldFetch != null) {
+            oldFetch.shutdown();
+        }
+    }
+
+    /**
+     * Replaces the shared HttpClient with one built from the given settings.
+     * Requests already in flight keep using the old client.
+     *
+     * @param executor the executor used for asynchronous tasks of the client.
+     * @param connectTimeout how long to wait for a connection to be established.
+     * @param timeout how long to wait for each response before giving up.
+     */
+    public static synchronized void configure(Executor executor, Duration connectTimeout, Duration timeout) {
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)     // Falls back to HTTP/1.1 if the server can't upgrade.
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(connectTimeout)
+                .executor(executor)
+                .build();
+        CustomHttpClient.connectTimeout = connectTimeout;
+        requestTimeout = timeout;
+    }
+
+    /**
+     * Switches between the generated codecs and databind for binding clues.
+     */
+    public static void setCodecMode(CodecMode mode) {
+        codecMode = mode;
+    }
+
+    public static CodecMode getCodecMode() {
+        return codecMode;
+    }
+
+    /**
+     * @return the shared HttpClient instance.
+     */
+    static HttpClient client() {
+        return client;
+    }
+
+    /**
+     * @return the executor bulk jobs should run their blocking fetches on. Virtual
+     * threads unless configured otherwise.
+     */
+    public static ExecutorService fetchExecutor() {
+        return fetchExecutor;
+    }
+
+    /**
+     * Starts a GET request for JSON at the given URL. Shared by the blocking and
+     * asynchronous methods below so both send the exact same request.
+     *
+     * @param URLString the URL with which the GET request will be made.
+     * @return a request builder with the URI, headers and timeout filled in.
+     * @throws URISyntaxException thrown if the URL provided cannot be parsed.
+     */
+    static HttpRequest.Builder newRequestBuilder(String URLString) throws URISyntaxException {
+        return HttpRequest.newBuilder()
+                .uri(new URI(URLString))
+                .timeout(requestTimeout)
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", ACCEPT_ENCODING)
+                .GET();
+    }
+
     /**
      * Makes a GET request to the API at the given URL.
      * Based on the reading, Calling an HTTP API.
@@ -37,22 +241,163 @@ public class CustomHttpClient {
      */
     public static String sendGET(String URLString) throws URISyntaxException, IOException,
             InterruptedException, ResponseCodeException {
-        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = newRequestBuilder(URLString).build();
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(new URI(URLString))
-                .header("Accept", "application/json")
-                .GET()
-                .build();
+        long start = System.nanoTime();
+        HttpResponse<InputStream> httpResponse;
+        try {
+            httpResponse = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException | InterruptedException e) {
+            Metrics.get().recordFetchError(start);
+            throw e;
+        }
+        Metrics.get().recordFetch(start, httpResponse);
+        try (InputStream body = checkStatusAndDecode(httpResponse)) {
+            return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
 
-        HttpResponse<String> httpResponse = client.send(request, HttpResponse.BodyHandlers.ofString());
-        int status = httpResponse.statusCode();
-        if (status == 200) {
-            return httpResponse.body();
-        } else {
-            // Custom exception I made to handle non '200' response codes.
-            throw new ResponseCodeException("Error: bad response code of " + status + " received.");
+    /**
+     * Same as sendGET, but does not block the calling thread. The returned future
+     * completes with the response body, or completes exceptionally with a
+     * ResponseCodeException (wrapped in a CompletionException) for any response
+     * code other than 200.
+     *
+     * @param URLString the URL with which the GET request will be made.
+     * @return a future holding the JSON response body.
+     * @throws URISyntaxException thrown right away if the URL provided cannot be parsed.
+     */
+    public static CompletableFuture<String> sendGETAsync(String URLString) throws URISyntaxException {
+        HttpRequest request = newRequestBuilder(URLString).build();
+
+        // The whole body is wanted as a String anyway, so it is collected without blocking
+        // a thread and only then decompressed.
+        return recorded(client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()))
+                .thenApply(httpResponse -> {
+                    try (InputStream body = decode(new ByteArrayInputStream(checkStatus(httpResponse)),
+                            httpResponse.headers())) {
+                        return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+                    } catch (ResponseCodeException | IOException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    /**
+     * Makes one blocking sendGET per URL, all at the same time, on the fetch executor.
+     * With virtual threads this is plain blocking code that still scales to thousands of
+     * requests at once.
+     *
+     * @param URLStrings the URLs to fetch.
+     * @return the response bodies, in the same order as the URLs.
+     *
+     * @throws URISyntaxException thrown if one of the URLs cannot be parsed.
+     * @throws IOException general input/output exception.
+     * @throws InterruptedException thrown if the thread is interrupted while waiting.
+     * @throws ResponseCodeException thrown if any response code other than 200 is received.
+     */
+    public static List<String> sendGETAll(List<String> URLStrings) throws URISyntaxException, IOException,
+            InterruptedException, ResponseCodeException {
+        List<Future<String>> futures = new ArrayList<>(URLStrings.size());
+        ExecutorService executor = fetchExecutor;
+        for (String URLString : URLStrings) {
+            futures.add(executor.submit(() -> sendGET(URLString)));
+        }
+        List<String> bodies = new ArrayList<>(URLStrings.size());
+        try {
+            for (Future<String> future : futures) {
+                bodies.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            Throwable cause = e.getCause();
+            if (cause instanceof URISyntaxException) {
+                throw (URISyntaxException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof ResponseCodeException) {
+                throw (ResponseCodeException) cause;
+            } else if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            }
+            throw new IOException(cause);
+        }
+        return bodies;
+    }
+
+    /**
+     * Makes a GET request and hands back the response body as a stream instead of a String.
+     * The stream is already decompressed. The caller is responsible for closing it.
+     *
+     * @param URLString the URL with which the GET request will be made.
+     * @return the unread response body.
+     *
+     * @throws URISyntaxException thrown if the URL provided cannot be parsed.
+     * @throws IOException general input/output exception.
+     * @throws InterruptedException thrown if the connection halts (i.e. the thread is halted).
+     * @throws ResponseCodeException thrown if any response code other than 200 is received.
+     */
+    public static InputStream sendGETStream(String URLString) throws URISyntaxException, IOException,
+            InterruptedException, ResponseCodeException {
+        HttpRequest request = newRequestBuilder(URLString).build();
+
+        long start = System.nanoTime();
+        HttpResponse<InputStream> httpResponse;
+        try {
+            httpResponse = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException | InterruptedException e) {
+            Metrics.get().recordFetchError(start);
+            throw e;
         }
+        Metrics.get().recordFetch(start, httpResponse);     // Up to the headers; the body is still to come.
+        return checkStatusAndDecode(httpResponse);
+    }
+
+    /**
+     * Fetches the clues at the given URL and parses them straight off the wire with the
+     * streaming parser below. This is what the game uses to load its clues.
+     *
+     * Calls for the same URL while one is already on its way share it (see SingleFlight):
+     * one request, one parse, and each caller gets a list of their own to shuffle.
+     * Cancelling the returned future only stops this caller waiting; the request is
+     * aborted once every caller sharing it has cancelled.
+     *
+     * @param URLString the URL with which the GET request will be made.
+     * @return a future holding the parsed clues. Completes exceptionally with a
+     * ResponseCodeException or an IOException (wrapped in a CompletionException) on failure.
+     * @throws URISyntaxException thrown right away if the URL provided cannot be parsed.
+     */
+    public static CompletableFuture<List<ClueDTO>> fetchCluesAsync(String URLString) throws URISyntaxException {
+        HttpRequest request = newRequestBuilder(URLString).build();
+
+        return CLUE_FETCHES.execute(request.uri().normalize().toString(), () -> {
+            CompletableFuture<HttpResponse<InputStream>> response =
+                    client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+            CompletableFuture<List<ClueDTO>> clues = recorded(response)
+                    .thenApply(httpResponse -> {
+                        try (InputStream body = checkStatusAndDecode(httpResponse)) {
+                            return Collections.unmodifiableList(getCluesList(body));
+                        } catch (ResponseCodeException | IOException e) {
+                            throw new CompletionException(e);
+                        }
+                    });
+            clues.whenComplete((list, error) -> {
+                if (clues.isCancelled()) {
+                    response.cancel(true);  // Abort the exchange if it is still going.
+                }
+            });
+            return clues;
+        });
+    }
+
+    /**
+     * @return the coalescing in front of fetchCluesAsync, for seeing how much it saves.
+     */
+    static SingleFlight<String, List<ClueDTO>> clueFetches() {
+        return CLUE_FETCHES;
     }
 
     /**
@@ -66,9 +411,333 @@ public class CustomHttpClient {
      * @throws JsonProcessingException in case the HTTP response cannot be parsed as JSON.
      */
     public static List<ClueDTO> getCluesList(String httpResponseBody) throws JsonProcessingException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        ClueListDTO ClueDTOList = objectMapper.readValue(httpResponseBody, ClueListDTO.class);
-        return ClueDTOList.getClues();
+        long start = System.nanoTime();
+        ClueListDTO ClueDTOList;
+        if (codecMode == CodecMode.DATABIND) {
+            ClueDTOList = CLUE_LIST_READER.readValue(httpResponseBody);
+        } else {
+            try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(httpResponseBody)) {
+                if (parser.nextToken() == null) {
+                    throw new JsonParseException(parser, "No content to read clues from.");
+                }
+                ClueDTOList = ClueListDTOCodec.read(parser);
+            } catch (JsonProcessingException e) {
+                throw e;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);     // Can't happen reading from a String.
+            }
+        }
+        List<ClueDTO> clues = ClueDTOList == null ? null : ClueDTOList.getClues();
+        Metrics.get().recordParse(start, clues == null ? 0 : clues.size());
+        return clues;
+    }
+
+    /**
+     * Streaming version of the method above. Reads the clues from the stream one at a
+     * time and collects them into a list.
+     *
+     * @param body the JSON response from the API. It is not closed by this method.
+     * @return the list of ClueDTO objects found in the "clues" array.
+     * @throws IOException in case the stream cannot be read or parsed as JSON.
+     */
+    public static List<ClueDTO> getCluesList(InputStream body) throws IOException {
+        List<ClueDTO> clues = new ArrayList<>();
+        readClues(body, clues::add);
+        return clues;
+    }
+
+    /**
+     * Walks the "clues" array of the given stream, binding and handing over one ClueDTO
+     * at a time. Only one clue is held in memory at any point, so this works the same
+     * for 100 clues or for 100,000.
+     *
+     * @param body the JSON response from the API. It is not closed by this method.
+     * @param consumer receives each clue, in the order they appear.
+     * @return the number of clues read.
+     * @throws IOException in case the stream cannot be read or parsed as JSON.
+     */
+    public static int readClues(InputStream body, Consumer<? super ClueDTO> consumer) throws IOException {
+        long start = System.nanoTime();
+        int count;
+        try (JsonParser parser = cluesArray(body)) {
+            count = readClueArray(parser, consumer);
+        }
+        // Includes waiting on the network when the stream comes straight off the wire.
+        Metrics.get().recordParse(start, count);
+        return count;
+    }
+
+    /**
+     * Positions a JsonParser at the start of the "clues" array and returns an iterator over
+     * its elements. Closing the iterator closes the parser, but not the stream.
+     *
+     * @param body the JSON response from the API.
+     * @return an iterator that binds each clue lazily, as it is asked for.
+     * @throws IOException in case the stream cannot be read or has no "clues" array.
+     */
+    public static MappingIterator<ClueDTO> iterateClues(InputStream body) throws IOException {
+        JsonParser parser = cluesArray(body);
+        parser.nextToken();     // Step onto the first clue (or the end of the array).
+        return CLUE_READER.readValues(parser);
+    }
+
+    /**
+     * Reads every clue of an array, with the generated codec or databind as configured.
+     *
+     * @param parser on the '[' of the array.
+     * @param consumer receives each clue, in the order they appear.
+     * @return the number of clues read.
+     */
+    static int readClueArray(JsonParser parser, Consumer<? super ClueDTO> consumer) throws IOException {
+        int count = 0;
+        if (codecMode == CodecMode.DATABIND) {
+            parser.nextToken();
+            try (MappingIterator<ClueDTO> iterator = CLUE_READER.readValues(parser)) {
+                while (iterator.hasNextValue()) {
+                    consumer.accept(iterator.nextValue());
+                    count++;
+                }
+            }
+            return count;
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            consumer.accept(ClueDTOCodec.read(parser));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Positions a JsonParser on the '[' of the "clues" array. Closing the parser doesn't
+     * close the stream.
+     */
+    static JsonParser cluesArray(InputStream body) throws IOException {
+        JsonParser parser = OBJECT_MAPPER.getFactory().createParser(body);
+        parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            parser.close();
+            throw new JsonParseException(parser, "Expected a JSON object holding a \"clues\" array.");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("clues".equals(field) && value == JsonToken.START_ARRAY) {
+                return parser;
+            }
+            parser.skipChildren();      // Some other field, skip over it whole.
+        }
+        parser.close();
+        throw new JsonParseException(parser, "No \"clues\" array found in the response.");
+    }
+
+    /**
+     * Undoes the Content-Encoding of a response body while it is being read. Nothing is
+     * read ahead beyond what the decompressor itself needs, so this can sit directly
+     * between the network and the JSON parser. Bytes read are counted in the Metrics, as
+     * they arrived and as they came out.
+     *
+     * @param body the body as it came over the wire. Closing the returned stream closes it.
+     * @param headers the response headers, for Content-Encoding.
+     * @return the decompressed body, or the body itself (counted) if it wasn't compressed.
+     * @throws IOException if the encoding is unknown or the compressed header is broken.
+     */
+    public static InputStream decode(InputStream body, HttpHeaders headers) throws IOException {
+        Metrics metrics = Metrics.get();
+        String encoding = headers.firstValue("Content-Encoding").orElse("identity").trim().toLowerCase(Locale.ROOT);
+        if (encoding.isEmpty() || encoding.equals("identity")) {
+            return new CountingInputStream(body, read -> {
+                metrics.recordWireBytes(read);
+                metrics.recordDecodedBytes(read);
+            });
+        }
+        InputStream in = new CountingInputStream(body, metrics::recordWireBytes);
+        try {
+            // Encodings are listed in the order they were applied, so they come off last first.
+            String[] encodings = encoding.split(",");
+            for (int i = encodings.length - 1; i >= 0; i--) {
+                in = decoder(in, encodings[i].trim());
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new CountingInputStream(in, metrics::recordDecodedBytes);
+    }
+
+    private static InputStream decoder(InputStream in, String encoding) throws IOException {
+        switch (encoding) {
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(in, DECODE_BUFFER_BYTES);
+            case "deflate":
+                return inflate(in);
+            case "identity":
+                return in;
+            default:
+                throw new IOException("Unsupported Content-Encoding: " + encoding);
+        }
+    }
+
+    /**
+     * "deflate" is supposed to be zlib wrapped deflate data, but some servers send the raw
+     * deflate data instead. A zlib header is two bytes that, read as a number, are a
+     * multiple of 31 with deflate (8) as the method, so a peek tells the two apart.
+     */
+    private static InputStream inflate(InputStream in) throws IOException {
+        PushbackInputStream peek = new PushbackInputStream(in, 2);
+        int first = peek.read();
+        int second = first < 0 ? -1 : peek.read();
+        if (second >= 0) {
+            peek.unread(second);
+        }
+        if (first >= 0) {
+            peek.unread(first);
+        }
+        boolean zlib = first >= 0 && second >= 0 && (first & 0x0F) == 8 && ((first << 8) | second) % 31 == 0;
+        Inflater inflater = new Inflater(!zlib);
+        return new InflaterInputStream(peek, inflater, DECODE_BUFFER_BYTES) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();     // Our own Inflater isn't ended by the stream.
+                }
+            }
+        };
+    }
+
+    /**
+     * Records the latency and outcome of an asynchronous request in the Metrics.
+     */
+    static <T> CompletableFuture<HttpResponse<T>> recorded(CompletableFuture<HttpResponse<T>> response) {
+        long start = System.nanoTime();
+        return response.whenComplete((httpResponse, error) -> {
+            if (error != null) {
+                Metrics.get().recordFetchError(start);
+            } else {
+                Metrics.get().recordFetch(start, httpResponse);
+            }
+        });
     }
-}
 
+    /**
+     * Hands back the body of a 200 response, anything else becomes a ResponseCodeException.
+     */
+    private static <T> T checkStatus(HttpResponse<T> httpResponse) throws ResponseCodeException {
+        int status = httpResponse.statusCode();
+        if (status == 200) {
+            return httpResponse.body();
+        } else {
+            // Custom exception I made to handle non '200' response codes.
+            Metrics.get().recordResponseCodeException();
+            throw new ResponseCodeException("Error: bad response code of " + status + " received.");
+        }
+    }
+
+    /**
+     * Like checkStatus, but makes sure the unread body is closed on failure so the
+     * connection is released.
+     */
+    private static InputStream checkStatusAndClose(HttpResponse<InputStream> httpResponse)
+            throws ResponseCodeException, IOException {
+        try {
+            return checkStatus(httpResponse);
+        } catch (ResponseCodeException e) {
+            httpResponse.body().close();
+            throw e;
+        }
+    }
+
+    /**
+     * Like checkStatusAndClose, but hands back the body decompressed.
+     */
+    private static InputStream checkStatusAndDecode(HttpResponse<InputStream> httpResponse)
+            throws ResponseCodeException, IOException {
+        InputStream body = checkStatusAndClose(httpResponse);
+        try {
+            return decode(body, httpResponse.headers());
+        } catch (IOException e) {
+            body.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads an enum from a system property, ignoring case. Anything it doesn't name falls
+     * back to the default with a warning rather than failing the class to load.
+     */
+    static <E extends Enum<E>> E modeProperty(String property, Class<E> type, E fallback) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown " + property + " \"" + value + "\", using " + fallback.name().toLowerCase(Locale.ROOT));
+            return fallback;
+        }
+    }
+
+    /**
+     * A pool of daemon platform threads so that a pending request never keeps the JVM
+     * alive after the window is closed.
+     *
+     * @param prefix the start of each thread's name.
+     * @param threads the pool size, or 0 for a cached pool.
+     */
+    private static ExecutorService newPlatformExecutor(String prefix, int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return threads > 0 ? Executors.newFixedThreadPool(threads, factory) : Executors.newCachedThreadPool(factory);
+    }
+
+    /**
+     * Passes on how many bytes are read through it as they are read.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private final LongConsumer counter;
+
+        private CountingInputStream(InputStream in, LongConsumer counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                counter.accept(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = in.read(buffer, offset, length);
+            if (read > 0) {
+                counter.accept(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            if (skipped > 0) {
+                counter.accept(skipped);
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;   // A reset would count the same bytes twice.
+        }
+    }
+}
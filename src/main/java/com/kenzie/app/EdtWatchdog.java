@@ -0,0 +1,360 @@
+package com.kenzie.app;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Watches the Swing event dispatch thread for stalls, and times what the user waits on.
+ *
+ * Anything that blocks the event dispatch thread freezes the whole window. The watchdog
+ * pushes its own EventQueue in front of the system one, which notes when each event
+ * starts and finishes being dispatched. A separate thread checks a few times per
+ * threshold whether the current event has been running for longer than the threshold,
+ * and if so takes a stack trace of the event dispatch thread right then, while it is
+ * still stuck, which shows what it is stuck on.
+ *
+ * A modal dialog such as JOptionPane runs a loop of its own inside the event that opened
+ * it, dispatching other events while it waits for the user. That is waiting, not a
+ * stall: time spent waiting for events, and in the events dispatched meanwhile, is not
+ * counted against the event that opened the dialog.
+ *
+ * Handlers can also be timed by name with time(), e.g. the Start, Next and Submit
+ * buttons and the timer ticks, each into a LatencyHistogram of its own (with the same
+ * allowance for dialogs). report() sums it all up, and reportAtExit() writes that to a
+ * file when the program exits.
+ *
+ * @author Ethan Tauriainen
+ */
+public class EdtWatchdog implements Closeable {
+
+    public static final Duration DEFAULT_THRESHOLD = Duration.ofMillis(100);
+
+    private static final int MAX_STALLS_KEPT = 50;
+    private static final int MAX_FRAMES_REPORTED = 25;
+    private static EdtWatchdog installed;
+
+    private final long thresholdNanos;
+    private final WatchedQueue queue = new WatchedQueue();
+    private final LatencyHistogram dispatchLatency = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> actions = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedDeque<Stall> stalls = new ConcurrentLinkedDeque<>();
+    private final LongAdder stallCount = new LongAdder();
+    private final Thread watcher;
+    private volatile Stall ongoingStall;
+    private boolean reportAtExit;
+
+    /**
+     * @param threshold how long one event may take before it counts as a stall.
+     */
+    EdtWatchdog(Duration threshold) {
+        this.thresholdNanos = threshold.toNanos();
+        this.watcher = new Thread(this::watch, "edt-watchdog");
+        this.watcher.setDaemon(true);
+    }
+
+    /**
+     * Starts watching the event dispatch thread, with the default threshold. Only one
+     * watchdog is installed per program; later calls return the same one.
+     *
+     * @return the watchdog.
+     */
+    public static synchronized EdtWatchdog install() {
+        if (installed == null) {
+            installed = new EdtWatchdog(DEFAULT_THRESHOLD).start();
+        }
+        return installed;
+    }
+
+    /**
+     * @return where the report goes when none is given: ~/.trivia/edt-report.txt
+     */
+    public static Path defaultReportFile() {
+        return Path.of(System.getProperty("user.home"), ".trivia", "edt-report.txt");
+    }
+
+    /**
+     * Pushes the watching queue and starts the watcher thread.
+     */
+    EdtWatchdog start() {
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(queue);
+        watcher.start();
+        return this;
+    }
+
+    /**
+     * Runs a handler, timing it under the action's name. Meant for the event dispatch
+     * thread; elsewhere the time is simply how long the handler took.
+     *
+     * @param action e.g. "start".
+     * @param handler what the user is waiting on.
+     */
+    public void time(String action, Runnable handler) {
+        boolean onQueue = Thread.currentThread() == queue.dispatchThread;
+        long modalBefore = queue.modalNanos;
+        long start = System.nanoTime();
+        try {
+            handler.run();
+        } finally {
+            long took = System.nanoTime() - start;
+            if (onQueue) {
+                took -= queue.modalNanos - modalBefore;
+            }
+            actions.computeIfAbsent(action, name -> new LatencyHistogram()).record(took);
+        }
+    }
+
+    /**
+     * @return the stalls caught, oldest first. Only the most recent are kept.
+     */
+    public List<Stall> getStalls() {
+        return new ArrayList<>(stalls);
+    }
+
+    /**
+     * @return how many stalls there have been, including ones no longer kept.
+     */
+    public long getStallCount() {
+        return stallCount.sum();
+    }
+
+    /**
+     * @return how long each event took to dispatch.
+     */
+    public LatencyHistogram getDispatchLatency() {
+        return dispatchLatency;
+    }
+
+    /**
+     * @return the timings of an action passed to time(), or null if it never ran.
+     */
+    public LatencyHistogram getActionLatency(String action) {
+        return actions.get(action);
+    }
+
+    /**
+     * @return a plain text summary: event and action timings, then the stalls and where
+     * the event dispatch thread was stuck during each.
+     */
+    public String report() {
+        StringBuilder out = new StringBuilder();
+        out.append("Event dispatch thread report, ").append(Instant.now()).append('\n');
+        out.append(String.format("%-12s %8s %9s %9s %9s %9s%n", "", "count", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        appendRow(out, "(all events)", dispatchLatency.snapshot());
+        for (Map.Entry<String, LatencyHistogram> action : new TreeMap<>(actions).entrySet()) {
+            appendRow(out, action.getKey(), action.getValue().snapshot());
+        }
+        out.append('\n').append(getStallCount()).append(" stalls over ")
+                .append(TimeUnit.NANOSECONDS.toMillis(thresholdNanos)).append(" ms");
+        List<Stall> kept = getStalls();
+        if (kept.size() < getStallCount()) {
+            out.append(" (the last ").append(kept.size()).append(" below)");
+        }
+        out.append('\n');
+        for (Stall stall : kept) {
+            out.append('\n').append(stall.getDetectedAt()).append(": ");
+            long millis = stall.getDurationMillis();
+            out.append(millis < 0 ? "still stuck" : "stuck for " + millis + " ms").append('\n');
+            StackTraceElement[] stack = stall.getStack();
+            for (int i = 0; i < stack.length && i < MAX_FRAMES_REPORTED; i++) {
+                out.append("    at ").append(stack[i]).append('\n');
+            }
+            if (stack.length > MAX_FRAMES_REPORTED) {
+                out.append("    ... ").append(stack.length - MAX_FRAMES_REPORTED).append(" more\n");
+            }
+        }
+        return out.toString();
+    }
+
+    public void writeReport(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.writeString(file, report(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the report to the file when the program exits. Only the first call counts.
+     */
+    public synchronized void reportAtExit(Path file) {
+        if (reportAtExit) {
+            return;
+        }
+        reportAtExit = true;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                writeReport(file);
+            } catch (IOException e) {
+                System.err.println("Couldn't write the event dispatch thread report: " + e.getMessage());
+            }
+        }));
+    }
+
+    /**
+     * Stops watching and takes the watching queue back out.
+     */
+    @Override
+    public void close() {
+        watcher.interrupt();
+        queue.remove();
+    }
+
+    private static void appendRow(StringBuilder out, String name, LatencyHistogram.Snapshot snapshot) {
+        out.append(String.format("%-12s %8d %9.1f %9.1f %9.1f %9.1f%n", name, snapshot.getCount(),
+                snapshot.getPercentileMillis(50), snapshot.getPercentileMillis(90),
+                snapshot.getPercentileMillis(99), snapshot.getMaxNanos() / 1e6));
+    }
+
+    /**
+     * The watcher thread: looks in on the event being dispatched a few times per threshold.
+     */
+    private void watch() {
+        long period = Math.max(TimeUnit.MILLISECONDS.toNanos(5), thresholdNanos / 4);
+        long reported = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(period);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long since = queue.busySince;
+            long dispatch = queue.dispatch;
+            Thread edt = queue.dispatchThread;
+            if (since == 0 || edt == null || dispatch == reported || System.nanoTime() - since < thresholdNanos) {
+                continue;
+            }
+            reported = dispatch;
+            Stall stall = new Stall(dispatch, Instant.now(), edt.getStackTrace());
+            ongoingStall = stall;
+            stallCount.increment();
+            stalls.addLast(stall);
+            while (stalls.size() > MAX_STALLS_KEPT) {
+                stalls.pollFirst();
+            }
+        }
+    }
+
+    /**
+     * Called on the event dispatch thread as each event finishes.
+     */
+    private void dispatched(long dispatch, long busyNanos) {
+        dispatchLatency.record(busyNanos);
+        Stall stall = ongoingStall;
+        if (stall != null && stall.dispatch == dispatch) {
+            stall.durationNanos = busyNanos;
+            ongoingStall = null;
+        }
+    }
+
+    /**
+     * Times every event on its way through. Only the event dispatch thread dispatches, so
+     * the fields it alone writes are plain; the ones the watcher reads are volatile.
+     */
+    private final class WatchedQueue extends EventQueue {
+        private volatile Thread dispatchThread;
+        private volatile long busySince;    // When the current event started, 0 while waiting.
+        private volatile long dispatch;     // Numbers each event, to tell them apart.
+        private volatile long modalNanos;   // Time spent in dialogs' loops, running total.
+        private long dispatched;
+        private int depth;
+
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            dispatchThread = Thread.currentThread();
+            long outer = dispatch;
+            long current = ++dispatched;
+            depth++;
+            long modalBefore = modalNanos;
+            long start = System.nanoTime();
+            dispatch = current;
+            busySince = start;
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                long end = System.nanoTime();
+                long busy = end - start - (modalNanos - modalBefore);
+                dispatched(current, busy);
+                depth--;
+                if (depth > 0) {
+                    modalNanos += busy;     // The outer event is in a dialog's loop.
+                    dispatch = outer;
+                    busySince = end;
+                } else {
+                    busySince = 0;
+                }
+            }
+        }
+
+        @Override
+        public AWTEvent getNextEvent() throws InterruptedException {
+            if (Thread.currentThread() != dispatchThread || depth == 0) {
+                return super.getNextEvent();
+            }
+            // A dialog's loop waiting for the user.
+            busySince = 0;
+            long start = System.nanoTime();
+            try {
+                return super.getNextEvent();
+            } finally {
+                long end = System.nanoTime();
+                modalNanos += end - start;
+                busySince = end;
+            }
+        }
+
+        private void remove() {
+            pop();
+        }
+    }
+
+    /**
+     * One time the event dispatch thread was stuck.
+     */
+    public static final class Stall {
+        private final long dispatch;
+        private final Instant detectedAt;
+        private final StackTraceElement[] stack;
+        private volatile long durationNanos = -1;
+
+        private Stall(long dispatch, Instant detectedAt, StackTraceElement[] stack) {
+            this.dispatch = dispatch;
+            this.detectedAt = detectedAt;
+            this.stack = stack;
+        }
+
+        /**
+         * @return when the watcher noticed, which is at least the threshold after it started.
+         */
+        public Instant getDetectedAt() {
+            return detectedAt;
+        }
+
+        /**
+         * @return the event dispatch thread's stack while it was stuck.
+         */
+        public StackTraceElement[] getStack() {
+            return stack.clone();
+        }
+
+        /**
+         * @return how long the event took in the end, or -1 if it hasn't finished.
+         */
+        public long getDurationMillis() {
+            long nanos = durationNanos;
+            return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+    }
+}
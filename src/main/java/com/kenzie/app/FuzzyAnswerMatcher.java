@@ -0,0 +1,219 @@
+package com.kenzie.app;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An AnswerMatcher that forgives the things that shouldn't cost the user a point.
+ *
+ * Both the clue's answer and the submission are normalized the same way:
+ * HTML entities are decoded and tags (like the &lt;i&gt; around titles) are removed,
+ * accents are folded away (an accented e becomes a plain e), everything is lower-cased, punctuation turns into
+ * spaces, and a leading "what is"/"who was" and a leading article (a, an, the) are dropped.
+ * Parts of the answer in parentheses are treated as optional.
+ *
+ * A submission is then correct if it contains the answer as whole words, or if some run of
+ * its words is within a few typos (Levenshtein distance) of the answer. How many typos are
+ * allowed grows with the length of the answer; short answers must be exact.
+ *
+ * The answer is normalized once in prepare(). The comparison itself doesn't allocate: the
+ * edit distance is computed in place over the submission, only inside a band of width
+ * 2k + 1, and stops as soon as a whole row is over the limit.
+ *
+ * @author Ethan Tauriainen
+ */
+public class FuzzyAnswerMatcher implements AnswerMatcher {
+
+    private static final Pattern TAGS = Pattern.compile("<[^>]*>");
+    private static final Pattern ENTITY = Pattern.compile("&(#\\d+|#x[0-9a-fA-F]+|[a-zA-Z]+);");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern PARENTHESES = Pattern.compile("\\([^)]*\\)");
+    private static final Pattern NOT_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern QUESTION = Pattern.compile("^(what|who|where|when)(s| is| are| was| were)? ");
+    private static final Pattern ARTICLE = Pattern.compile("^(a|an|the) ");
+
+    private static final Map<String, String> ENTITIES = Map.of(
+            "amp", "&", "quot", "\"", "apos", "'", "lt", "<", "gt", ">", "nbsp", " ");
+
+    // Two rows of the edit distance table per thread, grown as needed.
+    private static final ThreadLocal<int[][]> ROWS = ThreadLocal.withInitial(() -> new int[2][32]);
+
+    @Override
+    public PreparedAnswer prepare(String answer) {
+        String normalized = normalize(PARENTHESES.matcher(answer == null ? "" : answer).replaceAll(" "));
+        if (normalized.isEmpty()) {
+            // The whole answer was in parentheses, so it isn't optional after all.
+            normalized = normalize(answer == null ? "" : answer);
+        }
+        return new PreparedAnswer(answer, normalized);
+    }
+
+    @Override
+    public boolean matches(PreparedAnswer answer, String userAnswer) {
+        String expected = answer.getNormalized();
+        String actual = normalize(userAnswer);
+        if (expected.isEmpty() || actual.isEmpty()) {
+            return false;
+        }
+        if (containsWords(actual, expected)) {
+            return true;
+        }
+        int maxEdits = allowedEdits(expected.length());
+        if (maxEdits == 0) {
+            return false;
+        }
+
+        // Slide a window of as many words as the answer has over the submission.
+        int answerWords = countWords(expected);
+        int start = 0;
+        while (start < actual.length()) {
+            int end = start;
+            for (int w = 0; w < answerWords && end < actual.length(); w++) {
+                end = actual.indexOf(' ', end + 1);
+                if (end < 0) {
+                    end = actual.length();
+                }
+            }
+            if (withinDistance(actual, start, end, expected, maxEdits)) {
+                return true;
+            }
+            int nextSpace = actual.indexOf(' ', start);
+            if (nextSpace < 0 || end == actual.length()) {
+                break;
+            }
+            start = nextSpace + 1;
+        }
+        return false;
+    }
+
+    /**
+     * Puts text into the form answers are compared in. See the class comment.
+     *
+     * @param text an answer or a submission.
+     * @return the normalized text: lower case words separated by single spaces.
+     */
+    static String normalize(String text) {
+        String result = decodeEntities(TAGS.matcher(text).replaceAll(" "));
+        result = MARKS.matcher(Normalizer.normalize(result, Normalizer.Form.NFD)).replaceAll("");
+        result = result.replace("\\", "").replace("'", "");    // "it's" and "it\'s" become "its".
+        result = NOT_WORD.matcher(result.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+        result = QUESTION.matcher(result).replaceFirst("");
+        return ARTICLE.matcher(result).replaceFirst("");
+    }
+
+    /**
+     * How many typos an answer of the given length may have.
+     */
+    static int allowedEdits(int length) {
+        if (length <= 3) {
+            return 0;
+        } else if (length <= 6) {
+            return 1;
+        } else if (length <= 12) {
+            return 2;
+        }
+        return Math.min(4, length / 5);
+    }
+
+    /**
+     * Bounded Levenshtein distance between text[from, to) and target.
+     *
+     * @return true if the distance is at most maxEdits.
+     */
+    static boolean withinDistance(String text, int from, int to, String target, int maxEdits) {
+        int n = to - from;
+        int m = target.length();
+        if (Math.abs(n - m) > maxEdits) {
+            return false;
+        }
+        int over = maxEdits + 1;
+        int[][] rows = ROWS.get();
+        if (rows[0].length < m + 2) {
+            rows[0] = new int[m + 2];
+            rows[1] = new int[m + 2];
+        }
+        int[] previous = rows[0];
+        int[] current = rows[1];
+        for (int j = 0; j <= Math.min(m, maxEdits); j++) {
+            previous[j] = j;
+        }
+        if (maxEdits < m) {
+            previous[maxEdits + 1] = over;
+        }
+
+        for (int i = 1; i <= n; i++) {
+            int low = Math.max(1, i - maxEdits);
+            int high = Math.min(m, i + maxEdits);
+            current[low - 1] = low == 1 ? Math.min(i, over) : over;
+            int rowMin = current[low - 1];
+            char c = text.charAt(from + i - 1);
+            for (int j = low; j <= high; j++) {
+                int cost = c == target.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+                current[j] = Math.min(value, over);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (high < m) {
+                current[high + 1] = over;
+            }
+            if (rowMin > maxEdits) {
+                return false;   // Every path through this row is already over the limit.
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[m] <= maxEdits;
+    }
+
+    private static boolean containsWords(String text, String words) {
+        int index = text.indexOf(words);
+        while (index >= 0) {
+            int end = index + words.length();
+            if ((index == 0 || text.charAt(index - 1) == ' ') && (end == text.length() || text.charAt(end) == ' ')) {
+                return true;
+            }
+            index = text.indexOf(words, index + 1);
+        }
+        return false;
+    }
+
+    private static int countWords(String text) {
+        int words = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == ' ') {
+                words++;
+            }
+        }
+        return words;
+    }
+
+    private static String decodeEntities(String text) {
+        if (text.indexOf('&') < 0) {
+            return text;
+        }
+        Matcher matcher = ENTITY.matcher(text);
+        StringBuilder decoded = new StringBuilder(text.length());
+        while (matcher.find()) {
+            String entity = matcher.group(1);
+            String replacement = matcher.group();
+            try {
+                if (entity.startsWith("#x")) {
+                    replacement = new String(Character.toChars(Integer.parseInt(entity.substring(2), 16)));
+                } else if (entity.startsWith("#")) {
+                    replacement = new String(Character.toChars(Integer.parseInt(entity.substring(1))));
+                } else {
+                    replacement = ENTITIES.getOrDefault(entity.toLowerCase(Locale.ROOT), replacement);
+                }
+            } catch (IllegalArgumentException e) {
+                // Not a real character, leave it as it was.
+            }
+            matcher.appendReplacement(decoded, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(decoded);
+        return decoded.toString();
+    }
+}
@@ -0,0 +1,230 @@
+package com.kenzie.app;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Hosts any number of GameSessions at once, independent of any user interface.
+ *
+ * The engine deals each new game a deck from its deck source (normally a ClueSupplier,
+ * or a ClueSampler that knows who is playing so it can avoid clues they've seen), prepares the answers once, and keeps the session under a random id so that a client,
+ * whether the Swing GameFrame or a remote player, can find it again. Sessions share
+ * nothing but the engine's map, so thousands of them can be played side by side.
+ *
+ * Question deadlines are kept on a shared TimingWheel rather than a timer per game, and
+ * the engine tells its timeout listeners about every question that runs out of time.
+ * Games started for a player score on the engine's ConcurrentLeaderboard, if it has one.
+ *
+ * @author Ethan Tauriainen
+ */
+public class GameEngine {
+
+    public static final int DEFAULT_QUESTIONS_PER_GAME = 10;
+    public static final Duration DEFAULT_TIME_LIMIT = Duration.ofSeconds(45);
+
+    private final BiFunction<String, Integer, CompletableFuture<List<ClueDTO>>> deckSource;
+    private final AnswerMatcher matcher;
+    private final int questionsPerGame;
+    private final Duration timeLimit;
+    private final LongSupplier nanoClock;
+    private final TimingWheel wheel;
+    private final ConcurrentHashMap<String, GameSession> sessions = new ConcurrentHashMap<>();
+    private final List<Consumer<GameSession>> timeoutListeners = new CopyOnWriteArrayList<>();
+    private volatile ClueStats stats;
+    private volatile ConcurrentLeaderboard leaderboard;
+
+    /**
+     * @param deckSource deals the clues for a game of the given size, e.g. ClueSupplier::nextDeck.
+     * @param matcher grades the answers.
+     * @param questionsPerGame how many questions each game asks.
+     * @param timeLimit how long the player has for each question.
+     */
+    public GameEngine(IntFunction<CompletableFuture<List<ClueDTO>>> deckSource, AnswerMatcher matcher,
+                      int questionsPerGame, Duration timeLimit) {
+        this(deckSource, matcher, questionsPerGame, timeLimit, TimingWheel.shared());
+    }
+
+    /**
+     * @param wheel keeps the question deadlines.
+     */
+    public GameEngine(IntFunction<CompletableFuture<List<ClueDTO>>> deckSource, AnswerMatcher matcher,
+                      int questionsPerGame, Duration timeLimit, TimingWheel wheel) {
+        this(anyPlayer(deckSource), matcher, questionsPerGame, timeLimit, System::nanoTime, wheel);
+    }
+
+    /**
+     * @param deckSource deals the clues for a game of the given size to the given player
+     *                   (null if nobody in particular), e.g. ClueSampler.deckSource().
+     */
+    public GameEngine(BiFunction<String, Integer, CompletableFuture<List<ClueDTO>>> deckSource,
+                      AnswerMatcher matcher, int questionsPerGame, Duration timeLimit) {
+        this(deckSource, matcher, questionsPerGame, timeLimit, System::nanoTime, TimingWheel.shared());
+    }
+
+    /**
+     * For tests that control the clock. Without a wheel, deadlines are only noticed when
+     * a session is touched.
+     */
+    GameEngine(IntFunction<CompletableFuture<List<ClueDTO>>> deckSource, AnswerMatcher matcher,
+               int questionsPerGame, Duration timeLimit, LongSupplier nanoClock) {
+        this(anyPlayer(deckSource), matcher, questionsPerGame, timeLimit, nanoClock, null);
+    }
+
+    private GameEngine(BiFunction<String, Integer, CompletableFuture<List<ClueDTO>>> deckSource,
+                       AnswerMatcher matcher, int questionsPerGame, Duration timeLimit, LongSupplier nanoClock,
+                       TimingWheel wheel) {
+        this.deckSource = deckSource;
+        this.matcher = matcher;
+        this.questionsPerGame = questionsPerGame;
+        this.timeLimit = timeLimit;
+        this.nanoClock = nanoClock;
+        this.wheel = wheel;
+    }
+
+    private static BiFunction<String, Integer, CompletableFuture<List<ClueDTO>>> anyPlayer(
+            IntFunction<CompletableFuture<List<ClueDTO>>> deckSource) {
+        return (playerId, count) -> deckSource.apply(count);
+    }
+
+    /**
+     * Adds a listener to be told about every question that times out, in any session.
+     * Listeners are called on whichever thread noticed the timeout (normally the wheel's
+     * callback thread) once it has let go of the session's lock. They should still be
+     * quick and hand anything slow off to another thread.
+     *
+     * @param listener receives the session whose question timed out.
+     */
+    public void addTimeoutListener(Consumer<GameSession> listener) {
+        timeoutListeners.add(listener);
+    }
+
+    /**
+     * @param stats where games started from now on record how each question went, or
+     *              null to stop recording.
+     */
+    public void setStats(ClueStats stats) {
+        this.stats = stats;
+    }
+
+    public ClueStats getStats() {
+        return stats;
+    }
+
+    /**
+     * @param leaderboard where players' games started from now on score, or null for none.
+     */
+    public void setLeaderboard(ConcurrentLeaderboard leaderboard) {
+        this.leaderboard = leaderboard;
+    }
+
+    public ConcurrentLeaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    /**
+     * Starts a new game. The future completes once the deck has been dealt, which is
+     * right away when the deck source has clues buffered.
+     *
+     * @return a future holding the new session, already asking its first question.
+     */
+    public CompletableFuture<GameSession> startGame() {
+        return startGame(null);
+    }
+
+    /**
+     * Starts a new game for a player, whose correct answers score on the leaderboard.
+     *
+     * @param playerId who is playing, or null if nobody in particular.
+     * @return a future holding the new session, already asking its first question.
+     */
+    public CompletableFuture<GameSession> startGame(String playerId) {
+        ConcurrentLeaderboard board = leaderboard;
+        return deckSource.apply(playerId, questionsPerGame).thenApply(clues -> {
+            GameSession session = new GameSession(UUID.randomUUID().toString(), ClueDeck.of(clues, matcher),
+                    matcher, timeLimit, nanoClock, wheel, this::questionTimedOut, stats, playerId, board);
+            sessions.put(session.getId(), session);
+            return session;
+        });
+    }
+
+    /**
+     * @param sessionId the id of a session started by this engine.
+     * @return the session, or null if there is no such session (or it has ended).
+     */
+    public GameSession getSession(String sessionId) {
+        return sessionId == null ? null : sessions.get(sessionId);
+    }
+
+    /**
+     * Ends a session and forgets it.
+     *
+     * @param sessionId the id of the session to end.
+     * @return the session that was ended, or null if there was none.
+     */
+    public GameSession endGame(String sessionId) {
+        GameSession session = sessions.remove(sessionId);
+        if (session != null) {
+            session.finish();
+        }
+        return session;
+    }
+
+    /**
+     * Forgets every session whose game is over.
+     *
+     * @return how many sessions were removed.
+     */
+    public int removeFinishedGames() {
+        int before = sessions.size();
+        sessions.values().removeIf(session -> session.getState() == GameState.FINISHED);
+        return before - sessions.size();
+    }
+
+    /**
+     * Ends every session the player has walked away from.
+     *
+     * @param idle how long a session may go untouched.
+     * @return how many sessions were removed.
+     */
+    public int removeIdleGames(Duration idle) {
+        int before = sessions.size();
+        long limit = idle.toNanos();
+        sessions.values().removeIf(session -> {
+            if (session.idleNanos() < limit) {
+                return false;
+            }
+            session.finish();
+            return true;
+        });
+        return before - sessions.size();
+    }
+
+    /**
+     * @return the number of sessions currently hosted.
+     */
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    public Duration getTimeLimit() {
+        return timeLimit;
+    }
+
+    private void questionTimedOut(GameSession session) {
+        for (Consumer<GameSession> listener : timeoutListeners) {
+            try {
+                listener.accept(session);
+            } catch (RuntimeException e) {
+                System.err.println("A timeout listener failed: " + e);
+            }
+        }
+    }
+}
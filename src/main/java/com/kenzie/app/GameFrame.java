@@ -4,8 +4,11 @@ import javax.swing.*;
 import java.awt.*;
 import java.io.IOException;
 import java.net.URISyntaxException;
-import java.util.Collections;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Represents a GUI frame that will display according to the operating
@@ -20,9 +23,23 @@ import java.util.List;
  */
 public class GameFrame extends JFrame {
 
-    private List<ClueDTO> clues;
-    private int currentIndex = 0;   // Keeping track, so only 10 questions are asked.
-    private int score = 0;
+    static final String CLUES_URL = "https://jservice.kenzie.academy/api/clues";
+
+    // Keeps the clues on disk so only the first game has to wait on the download.
+    private final ClueCache clueCache = new ClueCache();
+    // Keeps the next game's clues ready in the background.
+    private final ClueSupplier clueSupplier = new ClueSupplier(this::loadClues, 100, 30);
+
+    // The rules of the game live in the engine and the session it hands out. This
+    // frame only displays the session and passes the button clicks on to it.
+    // Answers are graded with the FuzzyAnswerMatcher.
+    private final GameEngine engine = new GameEngine(clueSupplier::nextDeck, AnswerMatcher.fuzzy(),
+            GameEngine.DEFAULT_QUESTIONS_PER_GAME, GameEngine.DEFAULT_TIME_LIMIT);
+    private volatile GameSession session;  // Also ended by the shutdown hook.
+    private int previousGamesScore = 0;     // The scoreboard keeps counting across games.
+    // Every finished game is kept on disk, under the name the user logged in with.
+    private final String playerId = System.getProperty("user.name", "player");
+    private GameResultLog resultLog;
 
     private JTextField scoreBoardField;
     private JTextField colorCodeField;
@@ -34,18 +51,16 @@ public class GameFrame extends JFrame {
     private JButton nextButton;
     private JButton submitButton;
 
-    // The following defines a timer object.
-    // It will be used to update the timerField and control
-    // the pace of play. The user will have 45 seconds to answer
-    // each question.
-    //
-    // I learned how to use this object here:
-    // https://docs.oracle.com/javase/tutorial/uiswing/misc/timer.html
-    // And here:
-    // Swing: A Beginner's Guide by Herbert Schildt.
-    // See Module 10: Threading, Applets, Painting, and Layouts.
-    private Timer timer;
-    private int time;
+    // The following refreshes the timerField once a second while a
+    // question is open. The session keeps track of the deadline itself
+    // (on the same shared TimingWheel); the user will have 45 seconds
+    // to answer each question. One wheel thread keeps every game's
+    // clock, instead of a Swing Timer per game.
+    private TimingWheel.Timeout displayTicker;
+
+    // Times the button handlers and timer ticks, and catches the event dispatch thread
+    // when it freezes. The report is written to ~/.trivia/edt-report.txt at exit.
+    private final EdtWatchdog watchdog = EdtWatchdog.install();
 
     /**
      * The constructor for the GameFrame class.
@@ -54,6 +69,72 @@ public class GameFrame extends JFrame {
      */
     public GameFrame() {
         initComponents();
+        watchdog.reportAtExit(EdtWatchdog.defaultReportFile());
+        // The wheel thread notices when time is up; the dialog has to be shown on the
+        // event dispatch thread, and only if the user hasn't moved on in the meantime.
+        engine.addTimeoutListener(expired -> SwingUtilities.invokeLater(() -> {
+            if (expired == session && session.getState() == GameState.TIMED_OUT) {
+                watchdog.time("timeout", this::showTimedOut);
+            }
+        }));
+        recordStats();
+        recordResults();
+        clueSupplier.prefetch();    // Get the first game's clues coming before 'Start' is even clicked.
+    }
+
+    /**
+     * Has the engine record how every question goes, so the game learns which clues
+     * are hard. What was learned is saved to disk every minute and when the game exits.
+     */
+    private void recordStats() {
+        Path file = ClueStats.defaultFile();
+        ClueStats stats = ClueStats.loadOrStartOver(file);
+        engine.setStats(stats);
+        stats.startSnapshots(file, Duration.ofMinutes(1), null);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                stats.save(file);
+            } catch (IOException e) {
+                System.err.println("Couldn't save the clue stats: " + e.getMessage());
+            }
+        }));
+    }
+
+    /**
+     * Opens the log that every finished game is written to, so the scores don't vanish
+     * when the window closes. The game can still be played if it can't be opened.
+     */
+    private void recordResults() {
+        try {
+            resultLog = GameResultLog.open(GameResultLog.defaultDirectory());
+        } catch (IOException e) {
+            System.err.println("Not keeping game results: " + e.getMessage());
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            endSession();
+            try {
+                resultLog.close();
+            } catch (IOException e) {
+                System.err.println("Couldn't close the game results: " + e.getMessage());
+            }
+        }));
+    }
+
+    /**
+     * Ends the current game, if there is one, and writes its result to the log.
+     */
+    private void endSession() {
+        GameSession ended = session;
+        if (ended == null || engine.endGame(ended.getId()) == null) {
+            return;     // Already ended.
+        }
+        if (resultLog != null) {
+            resultLog.append(ended.result(playerId)).exceptionally(error -> {
+                System.err.println("Couldn't save the game result: " + error.getMessage());
+                return null;
+            });
+        }
     }
 
     /**
@@ -88,7 +169,7 @@ public class GameFrame extends JFrame {
         scoreBoardField.setBackground(Color.WHITE);
         colorCodeField = new JTextField(30);
         colorCodeField.setBackground(Color.WHITE);
-        timerField = new JTextField(String.valueOf(time), 30);
+        timerField = new JTextField("0", 30);
         timerField.setBackground(Color.BLACK);
         timerField.setForeground(Color.GREEN);
         answerField = new JTextField("", 30);
@@ -131,12 +212,9 @@ public class GameFrame extends JFrame {
         // Setting up the event handlers to link a function to the buttons.
         // Using a lambda expression to keep everything nice and tight.
         // Upon each button click, the corresponding function will be invoked.
-        startButton.addActionListener(e -> startButtonClicked());
-        nextButton.addActionListener(e -> nextButtonClicked());
-        submitButton.addActionListener(e -> submitButtonClicked());
-
-        // The following sets up the action listener for the timer:
-        timer = new Timer(1000, e -> updateTimerField());
+        startButton.addActionListener(e -> watchdog.time("start", this::startButtonClicked));
+        nextButton.addActionListener(e -> watchdog.time("next", this::nextButtonClicked));
+        submitButton.addActionListener(e -> watchdog.time("submit", this::submitButtonClicked));
 
         // Below there are two panels. A button panel and a main panel.
         // This helps me to better organize the components in the form.
@@ -217,90 +295,152 @@ public class GameFrame extends JFrame {
      * dialogue box will appear containing instructions to move on,
      * as well as the correct answer to the missed question.
      *
-     * This method will 'fire' every second as indicated when I
-     * constructed the Timer object above.
+     * This method will 'fire' every second while the display ticker
+     * is running. The time left comes from the session, which is what
+     * actually decides when time is up.
      */
     private void updateTimerField() {
-        if (time == 0) {
-            timer.stop();
-            submitButton.setEnabled(false);
-            String msg = "Oh no! You ran out of time.\n" +
-                    "Hit 'Next' to continue.\n" +
-                    "If it's the end of your game, hit 'Start' to play again!\n" +
-                    "The correct answer was: " + clues.get(currentIndex).getAnswer() + ".\n";
-            JOptionPane.showMessageDialog(this, msg, "Time Infraction", JOptionPane.WARNING_MESSAGE);
-        }
+        int time = session.secondsRemaining();
         if (time > 10) {
             timerField.setForeground(Color.GREEN);
         } else {
             timerField.setForeground(Color.RED);
         }
         timerField.setText(String.valueOf(time));
-        time--;
+    }
+
+    /**
+     * Starts refreshing the timerField once a second. The ticks come from the
+     * shared TimingWheel's callback thread and are handed to the event dispatch thread.
+     */
+    private void startTicking() {
+        stopTicking();
+        updateTimerField();
+        displayTicker = TimingWheel.shared().scheduleRepeating(Duration.ofSeconds(1),
+                () -> SwingUtilities.invokeLater(() -> watchdog.time("tick", this::updateTimerField)));
+    }
+
+    private void stopTicking() {
+        if (displayTicker != null) {
+            displayTicker.cancel();
+            displayTicker = null;
+        }
+    }
+
+    /**
+     * Lets the user know the question's time ran out.
+     */
+    private void showTimedOut() {
+        stopTicking();
+        timerField.setText("0");
+        submitButton.setEnabled(false);
+        String msg = "Oh no! You ran out of time.\n" +
+                "Hit 'Next' to continue.\n" +
+                "If it's the end of your game, hit 'Start' to play again!\n" +
+                "The correct answer was: " + session.currentClue().getAnswer() + ".\n";
+        JOptionPane.showMessageDialog(this, msg, "Time Infraction", JOptionPane.WARNING_MESSAGE);
     }
 
     /**
      * Simple method to extract the category title and the question
-     * from the ClueDTO at the currentIndex.
+     * from the session's current clue.
      *
      * @return a string containing the category title and question from
-     * the ClueDTO at currentIndex.
+     * the current clue.
      */
     private String displayQuestion() {
+        ClueDTO clue = session.currentClue();
         return "Category: " +
-                clues.get(currentIndex).getCategory().getTitle() +
+                clue.getCategory().getTitle() +
                 "\n" +
                 "Question: " +
-                clues.get(currentIndex).getQuestion();
+                clue.getQuestion();
     }
 
     /**
-     * When the start button is clicked this method runs. It makes the GET request and
-     * populates the clues list with the clues to be used in the game. Then it
-     * shuffles the list (ensures the randomization of the questions). After it completes
-     * those tasks it enables the functionality of the other two buttons and disables itself.
-     * This button may only be used once per game.
+     * When the start button is clicked this method runs. It asks the engine for a new
+     * game, which is dealt from the ClueSupplier that has been loading and shuffling clues
+     * in the background. After it completes those tasks it enables the functionality of
+     * the other two buttons and disables itself. This button may only be used once per game.
+     *
+     * Normally the deck is already buffered and the game starts right away. Only if the
+     * supplier is still waiting on its first batch (or the buffer ran dry) does the game
+     * start later, and then the rest of the work is handed back to the event dispatch
+     * thread, so it is never blocked on the network.
      */
     private void startButtonClicked() {
+        startButton.setEnabled(false);  // Served its purpose.
+        if (session != null) {
+            previousGamesScore += session.getScore();
+            endSession();
+        }
+        engine.startGame(playerId)
+                .whenComplete((newSession, error) -> SwingUtilities.invokeLater(() -> {
+                    if (error != null) {
+                        showErrorAndExit(error instanceof CompletionException ? error.getCause() : error);
+                        return;
+                    }
+                    session = newSession;
+                    beginGame();
+                }));
+    }
+
+    /**
+     * Where the ClueSupplier gets its clues from. The ClueCache only goes to the network
+     * when its copy on disk is out of date.
+     *
+     * @return a future holding a batch of clues.
+     */
+    private CompletableFuture<List<ClueDTO>> loadClues() {
         try {
-            String responseBody = CustomHttpClient.sendGET("https://jservice.kenzie.academy/api/clues");
-            clues = CustomHttpClient.getCluesList(responseBody);    // Populate the clues list with clues.
-            Collections.shuffle(clues);     // Randomize the list of clues.
-            questionArea.setText(displayQuestion());
-            colorCodeField.setText("");
-            colorCodeField.setBackground(Color.WHITE);
-            startButton.setEnabled(false);  // Served its purpose.
-            nextButton.setEnabled(true);    // Now we need this functionality.
-            submitButton.setEnabled(true);  // Same.
-            time = 45;
-            timer.start();
-        } catch (URISyntaxException | IOException | InterruptedException | ResponseCodeException e) {
-            // In the case of an error, display a dialogue box:
-            JOptionPane.showMessageDialog(this, e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            System.exit(0); // Exit gracefully.
+            return clueCache.getCluesAsync(CLUES_URL);
+        } catch (URISyntaxException e) {
+            return CompletableFuture.failedFuture(e);
         }
     }
 
     /**
-     * Sets the questionArea with the next question and increments the currentIndex
-     * variable. If ten questions have been asked, it disables itself. I decided to
-     * allow the user to click next and get a new question whether or not an answer
-     * was provided. This can serve as a "skip" as it were. Though, points will not
-     * be awarded and the user may not return to a skipped question.
+     * Shows the first question of a new session. Must be run on the
+     * event dispatch thread.
+     */
+    private void beginGame() {
+        questionArea.setText(displayQuestion());
+        colorCodeField.setText("");
+        colorCodeField.setBackground(Color.WHITE);
+        nextButton.setEnabled(!session.isLastQuestion());    // Now we need this functionality.
+        startButton.setEnabled(session.isLastQuestion());
+        submitButton.setEnabled(true);  // Same.
+        startTicking();
+    }
+
+    /**
+     * In the case of an error, display a dialogue box and exit gracefully.
+     *
+     * @param e the error that stopped the clues from loading.
+     */
+    private void showErrorAndExit(Throwable e) {
+        JOptionPane.showMessageDialog(this, e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        System.exit(0); // Exit gracefully.
+    }
+
+    /**
+     * Sets the questionArea with the next question. On the last question it disables
+     * itself. I decided to allow the user to click next and get a new question whether
+     * or not an answer was provided. This can serve as a "skip" as it were. Though,
+     * points will not be awarded and the user may not return to a skipped question.
      */
     private void nextButtonClicked() {
-        time = 45;
         colorCodeField.setText("");
         colorCodeField.setBackground(Color.WHITE);
         answerField.setText("");
-        if (currentIndex == 9) {
+        session.next();
+        if (session.isLastQuestion()) {
             nextButton.setEnabled(false);
             startButton.setEnabled(true);   // To start another game.
         }
-        timer.start();
-        currentIndex++;
         questionArea.setText(displayQuestion());
         submitButton.setEnabled(true);
+        startTicking();
     }
 
     private void submitButtonClicked() {
@@ -315,28 +455,32 @@ public class GameFrame extends JFrame {
             return;
         }
 
-        // Create an answer variable from the user entered text.
-        // Trim excess whitespace, set it to lower case for even comparison.
-        String userAnswer = answerField.getText().toLowerCase().trim();
-
-        // Make the comparison between what the user entered and the actual answer.
-        // If the user's answer 'contains' the correct answer, the answer will be
-        // counted as correct. This will allow for the user to type in variations of
-        // the answer (i.e. what is a book, or who is Isiah, etc.). Or simply Isiah.
-        // Either way, it will be correct. Also, if the answer is correct, then the user
-        // can no longer submit an answer. However, if the answer is incorrect, the user
-        // can guess again until time runs out.
-        String realAnswer = clues.get(currentIndex).getAnswer().toLowerCase().trim();
-        if (userAnswer.contains(realAnswer)) {
-            score++;
-            scoreBoardField.setText(String.valueOf(score));
-            colorCodeField.setText("CORRECT!");
-            colorCodeField.setBackground(Color.GREEN);
-            submitButton.setEnabled(false);
-            timer.stop();
-        } else {
-            colorCodeField.setText("WRONG!");
-            colorCodeField.setBackground(Color.RED);
+        // Hand what the user entered to the session, which compares it with the actual
+        // answer. The answer matcher ignores case, accents, markup, a leading "what is" or
+        // "who is" and articles, so the user can type in variations of the answer
+        // (i.e. what is a book, or who is Isiah, etc.). Or simply Isiah. Small typos
+        // are forgiven too, the longer the answer the more of them. Either way, it will
+        // be correct. Also, if the answer is correct, then the user can no longer submit
+        // an answer. However, if the answer is incorrect, the user can guess again until
+        // time runs out.
+        switch (session.submit(answerField.getText())) {
+            case CORRECT:
+                scoreBoardField.setText(String.valueOf(previousGamesScore + session.getScore()));
+                colorCodeField.setText("CORRECT!");
+                colorCodeField.setBackground(Color.GREEN);
+                submitButton.setEnabled(false);
+                stopTicking();
+                break;
+            case WRONG:
+                colorCodeField.setText("WRONG!");
+                colorCodeField.setBackground(Color.RED);
+                break;
+            case TIMED_OUT:
+                // The timeout listener has already told the user.
+                break;
+            default:
+                submitButton.setEnabled(false);
+                break;
         }
     }
 }
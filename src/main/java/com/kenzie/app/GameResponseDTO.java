@@ -0,0 +1,111 @@
+package com.kenzie.app;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Represents a game as the GameServer sends it to a remote player.
+ * Built from a GameSnapshot and the ClueDTO being played.
+ *
+ * The answer is only filled in once the question is over, so it can't be
+ * read off the response while the question is still being asked.
+ *
+ * @author Ethan Tauriainen
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"sessionId", "state", "result", "questionNumber", "questionCount", "category",
+        "question", "value", "secondsRemaining", "score", "answer"})
+public class GameResponseDTO {
+
+    @JsonProperty("sessionId")
+    private String sessionId;
+    @JsonProperty("state")
+    private GameState state;
+    @JsonProperty("result")
+    private SubmitResult result;
+    @JsonProperty("questionNumber")
+    private int questionNumber;
+    @JsonProperty("questionCount")
+    private int questionCount;
+    @JsonProperty("category")
+    private String category;
+    @JsonProperty("question")
+    private String question;
+    @JsonProperty("value")
+    private long value;
+    @JsonProperty("secondsRemaining")
+    private int secondsRemaining;
+    @JsonProperty("score")
+    private int score;
+    @JsonProperty("answer")
+    private String answer;
+
+    /**
+     * @param snapshot where the game stands.
+     * @param result the outcome of a submission, or null if this isn't a response to one.
+     * @return a new response.
+     */
+    public static GameResponseDTO of(GameSnapshot snapshot, SubmitResult result) {
+        GameResponseDTO response = new GameResponseDTO();
+        ClueDTO clue = snapshot.getClue();
+        response.sessionId = snapshot.getSessionId();
+        response.state = snapshot.getState();
+        response.result = result;
+        response.questionNumber = snapshot.getIndex() + 1;
+        response.questionCount = snapshot.getQuestionCount();
+        response.category = clue.getCategory() != null ? clue.getCategory().getTitle() : null;
+        response.question = clue.getQuestion();
+        response.value = clue.getValue();
+        response.secondsRemaining = snapshot.getSecondsRemaining();
+        response.score = snapshot.getScore();
+        if (snapshot.getState() != GameState.ASKING) {
+            response.answer = clue.getAnswer();
+        }
+        return response;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public GameState getState() {
+        return state;
+    }
+
+    public SubmitResult getResult() {
+        return result;
+    }
+
+    public int getQuestionNumber() {
+        return questionNumber;
+    }
+
+    public int getQuestionCount() {
+        return questionCount;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getQuestion() {
+        return question;
+    }
+
+    public long getValue() {
+        return value;
+    }
+
+    public int getSecondsRemaining() {
+        return secondsRemaining;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public String getAnswer() {
+        return answer;
+    }
+}
@@ -0,0 +1,124 @@
+package com.kenzie.app;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * How one finished game went: who played it, when it ended, the score, and for every
+ * question the clue, whether it was answered correctly and how long that took.
+ *
+ * This is what the GameResultLog writes to disk and reads back. It never changes once
+ * made, so it is safe to share between threads.
+ *
+ * @author Ethan Tauriainen
+ */
+public final class GameResult {
+
+    private final String playerId;
+    private final long finishedAtMillis;
+    private final int score;
+    private final long[] clueIds;
+    private final boolean[] correct;
+    private final int[] answerMillis;
+
+    /**
+     * @param playerId who played.
+     * @param finishedAtMillis when the game ended, in milliseconds since the epoch.
+     * @param score the final score.
+     * @param clueIds the clues asked, in order.
+     * @param correct which of them were answered correctly.
+     * @param answerMillis how long each correct answer took, -1 for the others.
+     */
+    public GameResult(String playerId, long finishedAtMillis, int score, long[] clueIds, boolean[] correct,
+                      int[] answerMillis) {
+        if (clueIds.length != correct.length || clueIds.length != answerMillis.length) {
+            throw new IllegalArgumentException("Every question needs a clue id, an outcome and a time");
+        }
+        this.playerId = playerId;
+        this.finishedAtMillis = finishedAtMillis;
+        this.score = score;
+        this.clueIds = clueIds.clone();
+        this.correct = correct.clone();
+        this.answerMillis = answerMillis.clone();
+    }
+
+    public String getPlayerId() {
+        return playerId;
+    }
+
+    public Instant getFinishedAt() {
+        return Instant.ofEpochMilli(finishedAtMillis);
+    }
+
+    public long getFinishedAtMillis() {
+        return finishedAtMillis;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getQuestionCount() {
+        return clueIds.length;
+    }
+
+    public long getClueId(int question) {
+        return clueIds[question];
+    }
+
+    public boolean isCorrect(int question) {
+        return correct[question];
+    }
+
+    /**
+     * @return how long the correct answer took, or -1 if the question wasn't answered correctly.
+     */
+    public int getAnswerMillis(int question) {
+        return answerMillis[question];
+    }
+
+    /**
+     * @return how many questions were answered correctly.
+     */
+    public int getCorrectCount() {
+        int count = 0;
+        for (boolean answered : correct) {
+            if (answered) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GameResult)) {
+            return false;
+        }
+        GameResult that = (GameResult) o;
+        return finishedAtMillis == that.finishedAtMillis
+                && score == that.score
+                && playerId.equals(that.playerId)
+                && Arrays.equals(clueIds, that.clueIds)
+                && Arrays.equals(correct, that.correct)
+                && Arrays.equals(answerMillis, that.answerMillis);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * playerId.hashCode() + Long.hashCode(finishedAtMillis)) + Arrays.hashCode(clueIds);
+    }
+
+    @Override
+    public String toString() {
+        return "GameResult{" +
+                "playerId='" + playerId + '\'' +
+                ", finishedAt=" + getFinishedAt() +
+                ", score=" + score +
+                ", questions=" + clueIds.length +
+                '}';
+    }
+}
@@ -0,0 +1,852 @@
+package com.kenzie.app;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Keeps every finished game on disk, and answers leaderboard questions about them quickly.
+ *
+ * Results go into an append-only log (results.log in the log's directory). Each record is
+ * a GameResult in a small binary format behind its length and a CRC32C checksum, so a
+ * record torn by a crash, or damaged on disk, is noticed when the log is opened and the
+ * log is cut back to the last good record.
+ *
+ * Writing is done by one thread. append() only queues the result; the writer takes
+ * whatever has queued up since its last write, writes it all with one FileChannel write
+ * and forces it to disk with one fsync (a group commit), and then completes the futures
+ * of every result in the batch. A busy server pays for one fsync per batch rather than
+ * one per game.
+ *
+ * For the queries, each player's totals and the positions of their games in the log are
+ * kept in memory. Every so often (every DEFAULT_COMPACT_EVERY games by default) a
+ * background compaction folds all of that into a snapshot (leaderboard.snap), sorted by
+ * rank, recording how much of the log it covers. Opening the log then reads the snapshot
+ * and replays only the records written after it, instead of every game ever played. The
+ * sorted ranking from the last snapshot also answers topPlayers(): only the players who
+ * have played since need sorting again. A player's history is read straight from the log
+ * at the positions remembered for them, most recent first.
+ *
+ * The log itself is never rewritten; it is the record of every game. The snapshot can be
+ * thrown away at any time and is rebuilt from the log.
+ *
+ * @author Ethan Tauriainen
+ */
+public class GameResultLog implements Closeable {
+
+    public static final int DEFAULT_COMPACT_EVERY = 10_000;
+
+    /**
+     * Best first: most points over all games, then the best single game, then by name.
+     */
+    public static final Comparator<Standing> RANKING = Comparator.comparingLong(Standing::getTotalScore).reversed()
+            .thenComparing(Comparator.comparingInt(Standing::getBestScore).reversed())
+            .thenComparing(Standing::getPlayerId);
+
+    private static final String LOG_FILE = "results.log";
+    private static final String SNAPSHOT_FILE = "leaderboard.snap";
+    private static final int LOG_MAGIC = 0x54524C47;        // "TRLG"
+    private static final int SNAPSHOT_MAGIC = 0x54524C53;   // "TRLS"
+    private static final int VERSION = 1;
+    private static final int LOG_HEADER_BYTES = 8;          // Magic and version.
+    private static final int RECORD_HEADER_BYTES = 8;       // Length and checksum.
+    private static final int QUESTION_BYTES = 8 + 1 + 4;    // Clue id, correct, answer time.
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+    private static final int MAX_PLAYER_BYTES = 1024;
+    private static final int MAX_BATCH = 1024;
+
+    private static final ExecutorService COMPACTIONS = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "game-result-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Tells the writer to stop.
+    private static final Pending CLOSE = new Pending(null, null);
+
+    private final Path snapshotFile;
+    private final FileChannel channel;
+    private final boolean fsync;
+    private final int compactEvery;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final AtomicBoolean compactionQueued = new AtomicBoolean();
+    private final Object compactionLock = new Object();
+    private volatile boolean closed;
+    private volatile IOException writerFailure;         // Why the writer stopped, if it died.
+
+    // Everything below is guarded by the lock. The writer takes the write lock to add a
+    // batch; queries and compaction take the read lock or briefly the write lock.
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Player> players = new HashMap<>();
+    private Standing[] ranking = new Standing[0];       // As of the last snapshot.
+    private Set<String> changed = new HashSet<>();      // Played since the last snapshot.
+    private Set<String> compacting = new HashSet<>();   // Played since the one before it.
+    private long games;
+    private long end;                                   // Where the next record goes.
+    private int sinceCompaction;
+
+    private GameResultLog(Path directory, boolean fsync, int compactEvery) throws IOException {
+        this.fsync = fsync;
+        this.compactEvery = compactEvery;
+        Files.createDirectories(directory);
+        this.snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        this.channel = FileChannel.open(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            recover(directory);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.writer = new Thread(this::writeLoop, "game-result-log");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Opens (or creates) the log in a directory, syncing every batch to disk and
+     * compacting every DEFAULT_COMPACT_EVERY games.
+     *
+     * @param directory where the log and its snapshot live.
+     * @return the log, ready to append to and query.
+     * @throws IOException if the log can't be opened or isn't a game result log.
+     */
+    public static GameResultLog open(Path directory) throws IOException {
+        return open(directory, true, DEFAULT_COMPACT_EVERY);
+    }
+
+    /**
+     * @param fsync whether an append waits for its batch to be synced to disk. Without
+     *              it a crash can lose the last few games, but never corrupt the log.
+     * @param compactEvery how many games to append between snapshots.
+     */
+    public static GameResultLog open(Path directory, boolean fsync, int compactEvery) throws IOException {
+        if (compactEvery < 1) {
+            throw new IllegalArgumentException("compactEvery must be at least 1: " + compactEvery);
+        }
+        return new GameResultLog(directory, fsync, compactEvery);
+    }
+
+    /**
+     * @return where the game keeps its results when none is given: ~/.trivia/results
+     */
+    public static Path defaultDirectory() {
+        return Path.of(System.getProperty("user.home"), ".trivia", "results");
+    }
+
+    /**
+     * Queues a result to be written.
+     *
+     * @param result the finished game.
+     * @return a future that completes once the result is in the log (and, with fsync, on
+     * disk), or fails if it couldn't be written or the log is closed.
+     */
+    public CompletableFuture<Void> append(GameResult result) {
+        byte[] player = result.getPlayerId().getBytes(StandardCharsets.UTF_8);
+        if (player.length > MAX_PLAYER_BYTES || recordBytes(player, result) > MAX_RECORD_BYTES) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Result too large: " + result));
+        }
+        Pending pending = new Pending(result, player);
+        if (closed || writerFailure != null) {
+            return CompletableFuture.failedFuture(notWriting());
+        }
+        queue.add(pending);
+        // close() or a dying writer may have emptied the queue between the check and the
+        // add, and nobody would ever take this one. Whoever removes it completes it.
+        if ((closed || writerFailure != null) && queue.remove(pending)) {
+            pending.written.completeExceptionally(notWriting());
+        }
+        return pending.written;
+    }
+
+    /**
+     * @param n how many players.
+     * @return the n best players, best first (see RANKING).
+     */
+    public List<Standing> topPlayers(int n) {
+        lock.readLock().lock();
+        try {
+            // Players who have played since the last snapshot may have moved, so they are
+            // sorted afresh and merged with everyone else's place in the snapshot.
+            List<Standing> moved = new ArrayList<>(changed.size() + compacting.size());
+            for (String id : changed) {
+                moved.add(players.get(id).standing());
+            }
+            for (String id : compacting) {
+                if (!changed.contains(id)) {
+                    moved.add(players.get(id).standing());
+                }
+            }
+            moved.sort(RANKING);
+            List<Standing> top = new ArrayList<>(Math.min(n, players.size()));
+            int i = 0;
+            int j = 0;
+            while (top.size() < n && (i < ranking.length || j < moved.size())) {
+                if (i < ranking.length && (changed.contains(ranking[i].playerId)
+                        || compacting.contains(ranking[i].playerId))) {
+                    i++;
+                } else if (j == moved.size()
+                        || (i < ranking.length && RANKING.compare(ranking[i], moved.get(j)) < 0)) {
+                    top.add(ranking[i++]);
+                } else {
+                    top.add(moved.get(j++));
+                }
+            }
+            return top;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the player's totals, or null if they have never finished a game.
+     */
+    public Standing standing(String playerId) {
+        lock.readLock().lock();
+        try {
+            Player player = players.get(playerId);
+            return player == null ? null : player.standing();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads a player's most recent games back from the log.
+     *
+     * @param playerId whose games.
+     * @param limit at most how many.
+     * @return the games, most recent first. Empty if the player has none.
+     * @throws IOException if the log can't be read or a record has been damaged.
+     */
+    public List<GameResult> history(String playerId, int limit) throws IOException {
+        long[] offsets;
+        long readable;
+        lock.readLock().lock();
+        try {
+            Player player = players.get(playerId);
+            if (player == null) {
+                return List.of();
+            }
+            int count = Math.min(limit, player.offsetCount);
+            offsets = Arrays.copyOfRange(player.offsets, player.offsetCount - count, player.offsetCount);
+            readable = end;
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<GameResult> results = new ArrayList<>(offsets.length);
+        for (int i = offsets.length - 1; i >= 0; i--) {
+            Record record = readRecord(offsets[i], readable);
+            if (record == null) {
+                throw new IOException("Damaged game result at " + offsets[i]);
+            }
+            results.add(record.result);
+        }
+        return results;
+    }
+
+    /**
+     * @return how many games are in the log.
+     */
+    public long gameCount() {
+        lock.readLock().lock();
+        try {
+            return games;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int playerCount() {
+        lock.readLock().lock();
+        try {
+            return players.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot of everything appended so far, sorted by rank. Normally this
+     * happens in the background; calling it directly waits for it.
+     *
+     * @throws IOException if the snapshot can't be written. The old one is left alone.
+     */
+    public void compact() throws IOException {
+        synchronized (compactionLock) {
+            long covered;
+            long gameTotal;
+            List<Standing> standings;
+            List<long[]> offsets;
+            lock.writeLock().lock();
+            try {
+                covered = end;
+                gameTotal = games;
+                standings = new ArrayList<>(players.size());
+                offsets = new ArrayList<>(players.size());
+                for (Player player : players.values()) {
+                    standings.add(player.standing());
+                    offsets.add(Arrays.copyOf(player.offsets, player.offsetCount));
+                }
+                compacting = changed;
+                changed = new HashSet<>();
+                sinceCompaction = 0;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Integer[] order = new Integer[standings.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> RANKING.compare(standings.get(a), standings.get(b)));
+            Standing[] sorted = new Standing[order.length];
+            try {
+                writeSnapshot(covered, gameTotal, standings, offsets, order);
+            } catch (IOException | RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    changed.addAll(compacting);     // Still not in any snapshot.
+                    compacting = new HashSet<>();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+            for (int i = 0; i < order.length; i++) {
+                sorted[i] = standings.get(order[i]);
+            }
+            lock.writeLock().lock();
+            try {
+                ranking = sorted;
+                compacting = new HashSet<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes out whatever is still queued, takes a last snapshot and closes the log.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.add(CLOSE);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failQueued(new IOException("The game result log is closed"));
+        try {
+            boolean unsaved;
+            lock.readLock().lock();
+            try {
+                unsaved = !changed.isEmpty() || !compacting.isEmpty();
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (unsaved) {
+                compact();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * The writer thread: takes everything queued up, writes and syncs it as one batch,
+     * and repeats until closed.
+     */
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        boolean stopping = false;
+        try {
+            while (!stopping) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    return;
+                }
+                queue.drainTo(batch, MAX_BATCH - 1);
+                stopping = batch.remove(CLOSE);
+                if (!batch.isEmpty()) {
+                    buffer = writeBatch(batch, buffer);
+                }
+                batch.clear();
+            }
+        } catch (RuntimeException | Error e) {
+            // Nothing will write what is queued, or anything appended from now on.
+            writerFailure = new IOException("The game result log writer stopped", e);
+            for (Pending pending : batch) {
+                pending.written.completeExceptionally(writerFailure);
+            }
+            failQueued(writerFailure);
+            throw e;
+        }
+    }
+
+    /**
+     * Fails everything still in the queue.
+     */
+    private void failQueued(IOException reason) {
+        Pending left;
+        while ((left = queue.poll()) != null) {
+            if (left != CLOSE) {
+                left.written.completeExceptionally(reason);
+            }
+        }
+    }
+
+    private IOException notWriting() {
+        IOException failure = writerFailure;
+        return failure != null ? failure : new IOException("The game result log is closed");
+    }
+
+    private ByteBuffer writeBatch(List<Pending> batch, ByteBuffer buffer) {
+        long start = end;   // Only the writer moves the end, so no lock is needed to read it.
+        long[] offsets = new long[batch.size()];
+        buffer.clear();
+        for (int i = 0; i < batch.size(); i++) {
+            Pending pending = batch.get(i);
+            int size = recordBytes(pending.player, pending.result);
+            if (buffer.remaining() < size) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size));
+                buffer.flip();
+                bigger.put(buffer);
+                buffer = bigger;
+            }
+            offsets[i] = start + buffer.position();
+            encode(buffer, pending.player, pending.result);
+        }
+        buffer.flip();
+        try {
+            long position = start;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            try {
+                channel.truncate(start);    // Don't leave half a batch behind.
+            } catch (IOException ignored) {
+                // The checksums will catch it when the log is next opened.
+            }
+            for (Pending pending : batch) {
+                pending.written.completeExceptionally(e);
+            }
+            return buffer;
+        }
+
+        boolean compactNow;
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                add(batch.get(i).result, offsets[i]);
+            }
+            end = start + buffer.limit();
+            sinceCompaction += batch.size();
+            compactNow = sinceCompaction >= compactEvery;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (Pending pending : batch) {
+            pending.written.complete(null);
+        }
+        if (compactNow && compactionQueued.compareAndSet(false, true)) {
+            COMPACTIONS.execute(() -> {
+                compactionQueued.set(false);
+                try {
+                    compact();
+                } catch (IOException | UncheckedIOException e) {
+                    System.err.println("Couldn't compact the game results: " + e.getMessage());
+                }
+            });
+        }
+        return buffer;
+    }
+
+    /**
+     * Must hold the write lock.
+     */
+    private void add(GameResult result, long offset) {
+        players.computeIfAbsent(result.getPlayerId(), Player::new).add(result, offset);
+        changed.add(result.getPlayerId());
+        games++;
+    }
+
+    /**
+     * Loads the snapshot if there is a good one, then replays the log from where the
+     * snapshot left off, cutting off anything torn or damaged at the end.
+     */
+    private void recover(Path directory) throws IOException {
+        long size = channel.size();
+        if (size < LOG_HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES).putInt(LOG_MAGIC).putInt(VERSION).flip();
+            channel.truncate(0);
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+            Files.deleteIfExists(snapshotFile);     // Whatever it was, it wasn't of this log.
+            end = LOG_HEADER_BYTES;
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES);
+        readFully(header, 0);
+        if (header.getInt(0) != LOG_MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Not a game result log: " + directory.resolve(LOG_FILE));
+        }
+
+        long position = loadSnapshot(size);
+        Record record;
+        while ((record = readRecord(position, size)) != null) {
+            add(record.result, position);
+            position = record.next;
+        }
+        if (position < size) {
+            System.err.println("Cutting off " + (size - position) + " damaged bytes at the end of the game results");
+            channel.truncate(position);
+            channel.force(true);
+        }
+        end = position;
+    }
+
+    /**
+     * @return where in the log the snapshot leaves off, or the start of the log if there
+     * is no usable snapshot.
+     */
+    private long loadSnapshot(long logSize) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(snapshotFile);
+        } catch (NoSuchFileException e) {
+            return LOG_HEADER_BYTES;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, Math.max(0, bytes.length - 4));
+        if (bytes.length < 4 || ByteBuffer.wrap(bytes, bytes.length - 4, 4).getInt() != (int) crc.getValue()) {
+            System.err.println("Ignoring a damaged leaderboard snapshot; replaying the game results instead");
+            return LOG_HEADER_BYTES;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != VERSION) {
+                return LOG_HEADER_BYTES;
+            }
+            long covered = in.readLong();
+            if (covered < LOG_HEADER_BYTES || covered > logSize) {
+                return LOG_HEADER_BYTES;    // Not a snapshot of this log.
+            }
+            long gameTotal = in.readLong();
+            Standing[] loaded = new Standing[in.readInt()];
+            Map<String, Player> loadedPlayers = new HashMap<>(loaded.length * 2);
+            for (int i = 0; i < loaded.length; i++) {
+                Player player = new Player(in.readUTF());
+                player.games = in.readInt();
+                player.totalScore = in.readLong();
+                player.bestScore = in.readInt();
+                player.questions = in.readLong();
+                player.correct = in.readLong();
+                player.offsetCount = in.readInt();
+                player.offsets = new long[Math.max(4, player.offsetCount)];
+                for (int j = 0; j < player.offsetCount; j++) {
+                    player.offsets[j] = in.readLong();
+                }
+                loadedPlayers.put(player.id, player);
+                loaded[i] = player.standing();
+            }
+            players.putAll(loadedPlayers);
+            ranking = loaded;
+            games = gameTotal;
+            return covered;
+        }
+    }
+
+    private void writeSnapshot(long covered, long gameTotal, List<Standing> standings, List<long[]> offsets,
+                               Integer[] order) throws IOException {
+        Path temp = Files.createTempFile(snapshotFile.getParent(), SNAPSHOT_FILE, ".tmp");
+        try (FileChannel file = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(file), 64 * 1024), new CRC32C());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(covered);
+            out.writeLong(gameTotal);
+            out.writeInt(order.length);
+            for (int i : order) {
+                Standing standing = standings.get(i);
+                out.writeUTF(standing.playerId);
+                out.writeInt(standing.games);
+                out.writeLong(standing.totalScore);
+                out.writeInt(standing.bestScore);
+                out.writeLong(standing.questions);
+                out.writeLong(standing.correct);
+                out.writeInt(offsets.get(i).length);
+                for (long offset : offsets.get(i)) {
+                    out.writeLong(offset);
+                }
+            }
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+            file.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the record at the offset, or null if it runs past the end or fails its checksum.
+     */
+    private Record readRecord(long offset, long limit) throws IOException {
+        if (offset + RECORD_HEADER_BYTES > limit) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        readFully(header, offset);
+        int length = header.getInt(0);
+        if (length <= 0 || length > MAX_RECORD_BYTES || offset + RECORD_HEADER_BYTES + length > limit) {
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(payload, offset + RECORD_HEADER_BYTES);
+        CRC32C crc = new CRC32C();
+        crc.update(payload.array(), 0, length);
+        if ((int) crc.getValue() != header.getInt(4)) {
+            return null;
+        }
+        payload.flip();
+        GameResult result = decode(payload);
+        return result == null ? null : new Record(result, offset + RECORD_HEADER_BYTES + length);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of the game result log at " + position);
+            }
+        }
+    }
+
+    private static int recordBytes(byte[] player, GameResult result) {
+        return RECORD_HEADER_BYTES + payloadBytes(player, result);
+    }
+
+    private static int payloadBytes(byte[] player, GameResult result) {
+        return 8 + 2 + player.length + 4 + 4 + result.getQuestionCount() * QUESTION_BYTES;
+    }
+
+    /**
+     * Length, checksum, then: finished at, player (length and UTF-8), score, question
+     * count, and per question the clue id, whether it was correct and the answer time.
+     */
+    private static void encode(ByteBuffer buffer, byte[] player, GameResult result) {
+        int length = payloadBytes(player, result);
+        buffer.putInt(length);
+        int checksumAt = buffer.position();
+        buffer.putInt(0);
+        int start = buffer.position();
+        buffer.putLong(result.getFinishedAtMillis());
+        buffer.putShort((short) player.length);
+        buffer.put(player);
+        buffer.putInt(result.getScore());
+        buffer.putInt(result.getQuestionCount());
+        for (int i = 0; i < result.getQuestionCount(); i++) {
+            buffer.putLong(result.getClueId(i));
+            buffer.put((byte) (result.isCorrect(i) ? 1 : 0));
+            buffer.putInt(result.getAnswerMillis(i));
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), buffer.arrayOffset() + start, length);
+        buffer.putInt(checksumAt, (int) crc.getValue());
+    }
+
+    /**
+     * @return the result, or null if the payload isn't laid out like one.
+     */
+    private static GameResult decode(ByteBuffer payload) {
+        if (payload.remaining() < 8 + 2) {
+            return null;
+        }
+        long finishedAt = payload.getLong();
+        int playerLength = payload.getShort() & 0xFFFF;
+        if (payload.remaining() < playerLength + 4 + 4) {
+            return null;
+        }
+        byte[] player = new byte[playerLength];
+        payload.get(player);
+        int score = payload.getInt();
+        int questions = payload.getInt();
+        if (questions < 0 || payload.remaining() != (long) questions * QUESTION_BYTES) {
+            return null;
+        }
+        long[] clueIds = new long[questions];
+        boolean[] correct = new boolean[questions];
+        int[] answerMillis = new int[questions];
+        for (int i = 0; i < questions; i++) {
+            clueIds[i] = payload.getLong();
+            correct[i] = payload.get() != 0;
+            answerMillis[i] = payload.getInt();
+        }
+        return new GameResult(new String(player, StandardCharsets.UTF_8), finishedAt, score, clueIds, correct,
+                answerMillis);
+    }
+
+    private static final class Pending {
+        private final GameResult result;
+        private final byte[] player;
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        private Pending(GameResult result, byte[] player) {
+            this.result = result;
+            this.player = player;
+        }
+    }
+
+    private static final class Record {
+        private final GameResult result;
+        private final long next;
+
+        private Record(GameResult result, long next) {
+            this.result = result;
+            this.next = next;
+        }
+    }
+
+    /**
+     * One player's running totals, and where their games are in the log.
+     */
+    private static final class Player {
+        private final String id;
+        private int games;
+        private long totalScore;
+        private int bestScore;
+        private long questions;
+        private long correct;
+        private long[] offsets = new long[4];
+        private int offsetCount;
+
+        private Player(String id) {
+            this.id = id;
+        }
+
+        private void add(GameResult result, long offset) {
+            games++;
+            totalScore += result.getScore();
+            bestScore = games == 1 ? result.getScore() : Math.max(bestScore, result.getScore());
+            questions += result.getQuestionCount();
+            correct += result.getCorrectCount();
+            if (offsetCount == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[offsetCount++] = offset;
+        }
+
+        private Standing standing() {
+            return new Standing(id, games, totalScore, bestScore, questions, correct);
+        }
+    }
+
+    /**
+     * A player's place on the leaderboard at the moment it was read.
+     */
+    public static final class Standing {
+        private final String playerId;
+        private final int games;
+        private final long totalScore;
+        private final int bestScore;
+        private final long questions;
+        private final long correct;
+
+        private Standing(String playerId, int games, long totalScore, int bestScore, long questions, long correct) {
+            this.playerId = playerId;
+            this.games = games;
+            this.totalScore = totalScore;
+            this.bestScore = bestScore;
+            this.questions = questions;
+            this.correct = correct;
+        }
+
+        public String getPlayerId() {
+            return playerId;
+        }
+
+        public int getGames() {
+            return games;
+        }
+
+        public long getTotalScore() {
+            return totalScore;
+        }
+
+        public int getBestScore() {
+            return bestScore;
+        }
+
+        public long getQuestions() {
+            return questions;
+        }
+
+        public long getCorrect() {
+            return correct;
+        }
+
+        /**
+         * @return the share of questions answered correctly, or 0 if none were asked.
+         */
+        public double getAccuracy() {
+            return questions == 0 ? 0 : (double) correct / questions;
+        }
+
+        @Override
+        public String toString() {
+            return "Standing{" +
+                    "playerId='" + playerId + '\'' +
+                    ", games=" + games +
+                    ", totalScore=" + totalScore +
+                    ", bestScore=" + bestScore +
+                    '}';
+        }
+    }
+}
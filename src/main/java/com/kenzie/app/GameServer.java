@@ -0,0 +1,313 @@
+package com.kenzie.app;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hosts games for remote players over HTTP, using the server built into the JDK.
+ *
+ * Every request is handled on its own virtual thread, so a request that has to wait
+ * (for instance for a deck to be dealt) doesn't hold up anyone else. The games themselves
+ * are plain GameSessions kept by a GameEngine, exactly as the desktop GameFrame plays them.
+ *
+ *   POST   /games                start a game, for a player with ?player=name
+ *   GET    /games/{id}           where the game stands
+ *   POST   /games/{id}/submit    answer the question, with a body of {"answer": "..."}
+ *   POST   /games/{id}/next      move on to the next question
+ *   DELETE /games/{id}           end the game
+ *   GET    /leaderboard          the best players, ?top=10 by default
+ *
+ * Game responses are a GameResponseDTO as JSON, the leaderboard a list of
+ * ConcurrentLeaderboard.Entry, and {"error": "..."} is sent when something is
+ * wrong with the request. Games nobody has touched for a while are cleaned up in the
+ * background.
+ *
+ * @author Ethan Tauriainen
+ */
+public class GameServer implements Closeable {
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(10);
+
+    // Jackson writers and readers are immutable and thread safe, so one of each is shared.
+    private static final ObjectWriter RESPONSE_WRITER = CustomHttpClient.OBJECT_MAPPER.writerFor(GameResponseDTO.class);
+    private static final ObjectWriter ERROR_WRITER = CustomHttpClient.OBJECT_MAPPER.writerFor(ErrorDTO.class);
+    private static final ObjectWriter LEADERBOARD_WRITER =
+            CustomHttpClient.OBJECT_MAPPER.writerFor(ConcurrentLeaderboard.Entry[].class);
+    private static final ObjectReader SUBMIT_READER = CustomHttpClient.OBJECT_MAPPER.readerFor(SubmitDTO.class);
+
+    private static final String GAMES = "/games";
+    private static final String LEADERBOARD = "/leaderboard";
+    private static final int DEFAULT_TOP = 10;
+    private static final int MAX_TOP = 1000;
+
+    private final GameEngine engine;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService cleaner;
+    private final Duration idleTimeout;
+
+    /**
+     * @param engine hosts the games.
+     * @param address where to listen. Port 0 picks any free port.
+     * @param idleTimeout how long a game may go untouched before it is ended.
+     * @throws IOException if the server can't listen on the address.
+     */
+    public GameServer(GameEngine engine, InetSocketAddress address, Duration idleTimeout) throws IOException {
+        this.engine = engine;
+        this.idleTimeout = idleTimeout;
+        this.server = HttpServer.create(address, 1024);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-server-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext(GAMES, this::handle);
+        server.createContext(LEADERBOARD, this::handleLeaderboard);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        long period = Math.max(1, idleTimeout.toMillis() / 2);
+        cleaner.scheduleAtFixedRate(() -> engine.removeIdleGames(idleTimeout), period, period, TimeUnit.MILLISECONDS);
+        server.start();
+    }
+
+    /**
+     * @return the port the server is listening on.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server. Requests still being handled are given a second to finish.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        cleaner.shutdownNow();
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try {
+                route(exchange);
+            } catch (RuntimeException e) {
+                // Don't let one bad request take the handler down with it.
+                sendServerError(exchange, e);
+            }
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().substring(GAMES.length()).split("/");
+        // path[0] is what comes before the first slash after /games, so it must be empty.
+        if (path.length > 0 && !path[0].isEmpty() || path.length > 3) {
+            sendError(exchange, 404, "No such resource.");
+            return;
+        }
+        if (path.length <= 1) {
+            if ("POST".equals(method)) {
+                startGame(exchange);
+            } else {
+                sendError(exchange, 405, "Use POST to start a game.");
+            }
+            return;
+        }
+
+        GameSession session = engine.getSession(path[1]);
+        if (session == null) {
+            sendError(exchange, 404, "No such game.");
+            return;
+        }
+        String action = path.length == 3 ? path[2] : "";
+        switch (method + " " + action) {
+            case "GET " -> send(exchange, 200, GameResponseDTO.of(session.snapshot(), null));
+            case "DELETE " -> {
+                engine.endGame(session.getId());
+                send(exchange, 200, GameResponseDTO.of(session.snapshot(), null));
+            }
+            case "POST submit" -> submit(exchange, session);
+            case "POST next" -> {
+                session.next();
+                send(exchange, 200, GameResponseDTO.of(session.snapshot(), null));
+            }
+            default -> {
+                boolean known = action.isEmpty() || action.equals("submit") || action.equals("next");
+                sendError(exchange, known ? 405 : 404, "Can't " + method + " " + exchange.getRequestURI().getPath() + ".");
+            }
+        }
+    }
+
+    private void startGame(HttpExchange exchange) throws IOException {
+        GameSession session;
+        try {
+            // Blocking is fine here: each request has its own virtual thread.
+            session = engine.startGame(queryParameter(exchange, "player")).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "Interrupted while dealing the clues.");
+            return;
+        } catch (ExecutionException | CompletionException e) {
+            sendError(exchange, 503, "Couldn't deal the clues: " + e.getCause().getMessage());
+            return;
+        }
+        exchange.getResponseHeaders().set("Location", GAMES + "/" + session.getId());
+        send(exchange, 201, GameResponseDTO.of(session.snapshot(), null));
+    }
+
+    private void handleLeaderboard(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try {
+                leaderboard(exchange);
+            } catch (RuntimeException e) {
+                sendServerError(exchange, e);
+            }
+        }
+    }
+
+    private void leaderboard(HttpExchange exchange) throws IOException {
+        ConcurrentLeaderboard leaderboard = engine.getLeaderboard();
+        if (!LEADERBOARD.equals(exchange.getRequestURI().getPath()) || leaderboard == null) {
+            sendError(exchange, 404, "No such resource.");
+            return;
+        }
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            sendError(exchange, 405, "Use GET to see the leaderboard.");
+            return;
+        }
+        int top;
+        try {
+            String parameter = queryParameter(exchange, "top");
+            top = parameter == null ? DEFAULT_TOP : Integer.parseInt(parameter);
+        } catch (NumberFormatException e) {
+            top = -1;
+        }
+        if (top < 1 || top > MAX_TOP) {
+            sendError(exchange, 400, "top must be a number from 1 to " + MAX_TOP + ".");
+            return;
+        }
+        write(exchange, 200, LEADERBOARD_WRITER.writeValueAsBytes(
+                leaderboard.top(top).toArray(new ConcurrentLeaderboard.Entry[0])));
+    }
+
+    /**
+     * @return the decoded value of a query parameter, or null if it wasn't given.
+     */
+    private static String queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0 && pair.substring(0, equals).equals(name)) {
+                return URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private void submit(HttpExchange exchange, GameSession session) throws IOException {
+        SubmitDTO request;
+        try (InputStream body = exchange.getRequestBody()) {
+            request = SUBMIT_READER.readValue(body);
+        } catch (IOException e) {
+            sendError(exchange, 400, "Expected a body like {\"answer\": \"...\"}.");
+            return;
+        }
+        if (request == null || request.getAnswer() == null) {
+            sendError(exchange, 400, "Expected a body like {\"answer\": \"...\"}.");
+            return;
+        }
+        SubmitResult result = session.submit(request.getAnswer());
+        send(exchange, result == SubmitResult.NOT_ACCEPTING ? 409 : 200,
+                GameResponseDTO.of(session.snapshot(), result));
+    }
+
+    private static void send(HttpExchange exchange, int status, GameResponseDTO response) throws IOException {
+        write(exchange, status, RESPONSE_WRITER.writeValueAsBytes(response));
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        write(exchange, status, ERROR_WRITER.writeValueAsBytes(new ErrorDTO(message)));
+    }
+
+    /**
+     * Logs a request that blew up and answers it with a 500, unless a response was
+     * already on its way.
+     */
+    private static void sendServerError(HttpExchange exchange, RuntimeException e) throws IOException {
+        System.err.println("Error handling " + exchange.getRequestURI() + ": " + e);
+        if (exchange.getResponseCode() == -1) {
+            sendError(exchange, 500, "Something went wrong on the server.");
+        }
+    }
+
+    private static void write(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * The body of a submit request.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class SubmitDTO {
+        @JsonProperty("answer")
+        private String answer;
+
+        public String getAnswer() {
+            return answer;
+        }
+
+        public void setAnswer(String answer) {
+            this.answer = answer;
+        }
+    }
+
+    /**
+     * The body of an error response.
+     */
+    static class ErrorDTO {
+        @JsonProperty("error")
+        private final String error;
+
+        ErrorDTO(String error) {
+            this.error = error;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
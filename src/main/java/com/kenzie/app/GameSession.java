@@ -0,0 +1,331 @@
+package com.kenzie.app;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * One game being played: the rules of the game, without any user interface.
+ *
+ * A session walks through its ClueDeck (whose answers were prepared by the same
+ * AnswerMatcher the session grades with) one question at a time following the states in
+ * GameState. It starts out ASKING the first question. Each question has a time limit;
+ * rather than counting down with a timer per game, the session remembers the deadline and
+ * checks it whenever it is touched (and whenever checkTimeout() is called), so an idle
+ * session costs nothing. Given a TimingWheel, the session also puts its deadline on the
+ * wheel, so a question nobody answers still times out on time, and reports it to the
+ * timeout listener. Given ClueStats, it records how each question went, and given a
+ * ConcurrentLeaderboard, it scores the player's correct answers on it as they happen.
+ *
+ * Every method is synchronized on the session, so one session can be driven from any
+ * thread, and separate sessions never contend with each other. The timeout listener is
+ * the exception: it is told after the lock has been let go, so it is free to take
+ * locks of its own (or touch the session again) without risking a deadlock.
+ *
+ * @author Ethan Tauriainen
+ */
+public class GameSession {
+
+    private final String id;
+    private final ClueDeck deck;
+    private final AnswerMatcher matcher;
+    private final long timeLimitNanos;
+    private final LongSupplier nanoClock;
+    private final TimingWheel wheel;
+    private final Consumer<GameSession> timeoutListener;
+    private final ClueStats stats;
+    private final String playerId;
+    private final ConcurrentLeaderboard leaderboard;
+    private TimingWheel.Timeout deadlineTimeout;
+    private final boolean[] correct;
+    private final int[] answerMillis;
+
+    private int index;
+    private int score;
+    private GameState state = GameState.ASKING;
+    private long deadline;
+    private long lastActivity;
+    private boolean timeoutToReport;    // Timed out, and the listener hasn't been told yet.
+
+    GameSession(String id, ClueDeck deck, AnswerMatcher matcher, Duration timeLimit, LongSupplier nanoClock) {
+        this(id, deck, matcher, timeLimit, nanoClock, null, null, null, null, null);
+    }
+
+    /**
+     * @param wheel keeps the deadlines, or null to only check them when the session is touched.
+     * @param timeoutListener told whenever a question times out, whoever noticed it first.
+     *                        Called on that thread, once it has let go of the session's lock.
+     * @param stats records how each question went, or null.
+     * @param playerId who is playing, or null if nobody in particular.
+     * @param leaderboard where the player's points go, or null.
+     */
+    GameSession(String id, ClueDeck deck, AnswerMatcher matcher, Duration timeLimit, LongSupplier nanoClock,
+                TimingWheel wheel, Consumer<GameSession> timeoutListener, ClueStats stats,
+                String playerId, ConcurrentLeaderboard leaderboard) {
+        this.id = id;
+        this.deck = deck;
+        this.matcher = matcher;
+        this.timeLimitNanos = timeLimit.toNanos();
+        this.nanoClock = nanoClock;
+        this.wheel = wheel;
+        this.timeoutListener = timeoutListener;
+        this.stats = stats;
+        this.playerId = playerId;
+        this.leaderboard = leaderboard;
+        this.correct = new boolean[deck.size()];
+        this.answerMillis = new int[deck.size()];
+        Arrays.fill(answerMillis, -1);
+        synchronized (this) {
+            this.deadline = nanoClock.getAsLong() + timeLimitNanos;
+            this.lastActivity = nanoClock.getAsLong();
+            armDeadline(timeLimitNanos);
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public ClueDeck getDeck() {
+        return deck;
+    }
+
+    /**
+     * @return who is playing, or null if nobody in particular.
+     */
+    public String getPlayerId() {
+        return playerId;
+    }
+
+    /**
+     * Grades an answer to the current question. A correct answer closes the question and
+     * adds a point; a wrong one leaves it open to guess again.
+     *
+     * @param userAnswer what the user typed.
+     * @return what happened.
+     */
+    public SubmitResult submit(String userAnswer) {
+        return reporting(() -> grade(userAnswer));
+    }
+
+    private SubmitResult grade(String userAnswer) {
+        lastActivity = nanoClock.getAsLong();
+        if (expireIfDue()) {
+            return SubmitResult.TIMED_OUT;
+        }
+        if (state != GameState.ASKING) {
+            return state == GameState.TIMED_OUT ? SubmitResult.TIMED_OUT : SubmitResult.NOT_ACCEPTING;
+        }
+        if (matcher.matches(deck.answer(index), userAnswer)) {
+            score++;
+            state = GameState.ANSWERED;
+            cancelDeadline();
+            long answerNanos = nanoClock.getAsLong() - (deadline - timeLimitNanos);
+            Metrics.get().recordAnswer(answerNanos);
+            correct[index] = true;
+            answerMillis[index] = (int) TimeUnit.NANOSECONDS.toMillis(answerNanos);
+            if (stats != null) {
+                stats.recordCorrect(deck.clue(index), answerNanos);
+            }
+            if (leaderboard != null && playerId != null) {
+                leaderboard.addPoints(playerId, 1);
+            }
+            return SubmitResult.CORRECT;
+        }
+        if (stats != null) {
+            stats.recordWrong(deck.clue(index));
+        }
+        return SubmitResult.WRONG;
+    }
+
+    /**
+     * Moves on to the next question, skipping the current one if it is still open.
+     * Moving on from the last question ends the game.
+     *
+     * @return true if there is a new question, false if the game is now over.
+     */
+    public boolean next() {
+        return reporting(this::advance);
+    }
+
+    private boolean advance() {
+        lastActivity = nanoClock.getAsLong();
+        if (state == GameState.FINISHED) {
+            return false;
+        }
+        if (stats != null && state == GameState.ASKING && !expireIfDue()) {
+            stats.recordSkip(deck.clue(index));
+        }
+        if (index == deck.size() - 1) {
+            finish();
+            return false;
+        }
+        index++;
+        state = GameState.ASKING;
+        deadline = nanoClock.getAsLong() + timeLimitNanos;
+        armDeadline(timeLimitNanos);
+        return true;
+    }
+
+    /**
+     * Closes the current question if its time is up.
+     *
+     * @return true if this call is the one that timed the question out.
+     */
+    public boolean checkTimeout() {
+        return reporting(this::expireIfDue);
+    }
+
+    /**
+     * Ends the game right away.
+     */
+    public synchronized void finish() {
+        state = GameState.FINISHED;
+        cancelDeadline();
+    }
+
+    public GameState getState() {
+        return reporting(() -> {
+            expireIfDue();
+            return state;
+        });
+    }
+
+    public synchronized int getScore() {
+        return score;
+    }
+
+    /**
+     * @return the position of the current question in the deck, starting from 0.
+     */
+    public synchronized int getIndex() {
+        return index;
+    }
+
+    public synchronized ClueDTO currentClue() {
+        return deck.clue(index);
+    }
+
+    public synchronized boolean isLastQuestion() {
+        return index == deck.size() - 1;
+    }
+
+    /**
+     * @return whole seconds left on the current question, never below 0. Rounds up, so
+     * the display shows the limit itself (e.g. 45) right after the question is asked.
+     */
+    public synchronized int secondsRemaining() {
+        if (state != GameState.ASKING) {
+            return 0;
+        }
+        long left = deadline - nanoClock.getAsLong();
+        return left <= 0 ? 0 : (int) ((left + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * @return a consistent, unchanging copy of where the game is at.
+     */
+    public GameSnapshot snapshot() {
+        return reporting(() -> {
+            lastActivity = nanoClock.getAsLong();
+            expireIfDue();
+            return new GameSnapshot(id, state, index, deck.size(), score, secondsRemaining(), deck.clue(index));
+        });
+    }
+
+    /**
+     * @param playerId who played the game.
+     * @return how the game has gone so far, for a GameResultLog. Normally asked for once
+     * the game is over.
+     */
+    public GameResult result(String playerId) {
+        return reporting(() -> {
+            expireIfDue();
+            long[] clueIds = new long[deck.size()];
+            for (int i = 0; i < clueIds.length; i++) {
+                clueIds[i] = deck.clue(i).getId();
+            }
+            return new GameResult(playerId, System.currentTimeMillis(), score, clueIds, correct, answerMillis);
+        });
+    }
+
+    /**
+     * @return how long it has been since the player last did anything in this session.
+     */
+    synchronized long idleNanos() {
+        return nanoClock.getAsLong() - lastActivity;
+    }
+
+    private boolean expireIfDue() {
+        if (state == GameState.ASKING && nanoClock.getAsLong() - deadline >= 0) {
+            state = GameState.TIMED_OUT;
+            cancelDeadline();
+            Metrics.get().recordTimeout();
+            if (stats != null) {
+                stats.recordTimeout(deck.clue(index));
+            }
+            timeoutToReport = timeoutListener != null;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Called by the wheel when the current question's time should be up.
+     *
+     * @param armedFor the deadline the timeout was set for. If the session has moved on
+     *                 since, the timeout is stale and ignored.
+     */
+    private void deadlinePassed(long armedFor) {
+        reporting(() -> {
+            if (armedFor != deadline) {
+                return null;
+            }
+            deadlineTimeout = null;
+            long left = deadline - nanoClock.getAsLong();
+            if (state == GameState.ASKING && left > 0) {
+                armDeadline(left);  // The wheel and the session's clock disagree a little.
+            } else {
+                expireIfDue();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Runs the body holding the session's lock, then, with the lock let go, tells the
+     * timeout listener if the body timed the question out.
+     */
+    private <T> T reporting(Supplier<T> body) {
+        T result;
+        boolean report;
+        synchronized (this) {
+            result = body.get();
+            report = timeoutToReport;
+            timeoutToReport = false;
+        }
+        if (report) {
+            timeoutListener.accept(this);
+        }
+        return result;
+    }
+
+    private void armDeadline(long delayNanos) {
+        if (wheel == null) {
+            return;
+        }
+        cancelDeadline();
+        long armedFor = deadline;
+        deadlineTimeout = wheel.schedule(delayNanos, TimeUnit.NANOSECONDS, () -> deadlinePassed(armedFor));
+    }
+
+    private void cancelDeadline() {
+        if (deadlineTimeout != null) {
+            deadlineTimeout.cancel();
+            deadlineTimeout = null;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.kenzie.app;
+
+/**
+ * A copy of where a GameSession stood at one moment. Safe to read from any thread
+ * and to hand to a user interface or serialize.
+ *
+ * @author Ethan Tauriainen
+ */
+public final class GameSnapshot {
+
+    private final String sessionId;
+    private final GameState state;
+    private final int index;
+    private final int questionCount;
+    private final int score;
+    private final int secondsRemaining;
+    private final ClueDTO clue;
+
+    GameSnapshot(String sessionId, GameState state, int index, int questionCount, int score,
+                 int secondsRemaining, ClueDTO clue) {
+        this.sessionId = sessionId;
+        this.state = state;
+        this.index = index;
+        this.questionCount = questionCount;
+        this.score = score;
+        this.secondsRemaining = secondsRemaining;
+        this.clue = clue;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * @return the position of the current question in the deck, starting from 0.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public int getQuestionCount() {
+        return questionCount;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getSecondsRemaining() {
+        return secondsRemaining;
+    }
+
+    /**
+     * @return the clue being played. Its answer should only be shown once the question
+     * is no longer ASKING.
+     */
+    public ClueDTO getClue() {
+        return clue;
+    }
+
+    @Override
+    public String toString() {
+        return "GameSnapshot{" +
+                "sessionId='" + sessionId + '\'' +
+                ", state=" + state +
+                ", index=" + index +
+                ", questionCount=" + questionCount +
+                ", score=" + score +
+                ", secondsRemaining=" + secondsRemaining +
+                '}';
+    }
+}
@@ -0,0 +1,21 @@
+package com.kenzie.app;
+
+/**
+ * The states a GameSession moves through.
+ *
+ * ASKING        a question is open and its clock is running. Wrong answers keep it open.
+ * ANSWERED      the question was answered correctly.
+ * TIMED_OUT     the clock ran out before a correct answer.
+ * FINISHED      the last question is over (or the game was ended). Nothing more can happen.
+ *
+ * From ASKING, ANSWERED or TIMED_OUT, moving on to the next question goes back to ASKING,
+ * unless it was the last question.
+ *
+ * @author Ethan Tauriainen
+ */
+public enum GameState {
+    ASKING,
+    ANSWERED,
+    TIMED_OUT,
+    FINISHED
+}
@@ -0,0 +1,22 @@
+package com.kenzie.app;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Asks for a JSON reader and writer to be generated for a DTO at compile time.
+ *
+ * For a class Foo marked with this, JsonCodecProcessor (in src/codegen) writes a class
+ * FooCodec next to it, with read(JsonParser) and write(JsonGenerator, Foo). They cover the
+ * fields marked @JsonProperty, in @JsonPropertyOrder order, and those of any static
+ * classes nested inside Foo, going straight from tokens to setters and from getters to
+ * tokens. Nothing is looked up by reflection at run time, unlike with databind.
+ *
+ * @author Ethan Tauriainen
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface JsonCodec {
+}
@@ -0,0 +1,114 @@
+package com.kenzie.app;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * The small pieces the generated codecs (see JsonCodec) share: reading one scalar off
+ * the parser's current token, and complaining about what doesn't fit.
+ *
+ * Scalars are read the way databind reads them with its default settings, so that a
+ * generated codec and databind agree on anything either accepts: a null becomes 0 or
+ * false for a primitive, numbers may come as strings and strings as numbers, and a
+ * float is cut down to fit a whole number.
+ *
+ * @author Ethan Tauriainen
+ */
+final class JsonCodecs {
+
+    private JsonCodecs() {
+    }
+
+    /**
+     * Fails unless the parser is on the given token.
+     *
+     * @param what what was being read, for the message.
+     */
+    static void expect(JsonParser parser, JsonToken token, String what) throws JsonParseException {
+        if (parser.currentToken() != token) {
+            throw new JsonParseException(parser, "Expected " + token + " for " + what + " but found "
+                    + parser.currentToken());
+        }
+    }
+
+    static JsonParseException unknownField(JsonParser parser, String type, String field) {
+        return new JsonParseException(parser, "Unrecognized field \"" + field + "\" (class " + type + ")");
+    }
+
+    static long readLong(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        } else if (token == JsonToken.VALUE_NULL) {
+            return 0;
+        } else if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return (long) parser.getDoubleValue();
+        } else if (token == JsonToken.VALUE_STRING) {
+            String text = parser.getText().trim();
+            try {
+                return text.isEmpty() ? 0 : Long.parseLong(text);
+            } catch (NumberFormatException e) {
+                throw new JsonParseException(parser, "Not a whole number: \"" + text + "\"");
+            }
+        }
+        throw new JsonParseException(parser, "Expected a whole number but found " + token);
+    }
+
+    static int readInt(JsonParser parser) throws IOException {
+        long value = readLong(parser);
+        if (value != (int) value) {
+            throw new JsonParseException(parser, value + " is out of range for an int");
+        }
+        return (int) value;
+    }
+
+    static double readDouble(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDoubleValue();
+        } else if (token == JsonToken.VALUE_NULL) {
+            return 0;
+        } else if (token == JsonToken.VALUE_STRING) {
+            String text = parser.getText().trim();
+            try {
+                return text.isEmpty() ? 0 : Double.parseDouble(text);
+            } catch (NumberFormatException e) {
+                throw new JsonParseException(parser, "Not a number: \"" + text + "\"");
+            }
+        }
+        throw new JsonParseException(parser, "Expected a number but found " + token);
+    }
+
+    static boolean readBoolean(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_TRUE) {
+            return true;
+        } else if (token == JsonToken.VALUE_FALSE || token == JsonToken.VALUE_NULL) {
+            return false;
+        } else if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue() != 0;
+        } else if (token == JsonToken.VALUE_STRING) {
+            String text = parser.getText().trim();
+            if (text.equalsIgnoreCase("true")) {
+                return true;
+            } else if (text.equalsIgnoreCase("false") || text.isEmpty()) {
+                return false;
+            }
+            throw new JsonParseException(parser, "Not a boolean: \"" + text + "\"");
+        }
+        throw new JsonParseException(parser, "Expected a boolean but found " + token);
+    }
+
+    static String readString(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        } else if (token != null && token.isScalarValue()) {
+            return parser.getText();
+        }
+        throw new JsonParseException(parser, "Expected a string but found " + token);
+    }
+}
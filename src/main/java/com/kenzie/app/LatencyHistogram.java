@@ -0,0 +1,145 @@
+package com.kenzie.app;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations that is cheap enough to record into on every request.
+ *
+ * Buckets are laid out like an HdrHistogram's: each power of two is split into 32 equal
+ * buckets, so every bucket is within about 3% of the values in it whether they are
+ * microseconds or minutes, and the whole range from 1 ns to a few hours fits in under
+ * 1,300 counters. Recording is one bit-twiddle to find the bucket and one atomic add;
+ * nothing is allocated and nothing is locked.
+ *
+ * Percentiles are read from a Snapshot, which copies the counters once so that all the
+ * numbers it reports agree with each other.
+ *
+ * @author Ethan Tauriainen
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 43;     // 2^44 ns is almost five hours.
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param nanos a duration in nanoseconds. Negative values count as 0 and values over
+     *              the range count as the largest value.
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(bucketFor(value));
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Records the time since a System.nanoTime() reading.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return a consistent copy of the histogram to read percentiles from.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long copied = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            copied += copy[i];
+        }
+        return new Snapshot(copy, copied, total.sum(), max.get());
+    }
+
+    static int bucketFor(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return the largest value that falls in the bucket.
+     */
+    static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        long mantissa = (bucket - SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * The histogram at one moment.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long total;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long total, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMaxNanos() {
+            return max;
+        }
+
+        public double getMeanNanos() {
+            return count == 0 ? 0 : (double) total / count;
+        }
+
+        /**
+         * @param percentile e.g. 99.9
+         * @return a value at least as large as the given share of the recorded values,
+         * and at most about 3% larger than the true percentile. 0 if nothing was recorded.
+         */
+        public long getPercentileNanos(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueIn(i), max);
+                }
+            }
+            return max;
+        }
+
+        public double getPercentileMillis(double percentile) {
+            return getPercentileNanos(percentile) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
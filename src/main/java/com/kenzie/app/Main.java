@@ -1,12 +1,26 @@
 package com.kenzie.app;
 
 import javax.swing.JFrame;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
 
 /**
  * The main class simply serves as the driver for the program.
  * It contains the main method, which simply constructs
  * a GameFrame object.
  *
+ * Started with --server [port] it hosts games over HTTP with a
+ * GameServer instead of opening a window. Add --clues file to play
+ * the clues in a local JSON file rather than fetching them.
+ *
  * @author Ethan Tauriainen
  */
 public class Main {
@@ -31,7 +45,30 @@ public class Main {
      * Finally, because constructing a frame doesn't mean it will display,
      * it must be explicitly declared with the setVisible() method.
      */
-    public static void main(String[] args)  {
+    public static void main(String[] args) throws IOException {
+        // Watch the fetches, parses and answers live over JMX, and keep a record in a CSV file.
+        Metrics.get().registerMBean();
+        Metrics.get().startCsvDump(Metrics.defaultCsvFile(), Duration.ofMinutes(1));
+
+        int serverArg = List.of(args).indexOf("--server");
+        if (serverArg >= 0) {
+            int port = GameServer.DEFAULT_PORT;
+            if (serverArg + 1 < args.length && !args[serverArg + 1].startsWith("--")) {
+                try {
+                    port = Integer.parseInt(args[serverArg + 1]);
+                } catch (NumberFormatException e) {
+                    port = -1;
+                }
+                if (port < 0 || port > 65535) {
+                    System.err.println("Usage: Main [--server [port]] [--clues file]  (port is 0 to 65535)");
+                    System.exit(1);
+                }
+            }
+            int cluesArg = List.of(args).indexOf("--clues");
+            startServer(port, cluesArg >= 0 && cluesArg + 1 < args.length ? Path.of(args[cluesArg + 1]) : null);
+            return;
+        }
+
         java.awt.EventQueue.invokeLater(() -> {
             JFrame frame = new GameFrame();
             frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -39,4 +76,51 @@ public class Main {
             frame.setVisible(true);
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs the game as an HTTP server until the process is stopped.
+     *
+     * @param port the port to listen on.
+     * @param cluesFile a JSON file of clues to play, or null to fetch them from the API.
+     * @throws IOException if the clues file can't be read or the port can't be opened.
+     */
+    private static void startServer(int port, Path cluesFile) throws IOException {
+        BiFunction<String, Integer, CompletableFuture<List<ClueDTO>>> deckSource;
+        ClueStats engineStats = null;
+        if (cluesFile != null) {
+            // Everything is in memory already, so deal straight out of the store, favouring
+            // clues players get right about as often as the target rate. The sampler's
+            // weights are brought up to date each time the stats are saved.
+            ClueStore store;
+            try (InputStream in = Files.newInputStream(cluesFile)) {
+                store = ClueStore.from(in);
+            }
+            ClueStats stats = ClueStats.loadOrStartOver(ClueStats.serverFile());
+            ClueSampler sampler = ClueSampler.weighted(store,
+                    stats.targeting(store, ClueStats.DEFAULT_TARGET_SUCCESS_RATE));
+            stats.startSnapshots(ClueStats.serverFile(), Duration.ofMinutes(1), sampler::refresh);
+            deckSource = sampler.deckSource();
+            engineStats = stats;
+        } else {
+            ClueCache clueCache = new ClueCache();
+            ClueSupplier clueSupplier = new ClueSupplier(() -> {
+                try {
+                    return clueCache.getCluesAsync(GameFrame.CLUES_URL);
+                } catch (URISyntaxException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }, 1000, 300);
+            clueSupplier.prefetch();
+            deckSource = (playerId, count) -> clueSupplier.nextDeck(count);
+        }
+        GameEngine engine = new GameEngine(deckSource, AnswerMatcher.fuzzy(),
+                GameEngine.DEFAULT_QUESTIONS_PER_GAME, GameEngine.DEFAULT_TIME_LIMIT);
+        engine.setStats(engineStats);
+        engine.setLeaderboard(new ConcurrentLeaderboard());
+
+        GameServer server = new GameServer(engine, new InetSocketAddress(port), GameServer.DEFAULT_IDLE_TIMEOUT);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        System.out.println("Serving trivia games on port " + server.getPort() + ".");
+    }
+}
@@ -0,0 +1,394 @@
+package com.kenzie.app;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for the hot paths: fetching clues, parsing them and
+ * players answering them.
+ *
+ * There is one Metrics per process, recorded into from wherever the work happens
+ * (CustomHttpClient, ClueCache, ClueCrawler, GameSession). Recording never locks or
+ * allocates: counters are LongAdders and timings go into LatencyHistograms.
+ *
+ * The numbers can be watched live over JMX once registerMBean() has been called (look
+ * for com.kenzie.app:type=Metrics), and startCsvDump() appends a row of them to a CSV
+ * file every so often for looking at later. If the file was started by a version with
+ * different columns, it is moved aside (to metrics.csv.1, .2, ...) and a new one begun,
+ * so no file ever mixes rows of two layouts.
+ *
+ * @author Ethan Tauriainen
+ */
+public class Metrics implements MetricsMXBean {
+
+    public static final String OBJECT_NAME = "com.kenzie.app:type=Metrics";
+
+    private static final Metrics INSTANCE = new Metrics();
+
+    private static final String CSV_HEADER = "time,fetches,fetchErrors,bytesReceived,responseCodeExceptions,"
+            + "fetchP50Millis,fetchP99Millis,fetchMaxMillis,parses,cluesParsed,parseP50Millis,parseP99Millis,"
+            + "answers,timeouts,answerP50Millis,answerP90Millis,wireBytes,decodedBytes";
+
+    // CSV files already found to start with CSV_HEADER, so it is only read once per file.
+    private final Set<Path> checkedCsvFiles = ConcurrentHashMap.newKeySet();
+
+    private static final ScheduledExecutorService DUMPS = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "metrics-dump");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LatencyHistogram fetchLatency = new LatencyHistogram();
+    private final LatencyHistogram parseLatency = new LatencyHistogram();
+    private final LatencyHistogram answerLatency = new LatencyHistogram();
+    private final LongAdder fetchErrors = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder wireBytes = new LongAdder();
+    private final LongAdder decodedBytes = new LongAdder();
+    private final LongAdder responseCodeExceptions = new LongAdder();
+    private final LongAdder cluesParsed = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final Map<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+    private boolean registered;
+
+    Metrics() {
+    }
+
+    /**
+     * @return the process-wide metrics.
+     */
+    public static Metrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return where the CSV dump goes when none is given: ~/.trivia/metrics.csv
+     */
+    public static Path defaultCsvFile() {
+        return Path.of(System.getProperty("user.home"), ".trivia", "metrics.csv");
+    }
+
+    /**
+     * Records a response to a request sent at startNanos: its latency, status code and,
+     * if the server said, its size.
+     */
+    public void recordFetch(long startNanos, HttpResponse<?> httpResponse) {
+        fetchLatency.recordSince(startNanos);
+        statusCodes.computeIfAbsent(httpResponse.statusCode(), code -> new LongAdder()).increment();
+        long length = httpResponse.headers().firstValueAsLong("Content-Length").orElse(-1);
+        if (length < 0 && httpResponse.body() instanceof String) {
+            length = utf8Length((String) httpResponse.body());
+        } else if (length < 0 && httpResponse.body() instanceof byte[]) {
+            length = ((byte[]) httpResponse.body()).length;
+        }
+        if (length > 0) {
+            bytesReceived.add(length);
+        }
+    }
+
+    /**
+     * Records a request that got no response at all.
+     */
+    public void recordFetchError(long startNanos) {
+        fetchLatency.recordSince(startNanos);
+        fetchErrors.increment();
+    }
+
+    /**
+     * @param bytes body bytes read as they came over the wire, compressed or not.
+     */
+    public void recordWireBytes(long bytes) {
+        wireBytes.add(bytes);
+    }
+
+    /**
+     * @param bytes body bytes read after decompression, i.e. what the parser saw.
+     */
+    public void recordDecodedBytes(long bytes) {
+        decodedBytes.add(bytes);
+    }
+
+    /**
+     * Counts a response turned away because of its status code. Called where the status
+     * is checked, so each bad response is counted once.
+     */
+    public void recordResponseCodeException() {
+        responseCodeExceptions.increment();
+    }
+
+    /**
+     * Records parsing a response that started at startNanos.
+     *
+     * @param clues how many clues were found.
+     */
+    public void recordParse(long startNanos, int clues) {
+        parseLatency.recordSince(startNanos);
+        cluesParsed.add(clues);
+    }
+
+    /**
+     * @param nanos how long the player took to give the correct answer.
+     */
+    public void recordAnswer(long nanos) {
+        answerLatency.record(nanos);
+    }
+
+    public void recordTimeout() {
+        timeouts.increment();
+    }
+
+    /**
+     * Makes the metrics visible over JMX. Calling it again does nothing.
+     */
+    public synchronized void registerMBean() {
+        if (registered) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Registered by another copy of the class; nothing to do.
+        } catch (JMException e) {
+            System.err.println("Couldn't register the metrics MBean: " + e.getMessage());
+            return;
+        }
+        registered = true;
+    }
+
+    /**
+     * Appends a row of the metrics to a CSV file every period, in the background.
+     *
+     * @param file where to write. The header is written when the file is new.
+     * @param period how often.
+     * @return the scheduled task, for cancelling.
+     */
+    public ScheduledFuture<?> startCsvDump(Path file, Duration period) {
+        long millis = Math.max(1, period.toMillis());
+        return DUMPS.scheduleAtFixedRate(() -> {
+            try {
+                dumpCsv(file);
+            } catch (IOException e) {
+                System.err.println("Couldn't write the metrics: " + e.getMessage());
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Appends one row of the metrics, as they are right now, to a CSV file.
+     */
+    public void dumpCsv(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        if (!checkedCsvFiles.contains(file)) {
+            moveAsideIfOtherHeader(file);
+            checkedCsvFiles.add(file);
+        }
+        boolean isNew = !Files.exists(file);
+        LatencyHistogram.Snapshot fetch = fetchLatency.snapshot();
+        LatencyHistogram.Snapshot parse = parseLatency.snapshot();
+        LatencyHistogram.Snapshot answer = answerLatency.snapshot();
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (isNew) {
+                out.write(CSV_HEADER);
+                out.newLine();
+            }
+            out.write(Instant.now() + "," + fetch.getCount() + "," + fetchErrors.sum() + "," + bytesReceived.sum()
+                    + "," + responseCodeExceptions.sum() + "," + fetch.getPercentileMillis(50)
+                    + "," + fetch.getPercentileMillis(99) + "," + millis(fetch.getMaxNanos())
+                    + "," + parse.getCount() + "," + cluesParsed.sum() + "," + parse.getPercentileMillis(50)
+                    + "," + parse.getPercentileMillis(99) + "," + answer.getCount() + "," + timeouts.sum()
+                    + "," + answer.getPercentileMillis(50) + "," + answer.getPercentileMillis(90)
+                    + "," + wireBytes.sum() + "," + decodedBytes.sum());
+            out.newLine();
+        }
+    }
+
+    /**
+     * Moves a CSV file with other columns than ours out of the way, to the first free
+     * name of file.1, file.2 and so on.
+     */
+    private static void moveAsideIfOtherHeader(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        String header;
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            header = in.readLine();
+        }
+        if (header == null || header.equals(CSV_HEADER)) {
+            return;
+        }
+        for (int n = 1; ; n++) {
+            Path old = file.resolveSibling(file.getFileName() + "." + n);
+            if (!Files.exists(old)) {
+                Files.move(file, old);
+                return;
+            }
+        }
+    }
+
+    public LatencyHistogram getFetchLatency() {
+        return fetchLatency;
+    }
+
+    public LatencyHistogram getParseLatency() {
+        return parseLatency;
+    }
+
+    public LatencyHistogram getAnswerLatency() {
+        return answerLatency;
+    }
+
+    @Override
+    public long getFetchCount() {
+        return fetchLatency.getCount();
+    }
+
+    @Override
+    public long getFetchErrors() {
+        return fetchErrors.sum();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    @Override
+    public long getWireBytes() {
+        return wireBytes.sum();
+    }
+
+    @Override
+    public long getDecodedBytes() {
+        return decodedBytes.sum();
+    }
+
+    @Override
+    public double getCompressionRatio() {
+        long wire = wireBytes.sum();
+        return wire == 0 ? 1 : decodedBytes.sum() / (double) wire;
+    }
+
+    @Override
+    public Map<String, Long> getStatusCodes() {
+        Map<String, Long> counts = new TreeMap<>();
+        statusCodes.forEach((code, count) -> counts.put(String.valueOf(code), count.sum()));
+        return counts;
+    }
+
+    @Override
+    public long getResponseCodeExceptions() {
+        return responseCodeExceptions.sum();
+    }
+
+    @Override
+    public double getFetchMeanMillis() {
+        return millis((long) fetchLatency.snapshot().getMeanNanos());
+    }
+
+    @Override
+    public double getFetchP50Millis() {
+        return fetchLatency.snapshot().getPercentileMillis(50);
+    }
+
+    @Override
+    public double getFetchP99Millis() {
+        return fetchLatency.snapshot().getPercentileMillis(99);
+    }
+
+    @Override
+    public double getFetchMaxMillis() {
+        return millis(fetchLatency.snapshot().getMaxNanos());
+    }
+
+    @Override
+    public long getParseCount() {
+        return parseLatency.getCount();
+    }
+
+    @Override
+    public long getCluesParsed() {
+        return cluesParsed.sum();
+    }
+
+    @Override
+    public double getParseP50Millis() {
+        return parseLatency.snapshot().getPercentileMillis(50);
+    }
+
+    @Override
+    public double getParseP99Millis() {
+        return parseLatency.snapshot().getPercentileMillis(99);
+    }
+
+    @Override
+    public long getAnswerCount() {
+        return answerLatency.getCount();
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public double getAnswerP50Millis() {
+        return answerLatency.snapshot().getPercentileMillis(50);
+    }
+
+    @Override
+    public double getAnswerP90Millis() {
+        return answerLatency.snapshot().getPercentileMillis(90);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return how many bytes the text takes up as UTF-8, without encoding it.
+     */
+    static long utf8Length(String text) {
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
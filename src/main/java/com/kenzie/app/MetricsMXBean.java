@@ -0,0 +1,64 @@
+package com.kenzie.app;
+
+import java.util.Map;
+
+/**
+ * What Metrics shows over JMX, for JConsole, VisualVM or any other JMX client.
+ * Times are in milliseconds.
+ *
+ * @author Ethan Tauriainen
+ */
+public interface MetricsMXBean {
+
+    long getFetchCount();
+
+    long getFetchErrors();
+
+    long getBytesReceived();
+
+    /**
+     * @return body bytes read off the network, compressed where the server compressed them.
+     */
+    long getWireBytes();
+
+    /**
+     * @return body bytes after decompression.
+     */
+    long getDecodedBytes();
+
+    /**
+     * @return decoded bytes per wire byte; 1 when nothing was compressed.
+     */
+    double getCompressionRatio();
+
+    /**
+     * @return how many responses came back with each HTTP status code.
+     */
+    Map<String, Long> getStatusCodes();
+
+    long getResponseCodeExceptions();
+
+    double getFetchMeanMillis();
+
+    double getFetchP50Millis();
+
+    double getFetchP99Millis();
+
+    double getFetchMaxMillis();
+
+    long getParseCount();
+
+    long getCluesParsed();
+
+    double getParseP50Millis();
+
+    double getParseP99Millis();
+
+    long getAnswerCount();
+
+    long getTimeoutCount();
+
+    double getAnswerP50Millis();
+
+    double getAnswerP90Millis();
+}
@@ -0,0 +1,40 @@
+package com.kenzie.app;
+
+/**
+ * A clue's answer along with the normalized form an AnswerMatcher compares against.
+ * Built once per clue by AnswerMatcher.prepare().
+ *
+ * @author Ethan Tauriainen
+ */
+public class PreparedAnswer {
+
+    private final String original;
+    private final String normalized;
+
+    public PreparedAnswer(String original, String normalized) {
+        this.original = original;
+        this.normalized = normalized;
+    }
+
+    /**
+     * @return the answer as it came from the API.
+     */
+    public String getOriginal() {
+        return original;
+    }
+
+    /**
+     * @return the answer after normalization.
+     */
+    public String getNormalized() {
+        return normalized;
+    }
+
+    @Override
+    public String toString() {
+        return "PreparedAnswer{" +
+                "original='" + original + '\'' +
+                ", normalized='" + normalized + '\'' +
+                '}';
+    }
+}
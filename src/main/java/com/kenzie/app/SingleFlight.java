@@ -0,0 +1,189 @@
+package com.kenzie.app;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Makes concurrent calls for the same key share one call.
+ *
+ * When a lot of games start at the same moment they all want the same clues from the
+ * same URL. Instead of each sending its own request and parsing its own copy of the
+ * same body, the first caller starts the call (a "flight") and everyone who asks for the
+ * same key while it is in the air waits on that one. When it lands, every waiter gets the
+ * result, or the same failure. Nothing is kept afterwards: the next call for the key
+ * starts a new flight, so this is coalescing, not caching.
+ *
+ * Every waiter gets a future of their own, holding their own view of the result (e.g. a
+ * copy of a list, so that one game shuffling its clues doesn't shuffle everyone's).
+ * Cancelling that future only stops that waiter waiting. The flight is counted down as
+ * waiters leave, and only once the last one has gone is the call itself cancelled.
+ *
+ * @param <K> what identifies a call, e.g. the URL.
+ * @param <V> what the call produces.
+ *
+ * @author Ethan Tauriainen
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, Flight> flights = new ConcurrentHashMap<>();
+    private final Function<? super V, ? extends V> view;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder started = new LongAdder();
+
+    /**
+     * Every waiter gets the very same result.
+     */
+    public SingleFlight() {
+        this(Function.identity());
+    }
+
+    /**
+     * @param view makes each waiter's own view of the result, e.g. ArrayList::new.
+     */
+    public SingleFlight(Function<? super V, ? extends V> view) {
+        this.view = view;
+    }
+
+    /**
+     * Joins the flight for the key, or starts one with the call if there is none.
+     *
+     * @param key identifies the call.
+     * @param call starts the call. Only run if there is no flight for the key already.
+     * @return a future for this caller alone. It completes with a view of the result, or
+     * exceptionally with what the call failed with.
+     */
+    public CompletableFuture<V> execute(K key, Supplier<? extends CompletableFuture<? extends V>> call) {
+        calls.increment();
+        while (true) {
+            Flight fresh = new Flight();
+            Flight flight = flights.putIfAbsent(key, fresh);
+            if (flight == null) {
+                flight = fresh;
+                flight.join();
+                start(key, flight, call);
+            } else if (!flight.join()) {
+                continue;   // Its last waiter just left; it is on its way out of the map.
+            }
+            return flight.waiter(key);
+        }
+    }
+
+    /**
+     * @return how many keys have a flight in the air.
+     */
+    public int inFlight() {
+        return flights.size();
+    }
+
+    /**
+     * @return how many times execute has been called.
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * @return how many calls were actually made. The rest shared one of these.
+     */
+    public long getFlights() {
+        return started.sum();
+    }
+
+    private void start(K key, Flight flight, Supplier<? extends CompletableFuture<? extends V>> call) {
+        started.increment();
+        CompletableFuture<? extends V> upstream;
+        try {
+            upstream = call.get();
+        } catch (RuntimeException e) {
+            upstream = CompletableFuture.failedFuture(e);
+        }
+        if (!flight.setUpstream(upstream)) {
+            upstream.cancel(true);  // Everyone left before it even started.
+            return;
+        }
+        upstream.whenComplete((value, error) -> {
+            // Out of the map first, so that nobody joins a flight that has already landed.
+            flights.remove(key, flight);
+            if (error != null) {
+                flight.shared.completeExceptionally(unwrap(error));
+            } else {
+                flight.shared.complete(value);
+            }
+        });
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * One call in the air, and how many are waiting on it.
+     */
+    private final class Flight {
+        private final CompletableFuture<V> shared = new CompletableFuture<>();
+        private CompletableFuture<? extends V> upstream;
+        private int waiters;
+        private boolean abandoned;
+
+        /**
+         * @return false if the flight has been abandoned and can't be joined.
+         */
+        private synchronized boolean join() {
+            if (abandoned) {
+                return false;
+            }
+            waiters++;
+            return true;
+        }
+
+        /**
+         * @return false if the flight was abandoned before the call started.
+         */
+        private synchronized boolean setUpstream(CompletableFuture<? extends V> upstream) {
+            this.upstream = upstream;
+            return !abandoned;
+        }
+
+        private CompletableFuture<V> waiter(K key) {
+            CompletableFuture<V> mine = new CompletableFuture<>();
+            shared.whenComplete((value, error) -> {
+                if (error != null) {
+                    mine.completeExceptionally(error);
+                } else {
+                    try {
+                        mine.complete(value == null ? null : view.apply(value));
+                    } catch (RuntimeException e) {
+                        mine.completeExceptionally(e);
+                    }
+                }
+            });
+            mine.whenComplete((value, error) -> {
+                if (error instanceof CancellationException && !shared.isDone()) {
+                    leave(key);
+                }
+            });
+            return mine;
+        }
+
+        private void leave(K key) {
+            CompletableFuture<? extends V> call;
+            synchronized (this) {
+                if (--waiters > 0 || shared.isDone()) {
+                    return;
+                }
+                abandoned = true;
+                call = upstream;
+            }
+            flights.remove(key, this);
+            shared.cancel(false);
+            if (call != null) {
+                call.cancel(true);
+            }
+        }
+    }
+}
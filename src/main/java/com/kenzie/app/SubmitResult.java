@@ -0,0 +1,15 @@
+package com.kenzie.app;
+
+/**
+ * What happened when an answer was submitted to a GameSession.
+ *
+ * @author Ethan Tauriainen
+ */
+public enum SubmitResult {
+    CORRECT,
+    WRONG,
+    // The question's clock had already run out.
+    TIMED_OUT,
+    // The question isn't open: it was already answered, or the game is over.
+    NOT_ACCEPTING
+}
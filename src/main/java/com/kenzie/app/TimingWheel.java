@@ -0,0 +1,367 @@
+package com.kenzie.app;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hashed timing wheel: one thread keeping track of any number of deadlines.
+ *
+ * A game needs a deadline for every question, and a server can host thousands of games.
+ * A timer (or a Swing Timer ticking once a second) per game doesn't scale to that, and a
+ * priority queue costs O(log n) for every question asked. The wheel is an array of
+ * buckets, each covering one tick of time. A timeout goes into the bucket its deadline
+ * falls in, with a count of how many more turns of the wheel it has to wait if the
+ * deadline is further off than one turn. Scheduling and cancelling are O(1), and once a
+ * tick the wheel thread walks a single bucket.
+ *
+ * Timeouts fire up to one tick late and never early. Everything that expires in a tick
+ * is handed to the callback executor as a single batch, so a tick with a thousand
+ * expiring questions costs one handoff, not a thousand. The tasks never run on the wheel
+ * thread itself, so a slow one (or one waiting on a lock) can't hold up the ticks.
+ * A repeating timeout is rescheduled from the deadline it was meant to fire at, so it
+ * keeps its rhythm even when the wheel has fallen behind.
+ *
+ * Only the wheel thread touches the buckets. Other threads schedule and cancel through
+ * lock-free queues that the wheel drains at the start of each tick.
+ *
+ * @author Ethan Tauriainen
+ */
+public class TimingWheel implements Closeable {
+
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final long tickNanos;
+    private final Bucket[] buckets;
+    private final int mask;
+    private final Executor callbackExecutor;
+    private final ExecutorService ownExecutor;     // Null if the callback executor was given.
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pending = new AtomicLong();
+    private final long startTime;
+    private final Thread worker;
+    private volatile boolean closed;
+    private long tick;  // Only the wheel thread reads or writes this.
+
+    /**
+     * The wheel shared by every game in the process: 100 ms ticks and 512 buckets, so one
+     * turn of the wheel covers a little over 51 seconds.
+     */
+    private static class Shared {
+        private static final TimingWheel WHEEL = start(Duration.ofMillis(100), 512);
+    }
+
+    /**
+     * @return the process-wide wheel. Its callbacks run on its callback thread.
+     */
+    public static TimingWheel shared() {
+        return Shared.WHEEL;
+    }
+
+    /**
+     * Starts a wheel that runs its callbacks, one tick's batch after another, on a thread
+     * of its own (not the wheel thread). Callbacks should still be quick.
+     *
+     * @param tick how much time each bucket covers; the precision of the wheel.
+     * @param wheelSize how many buckets. Rounded up to a power of two.
+     * @return the running wheel.
+     */
+    public static TimingWheel start(Duration tick, int wheelSize) {
+        return started(new TimingWheel(tick, wheelSize, null));
+    }
+
+    /**
+     * @param tick how much time each bucket covers; the precision of the wheel.
+     * @param wheelSize how many buckets. Rounded up to a power of two.
+     * @param callbackExecutor runs each tick's batch of expired timeouts.
+     * @return the running wheel.
+     */
+    public static TimingWheel start(Duration tick, int wheelSize, Executor callbackExecutor) {
+        return started(new TimingWheel(tick, wheelSize, callbackExecutor));
+    }
+
+    private static TimingWheel started(TimingWheel wheel) {
+        wheel.worker.start();
+        return wheel;
+    }
+
+    /**
+     * @param callbackExecutor runs the callbacks, or null for a thread of the wheel's own.
+     */
+    private TimingWheel(Duration tick, int wheelSize, Executor callbackExecutor) {
+        if (tick.toNanos() <= 0 || wheelSize < 1 || wheelSize > 1 << 30) {
+            throw new IllegalArgumentException("Need a positive tick and between 1 and 2^30 buckets.");
+        }
+        this.tickNanos = tick.toNanos();
+        int size = Integer.highestOneBit(wheelSize) == wheelSize ? wheelSize : Integer.highestOneBit(wheelSize) << 1;
+        this.buckets = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        if (callbackExecutor == null) {
+            this.ownExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "timing-wheel-callbacks");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.callbackExecutor = ownExecutor;
+        } else {
+            this.ownExecutor = null;
+            this.callbackExecutor = callbackExecutor;
+        }
+        this.startTime = System.nanoTime();
+        this.worker = new Thread(this::run, "timing-wheel");
+        worker.setDaemon(true);
+    }
+
+    /**
+     * Runs the task once, after the delay.
+     *
+     * @param delay how long to wait.
+     * @param unit the unit of the delay.
+     * @param task what to run.
+     * @return a handle for cancelling the timeout.
+     */
+    public Timeout schedule(long delay, TimeUnit unit, Runnable task) {
+        return add(new Timeout(task, deadlineAfter(unit.toNanos(delay)), 0));
+    }
+
+    /**
+     * Runs the task every period, starting one period from now, until it is cancelled.
+     *
+     * @param period the time between runs.
+     * @param task what to run.
+     * @return a handle for cancelling the timeout.
+     */
+    public Timeout scheduleRepeating(Duration period, Runnable task) {
+        long periodNanos = Math.max(tickNanos, period.toNanos());
+        return add(new Timeout(task, deadlineAfter(periodNanos), periodNanos));
+    }
+
+    /**
+     * @return the number of timeouts scheduled and not yet fired or cancelled.
+     */
+    public long pending() {
+        return pending.get();
+    }
+
+    /**
+     * Stops the wheel thread. Timeouts that haven't fired never will.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        worker.interrupt();
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+
+    private long deadlineAfter(long delayNanos) {
+        return System.nanoTime() + Math.max(0, delayNanos) - startTime;
+    }
+
+    private Timeout add(Timeout timeout) {
+        if (closed) {
+            throw new IllegalStateException("The timing wheel has been closed.");
+        }
+        pending.incrementAndGet();
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        List<Timeout> expired = new ArrayList<>();
+        while (!closed) {
+            long tickDeadline = tickNanos * (tick + 1);
+            long sleep = tickDeadline - (System.nanoTime() - startTime);
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+                continue;   // Woken early, or time to check again.
+            }
+            removeCancelled();
+            transferScheduled();
+            buckets[(int) (tick & mask)].expire(tickDeadline, expired);
+            tick++;
+            if (!expired.isEmpty()) {
+                dispatch(new ArrayList<>(expired));
+                expired.clear();
+            }
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void transferScheduled() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout timeout = scheduled.poll();
+            if (timeout == null) {
+                break;
+            }
+            if (!timeout.isCancelled()) {
+                place(timeout, tick);
+            }
+        }
+    }
+
+    /**
+     * @param nextTick the next tick the wheel will walk. A deadline that has already passed
+     *                 goes in its bucket, and the rounds are counted from it.
+     */
+    private void place(Timeout timeout, long nextTick) {
+        long dueTick = Math.max(timeout.deadline / tickNanos, nextTick);
+        timeout.remainingRounds = (dueTick - nextTick) / buckets.length;
+        buckets[(int) (dueTick & mask)].add(timeout);
+    }
+
+    private void dispatch(List<Timeout> batch) {
+        try {
+            callbackExecutor.execute(() -> {
+                for (Timeout timeout : batch) {
+                    if (timeout.period > 0 && timeout.isCancelled()) {
+                        continue;   // Cancelled between being collected and run.
+                    }
+                    try {
+                        timeout.task.run();
+                    } catch (RuntimeException e) {
+                        System.err.println("A timing wheel task failed: " + e);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            System.err.println("Couldn't run the timing wheel's callbacks: " + e);
+        }
+    }
+
+    /**
+     * A scheduled task. Cancelling is O(1): the wheel unlinks it on its next tick.
+     */
+    public final class Timeout {
+        private static final int WAITING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private final Runnable task;
+        private final long period;
+        private long deadline;      // Nanoseconds since the wheel started.
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadline, long period) {
+            this.task = task;
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        /**
+         * @return true if this call cancelled the timeout, false if it had already fired
+         * or been cancelled.
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(WAITING, CANCELLED)) {
+                return false;
+            }
+            pending.decrementAndGet();
+            cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+
+    /**
+     * The timeouts that fall in one tick of the wheel, as a doubly linked list.
+     */
+    private final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        private void expire(long tickDeadline, List<Timeout> expired) {
+            List<Timeout> repeats = null;
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else if (timeout.remainingRounds <= 0 && timeout.deadline <= tickDeadline) {
+                    remove(timeout);
+                    if (timeout.period > 0) {
+                        timeout.deadline += timeout.period;     // From when it was due, not from now.
+                        if (repeats == null) {
+                            repeats = new ArrayList<>();
+                        }
+                        repeats.add(timeout);
+                        expired.add(timeout);
+                    } else if (timeout.state.compareAndSet(Timeout.WAITING, Timeout.EXPIRED)) {
+                        pending.decrementAndGet();
+                        expired.add(timeout);
+                    }
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+            if (repeats != null) {
+                // This bucket has just been walked, so they are counted from the next tick.
+                // Otherwise one already due again would wait out a whole turn of the wheel.
+                for (Timeout repeat : repeats) {
+                    place(repeat, tick + 1);
+                }
+            }
+        }
+    }
+}
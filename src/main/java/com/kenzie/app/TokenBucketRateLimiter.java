@@ -0,0 +1,61 @@
+package com.kenzie.app;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket for keeping a client under a request rate.
+ *
+ * The bucket fills at a steady rate up to its burst size and each request takes one
+ * token. Rather than making callers spin, reserve() hands out the next token right away
+ * and says how long the caller has to wait before using it. That lets asynchronous code
+ * schedule the request instead of holding a thread, while acquire() simply sleeps.
+ *
+ * @author Ethan Tauriainen
+ */
+public class TokenBucketRateLimiter {
+
+    private final double tokensPerNano;
+    private final double burst;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param permitsPerSecond the steady rate requests are allowed at.
+     * @param burst how many requests may go out back to back after a quiet spell.
+     */
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Need a positive rate and a burst of at least 1.");
+        }
+        this.tokensPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.tokens = burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Takes a token, going into debt if none are left.
+     *
+     * @return how many nanoseconds the caller must wait before making its request. Zero
+     * if a token was available.
+     */
+    public synchronized long reserve() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+    }
+
+    /**
+     * Blocks until the caller may make its request.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public void acquire() throws InterruptedException {
+        long wait = reserve();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
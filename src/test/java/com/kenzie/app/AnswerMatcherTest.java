@@ -0,0 +1,86 @@
+package com.kenzie.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class AnswerMatcherTest {
+    private final AnswerMatcher fuzzy = AnswerMatcher.fuzzy();
+
+    private boolean fuzzyMatches(String answer, String userAnswer) {
+        return fuzzy.matches(fuzzy.prepare(answer), userAnswer);
+    }
+
+    @Test
+    public void normalizesMarkupAccentsAndArticles() {
+        assertEquals("old man the sea", FuzzyAnswerMatcher.normalize("<i>The Old Man &amp; the Sea</i>"));
+        assertEquals("creme brulee", FuzzyAnswerMatcher.normalize("Cr\u00e8me Br\u00fbl\u00e9e"));
+        assertEquals("sheep", FuzzyAnswerMatcher.normalize("What is a sheep?"));
+        assertEquals("isaiah", FuzzyAnswerMatcher.normalize("Who's Isaiah"));
+    }
+
+    @Test
+    public void acceptsVariationsOfTheAnswer() {
+        assertTrue(fuzzyMatches("sheep", "what are sheep"));
+        assertTrue(fuzzyMatches("Sean Combs", "who is sean combs"));
+        assertTrue(fuzzyMatches("<i>Hamlet</i>", "Hamlet"));
+        assertTrue(fuzzyMatches("(Lake) Geneva", "geneva"));
+        assertTrue(fuzzyMatches("Beyonc\u00e9", "beyonce"));
+        assertTrue(fuzzyMatches("it\\'s a wonderful life", "Its a Wonderful Life"));
+    }
+
+    @Test
+    public void forgivesSmallTypos() {
+        assertTrue(fuzzyMatches("Mississippi", "misissipi"));
+        assertTrue(fuzzyMatches("Sean Combs", "I think it's Shawn Combs"));
+        assertFalse(fuzzyMatches("Mississippi", "missouri"));
+        // Short answers must be exact.
+        assertFalse(fuzzyMatches("Ohio", "iowa"));
+        assertFalse(fuzzyMatches("cat", "cot"));
+    }
+
+    @Test
+    public void rejectsWrongOrEmptyAnswers() {
+        assertFalse(fuzzyMatches("sheep", ""));
+        assertFalse(fuzzyMatches("sheep", "goats"));
+        assertFalse(fuzzyMatches("art", "a party"));
+    }
+
+    @Test
+    public void boundedDistanceAgreesWithPlainLevenshtein() {
+        String[] words = {"kitten", "sitting", "saturday", "sunday", "flaw", "lawn", "", "a", "abcdef", "azced"};
+        for (String a : words) {
+            for (String b : words) {
+                int distance = levenshtein(a, b);
+                for (int k = 0; k <= 4; k++) {
+                    assertEquals(distance <= k, FuzzyAnswerMatcher.withinDistance(a, 0, a.length(), b, k),
+                            a + " vs " + b + " within " + k);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void containsMatcherKeepsOriginalRule() {
+        AnswerMatcher contains = AnswerMatcher.contains();
+        assertTrue(contains.matches(contains.prepare("Isiah"), "who is isiah"));
+        assertFalse(contains.matches(contains.prepare("Isiah"), "isaiah"));
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            for (int j = 0; j <= b.length(); j++) {
+                if (i == 0 || j == 0) {
+                    d[i][j] = i + j;
+                } else {
+                    int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                    d[i][j] = Math.min(d[i - 1][j - 1] + cost, Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+}
@@ -0,0 +1,106 @@
+package com.kenzie.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+public class ClueArchiveTest {
+    private static final String INPUT_FILE = "clues.json";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void convertedArchiveReadsBackEveryClue() throws IOException {
+        List<ClueDTO> expected = CustomHttpClient.getCluesList(Files.readString(Path.of(INPUT_FILE)));
+        Path archivePath = tempDir.resolve("clues.archive");
+
+        int written = ClueArchive.convert(Path.of(INPUT_FILE), archivePath);
+
+        assertEquals(expected.size(), written);
+        try (ClueArchive archive = ClueArchive.open(archivePath)) {
+            assertEquals(expected.size(), archive.size());
+            // Read them back out of order, the way random selection would.
+            for (int i = expected.size() - 1; i >= 0; i--) {
+                ClueDTO clue = archive.get(i);
+                assertEquals(expected.get(i).getId(), clue.getId());
+                assertEquals(expected.get(i).getQuestion(), clue.getQuestion());
+                assertEquals(expected.get(i).getAnswer(), clue.getAnswer());
+                assertEquals(expected.get(i).getValue(), clue.getValue());
+                assertEquals(expected.get(i).getCategory().getTitle(), clue.getCategory().getTitle());
+                assertEquals(expected.get(i).getAnswer(),
+                        StandardCharsets.UTF_8.decode(archive.answerBytes(i)).toString());
+            }
+        }
+    }
+
+    @Test
+    public void rejectsFilesThatAreNotArchives() throws IOException {
+        Path notAnArchive = tempDir.resolve("clues.json");
+        Files.copy(Path.of(INPUT_FILE), notAnArchive);
+
+        assertThrows(IOException.class, () -> ClueArchive.open(notAnArchive));
+    }
+
+    @Test
+    public void rejectsTruncatedArchives() throws IOException {
+        Path archivePath = tempDir.resolve("clues.archive");
+        ClueArchive.convert(Path.of(INPUT_FILE), archivePath);
+        byte[] whole = Files.readAllBytes(archivePath);
+
+        // Cut off anywhere past the header: inside the pool, the index and the categories.
+        for (int length : new int[] {whole.length - 1, ClueArchive.HEADER_SIZE + 40, ClueArchive.HEADER_SIZE}) {
+            Path truncated = tempDir.resolve("truncated-" + length + ".archive");
+            Files.write(truncated, Arrays.copyOf(whole, length));
+            assertThrows(IOException.class, () -> ClueArchive.open(truncated), "length " + length);
+        }
+    }
+
+    @Test
+    public void rejectsSectionsOutsideTheFile() throws IOException {
+        Path archivePath = tempDir.resolve("clues.archive");
+        ClueArchive.convert(Path.of(INPUT_FILE), archivePath);
+        byte[] whole = Files.readAllBytes(archivePath);
+
+        // Each section start, moved past the end of the file, then made negative.
+        for (int field : new int[] {16, 24, 32, 40}) {
+            for (long bad : new long[] {whole.length + 1L, -1L, Long.MAX_VALUE}) {
+                byte[] bytes = whole.clone();
+                ByteBuffer.wrap(bytes).putLong(field, bad);
+                Path corrupt = tempDir.resolve("corrupt.archive");
+                Files.write(corrupt, bytes);
+                assertThrows(IOException.class, () -> ClueArchive.open(corrupt), field + " = " + bad);
+            }
+        }
+    }
+
+    @Test
+    public void badStringOffsetFailsWhenTheClueIsRead() throws IOException {
+        Path archivePath = tempDir.resolve("clues.archive");
+        ClueArchive.convert(Path.of(INPUT_FILE), archivePath);
+        byte[] bytes = Files.readAllBytes(archivePath);
+        ByteBuffer header = ByteBuffer.wrap(bytes);
+        int firstEntry = (int) header.getLong(24);
+        header.putInt(firstEntry + 28, Integer.MAX_VALUE);     // The first answer's length.
+        Files.write(archivePath, bytes);
+
+        try (ClueArchive archive = ClueArchive.open(archivePath)) {
+            UncheckedIOException e = assertThrows(UncheckedIOException.class, () -> archive.answer(0));
+            assertTrue(e.getMessage().contains("corrupt"), e.getMessage());
+            assertThrows(UncheckedIOException.class, () -> archive.answerBytes(0));
+            archive.get(1);     // The others are still fine.
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.kenzie.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class ClueCacheTest {
+    private MockWebServer mockWebServer;
+
+    private static String GET_CLUES_RESPONSE;
+    private static final String INPUT_FILE = "clues.json";
+    private static String URL_ALL = "api/clues";
+
+    @TempDir
+    Path cacheDir;
+
+    @BeforeEach
+    void init() throws IOException {
+        this.mockWebServer = new MockWebServer();
+        this.mockWebServer.start();
+
+        GET_CLUES_RESPONSE = Files.readString(Path.of(INPUT_FILE));
+    }
+
+    @AfterEach
+    void shutdown() throws IOException {
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    public void servesFreshEntryFromDisk() throws Exception {
+        this.mockWebServer.enqueue(new MockResponse().setBody(GET_CLUES_RESPONSE));
+        ClueCache cache = new ClueCache(cacheDir, Duration.ofHours(1));
+        String url = this.mockWebServer.url(URL_ALL).toString();
+
+        List<ClueDTO> first = cache.getCluesAsync(url).get();
+        List<ClueDTO> second = cache.getCluesAsync(url).get();
+
+        assertEquals(5, first.size());
+        assertEquals(5, second.size());
+        assertEquals(1, this.mockWebServer.getRequestCount());
+    }
+
+    @Test
+    public void compressedBodyIsCachedDecompressed() throws Exception {
+        this.mockWebServer.enqueue(new MockResponse()
+                .addHeader("Content-Encoding", "gzip")
+                .setBody(new Buffer().write(CustomHttpClientTest.gzip(GET_CLUES_RESPONSE))));
+        String url = this.mockWebServer.url(URL_ALL).toString();
+
+        Path body = new ClueCache(cacheDir, Duration.ofHours(1)).fetch(url);
+
+        assertEquals(GET_CLUES_RESPONSE, Files.readString(body));
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            assertEquals(1, files.filter(file -> file.toString().endsWith(".json")).count());
+        }
+    }
+
+    @Test
+    public void revalidatesExpiredEntryWithETag() throws Exception {
+        this.mockWebServer.enqueue(new MockResponse().setBody(GET_CLUES_RESPONSE).addHeader("ETag", "\"v1\""));
+        this.mockWebServer.enqueue(new MockResponse().setResponseCode(304));
+        String url = this.mockWebServer.url(URL_ALL).toString();
+
+        new ClueCache(cacheDir, Duration.ofMinutes(1)).fetch(url);
+        Clock later = Clock.fixed(Instant.now().plus(Duration.ofHours(1)), ZoneOffset.UTC);
+        Path body = new ClueCache(cacheDir, Duration.ofMinutes(1), later).fetch(url);
+
+        this.mockWebServer.takeRequest();
+        RecordedRequest revalidation = this.mockWebServer.takeRequest();
+        assertEquals("\"v1\"", revalidation.getHeader("If-None-Match"));
+        assertEquals(GET_CLUES_RESPONSE, Files.readString(body));
+    }
+
+    @Test
+    public void servesStaleEntryWhenOffline() throws Exception {
+        this.mockWebServer.enqueue(new MockResponse().setBody(GET_CLUES_RESPONSE));
+        String url = this.mockWebServer.url(URL_ALL).toString();
+        new ClueCache(cacheDir, Duration.ofMinutes(1)).fetch(url);
+        this.mockWebServer.shutdown();
+
+        Clock later = Clock.fixed(Instant.now().plus(Duration.ofHours(1)), ZoneOffset.UTC);
+        List<ClueDTO> clues = new ClueCache(cacheDir, Duration.ofMinutes(1), later).getCluesAsync(url).get();
+
+        assertEquals(5, clues.size());
+    }
+
+    @Test
+    public void badResponseCodeWithoutEntryFails() throws Exception {
+        this.mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+        ClueCache cache = new ClueCache(cacheDir, Duration.ofHours(1));
+
+        assertThrows(ResponseCodeException.class, () -> cache.fetch(this.mockWebServer.url(URL_ALL).toString()));
+        try (var files = Files.list(cacheDir)) {
+            assertNull(files.filter(file -> file.toString().endsWith(".json")).findAny().orElse(null));
+        }
+    }
+
+    @Test
+    public void unreadableMetaFileCountsAsNoEntry() throws Exception {
+        this.mockWebServer.enqueue(new MockResponse().setBody(GET_CLUES_RESPONSE));
+        this.mockWebServer.enqueue(new MockResponse().setBody(GET_CLUES_RESPONSE));
+        ClueCache cache = new ClueCache(cacheDir, Duration.ofHours(1));
+        String url = this.mockWebServer.url(URL_ALL).toString();
+        cache.fetch(url);
+        Path metaFile = cacheDir.resolve(ClueCache.keyFor(url) + ".properties");
+        Files.writeString(metaFile, "fetchedAt=yesterday\n");
+
+        Path body = cache.fetch(url);
+
+        assertEquals(GET_CLUES_RESPONSE, Files.readString(body));
+        assertEquals(2, this.mockWebServer.getRequestCount());
+        assertTrue(Files.readString(metaFile).contains("fetchedAt="));
+        assertEquals(5, cache.getCluesAsync(url).get().size());    // Fresh again, from disk.
+        assertEquals(2, this.mockWebServer.getRequestCount());
+    }
+
+    @Test
+    public void badCompressedBodyServesStaleEntryAndLeavesNoTempFile() throws Exception {
+        this.mockWebServer.enqueue(new MockResponse().setBody(GET_CLUES_RESPONSE));
+        this.mockWebServer.enqueue(new MockResponse().addHeader("Content-Encoding", "gzip").setBody("not gzip"));
+        this.mockWebServer.enqueue(new MockResponse().addHeader("Content-Encoding", "gzip").setBody("not gzip"));
+        String url = this.mockWebServer.url(URL_ALL).toString();
+        new ClueCache(cacheDir, Duration.ofMinutes(1)).fetch(url);
+
+        Clock later = Clock.fixed(Instant.now().plus(Duration.ofHours(1)), ZoneOffset.UTC);
+        Path body = new ClueCache(cacheDir, Duration.ofMinutes(1), later).fetch(url);
+
+        assertEquals(GET_CLUES_RESPONSE, Files.readString(body));
+        assertEquals(0, tempFiles());
+
+        // Without an entry to fall back on, the bad body fails the fetch, still leaving nothing behind.
+        ClueCache empty = new ClueCache(cacheDir.resolve("empty"), Duration.ofMinutes(1));
+        assertThrows(IOException.class, () -> empty.fetch(url));
+        assertEquals(0, tempFiles());
+    }
+
+    private long tempFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(cacheDir)) {
+            return files.filter(file -> file.toString().endsWith(".tmp")).count();
+        }
+    }
+}
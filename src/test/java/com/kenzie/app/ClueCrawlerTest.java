@@ -0,0 +1,103 @@
+package com.kenzie.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ClueCrawlerTest {
+    private MockWebServer mockWebServer;
+
+    private static String GET_CLUES_RESPONSE;
+    private static final String INPUT_FILE = "clues.json";
+    private static String URL_ALL = "api/clues";
+
+    @BeforeEach
+    void init() throws IOException {
+        this.mockWebServer = new MockWebServer();
+        this.mockWebServer.start();
+
+        GET_CLUES_RESPONSE = Files.readString(Path.of(INPUT_FILE));
+    }
+
+    @AfterEach
+    void shutdown() throws IOException {
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    public void retriesAndDeduplicatesAcrossPages() throws Exception {
+        ConcurrentHashMap<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+        this.mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                int hit = hits.computeIfAbsent(request.getPath(), path -> new AtomicInteger()).incrementAndGet();
+                if (request.getPath().endsWith("page=2") && hit == 1) {
+                    return new MockResponse().setResponseCode(503);
+                }
+                if (request.getPath().endsWith("page=3") && hit == 1) {
+                    return new MockResponse().setResponseCode(429).addHeader("Retry-After", "0");
+                }
+                if (request.getPath().endsWith("page=4")) {
+                    return new MockResponse().setResponseCode(404);
+                }
+                return new MockResponse().setBody(GET_CLUES_RESPONSE);
+            }
+        });
+        ClueCrawler crawler = new ClueCrawler(2, new TokenBucketRateLimiter(1000, 10), 3, Duration.ofMillis(10));
+        List<String> urls = ClueCrawler.pageURLs(this.mockWebServer.url(URL_ALL).toString(), 1, 4);
+
+        ClueCrawler.Result result = crawler.crawl(urls).get();
+
+        // Pages 1-3 all return the same five clues.
+        assertEquals(5, result.getClues().size());
+        assertEquals(10, result.getDuplicates());
+        assertEquals(3, result.getPagesFetched());
+        assertEquals(2, result.getRetries());
+        assertEquals(1, result.getFailures().size());
+        assertTrue(result.getFailures().get(urls.get(3)) instanceof ResponseCodeException);
+    }
+
+    @Test
+    public void givesUpAfterMaxRetries() throws Exception {
+        this.mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setResponseCode(500);
+            }
+        });
+        ClueCrawler crawler = new ClueCrawler(1, new TokenBucketRateLimiter(1000, 10), 2, Duration.ofMillis(1));
+
+        ClueCrawler.Result result = crawler.crawl(List.of(this.mockWebServer.url(URL_ALL).toString())).get();
+
+        assertEquals(0, result.getClues().size());
+        assertEquals(1, result.getFailures().size());
+        assertEquals(3, this.mockWebServer.getRequestCount());
+    }
+
+    @Test
+    public void rateLimiterMakesCallersWait() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 2);
+
+        assertEquals(0, limiter.reserve());
+        assertEquals(0, limiter.reserve());
+        long wait = limiter.reserve();
+
+        // The third token is a tenth of a second away.
+        assertTrue(wait > Duration.ofMillis(50).toNanos() && wait <= Duration.ofMillis(100).toNanos());
+    }
+}
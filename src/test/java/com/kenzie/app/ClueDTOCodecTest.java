@@ -0,0 +1,112 @@
+package com.kenzie.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ClueDTOCodecTest {
+    private static final String INPUT_FILE = "clues.json";
+
+    @AfterEach
+    void restoreMode() {
+        CustomHttpClient.setCodecMode(CustomHttpClient.CodecMode.GENERATED);
+    }
+
+    @Test
+    public void generatedCodecMatchesDatabindOnCluesJson() throws IOException {
+        String json = Files.readString(Path.of(INPUT_FILE));
+
+        List<String> generated = parseBothWays(json, CustomHttpClient.CodecMode.GENERATED);
+        List<String> databind = parseBothWays(json, CustomHttpClient.CodecMode.DATABIND);
+
+        assertEquals(10, generated.size());     // 5 clues, from a String and from a stream.
+        assertEquals(databind, generated);
+
+        ClueListDTO clues = CustomHttpClient.CLUE_LIST_READER.readValue(json);
+        assertEquals(CustomHttpClient.OBJECT_MAPPER.writeValueAsString(clues), write(clues));
+    }
+
+    @Test
+    public void writtenJsonReadsBackTheSame() throws IOException {
+        ClueListDTO clues = CustomHttpClient.CLUE_LIST_READER.readValue(Files.readString(Path.of(INPUT_FILE)));
+
+        ClueListDTO again;
+        try (JsonParser parser = CustomHttpClient.OBJECT_MAPPER.getFactory().createParser(write(clues))) {
+            parser.nextToken();
+            again = ClueListDTOCodec.read(parser);
+        }
+
+        assertEquals(clues.getClues().toString(), again.getClues().toString());
+    }
+
+    @Test
+    public void coercionsMatchDatabind() throws IOException {
+        // Numbers as strings, nulls for primitives and strings, a float for a whole number,
+        // fields in another order and some left out.
+        String json = "{\"clues\":[{\"canon\":null,\"value\":\"400\",\"id\":7,\"answer\":null,"
+                + "\"gameId\":12.9,\"question\":42,\"category\":{\"title\":\"T\",\"id\":\"3\",\"canon\":1},"
+                + "\"game\":{\"aired\":\"2001-01-01\",\"canon\":\"true\"}}]}";
+
+        assertEquals(parseBothWays(json, CustomHttpClient.CodecMode.DATABIND),
+                parseBothWays(json, CustomHttpClient.CodecMode.GENERATED));
+    }
+
+    @Test
+    public void unknownFieldsFailInBothModes() {
+        String json = "{\"clues\":[{\"id\":1,\"answer\":\"a\",\"surprise\":true}]}";
+        for (CustomHttpClient.CodecMode mode : CustomHttpClient.CodecMode.values()) {
+            CustomHttpClient.setCodecMode(mode);
+            assertThrows(IOException.class, () -> CustomHttpClient.getCluesList(json), mode.toString());
+            assertThrows(IOException.class, () -> CustomHttpClient.getCluesList(
+                    new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))), mode.toString());
+        }
+    }
+
+    @Test
+    public void codecPropertyFallsBackToGenerated() {
+        try {
+            System.setProperty(CustomHttpClient.CODEC_PROPERTY, " DataBind ");
+            assertEquals(CustomHttpClient.CodecMode.DATABIND, CustomHttpClient.modeProperty(
+                    CustomHttpClient.CODEC_PROPERTY, CustomHttpClient.CodecMode.class, CustomHttpClient.CodecMode.GENERATED));
+
+            System.setProperty(CustomHttpClient.CODEC_PROPERTY, "reflection");
+            assertEquals(CustomHttpClient.CodecMode.GENERATED, CustomHttpClient.modeProperty(
+                    CustomHttpClient.CODEC_PROPERTY, CustomHttpClient.CodecMode.class, CustomHttpClient.CodecMode.GENERATED));
+        } finally {
+            System.clearProperty(CustomHttpClient.CODEC_PROPERTY);
+        }
+    }
+
+    private static List<String> parseBothWays(String json, CustomHttpClient.CodecMode mode) throws IOException {
+        CustomHttpClient.setCodecMode(mode);
+        List<String> clues = new ArrayList<>();
+        for (ClueDTO clue : CustomHttpClient.getCluesList(json)) {
+            clues.add(clue.toString() + " gameId=" + clue.getGameId());
+        }
+        for (ClueDTO clue : CustomHttpClient.getCluesList(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))) {
+            clues.add(clue.toString() + " gameId=" + clue.getGameId());
+        }
+        return clues;
+    }
+
+    private static String write(ClueListDTO clues) throws IOException {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = CustomHttpClient.OBJECT_MAPPER.getFactory().createGenerator(out)) {
+            ClueListDTOCodec.write(generator, clues);
+        }
+        return out.toString();
+    }
+}
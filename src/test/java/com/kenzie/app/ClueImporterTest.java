@@ -0,0 +1,105 @@
+package com.kenzie.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+public class ClueImporterTest {
+    private static final String INPUT_FILE = "clues.json";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void importsSplitsAndDeduplicates() throws IOException {
+        // Three files of 2,000 clues each, overlapping by 500 ids, with every 100th clue
+        // missing its answer. Small chunks make the importer split every file many times.
+        List<Path> files = new ArrayList<>();
+        for (int f = 0; f < 3; f++) {
+            files.add(writeDump("dump" + f + ".json", f * 1500 + 1, 2000));
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ClueStore store = new ClueStore();
+
+        ClueImporter.Report report = new ClueImporter(pool, store, 4096).importFiles(files, null);
+        pool.shutdown();
+
+        assertTrue(report.getErrors().isEmpty(), report.getErrors().toString());
+        assertEquals(6000, report.getParsed());
+        assertEquals(60, report.getInvalid());
+        assertEquals(1000 - 10, report.getDuplicates());
+        assertEquals(6000 - 60 - 990, report.getImported());
+        assertEquals(report.getTotalBytes(), report.getBytes());
+        assertEquals(3, report.getFiles());
+
+        assertEquals(report.getImported(), store.size());
+        Map<Long, Integer> byId = new HashMap<>();
+        for (int i = 0; i < store.size(); i++) {
+            assertEquals(null, byId.put(store.id(i), i), "imported twice: " + store.id(i));
+        }
+        int tricky = byId.get(1234L);
+        assertEquals("Q1234 with {braces}, [brackets], \"quotes\" and a \\ backslash", store.question(tricky));
+        assertEquals("A1234", store.answer(tricky));
+        assertEquals("Category 4", store.categoryTitle(store.category(tricky)));
+    }
+
+    @Test
+    public void skipsWhatAlreadyIsInTheStoreAndReportsBadFiles() throws IOException {
+        ClueStore store;
+        try (InputStream in = Files.newInputStream(Path.of(INPUT_FILE))) {
+            store = ClueStore.from(in);
+        }
+        Path copy = Files.copy(Path.of(INPUT_FILE), tempDir.resolve("copy.json"));
+        Path broken = tempDir.resolve("broken.json");
+        Files.writeString(broken, "{\"clues\": [{\"id\": 99, \"answer\": ");
+        Path big = writeDump("big.json", 100, 200);
+        Path truncated = tempDir.resolve("truncated.json");
+        byte[] bytes = Files.readAllBytes(big);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 300));
+        ForkJoinPool pool = new ForkJoinPool(2);
+
+        ClueImporter.Report report = new ClueImporter(pool, store, 4096)
+                .importFiles(List.of(copy, broken, truncated), null);
+        pool.shutdown();
+
+        assertEquals(5, report.getDuplicates());    // clues.json was in the store already.
+        assertEquals(2, report.getErrors().size(), report.getErrors().toString());
+        assertTrue(report.getImported() > 150, report.toString());     // The truncated file's complete chunks.
+        assertEquals(5 + report.getImported(), store.size());
+    }
+
+    private Path writeDump(String name, int firstId, int count) throws IOException {
+        StringBuilder json = new StringBuilder("{\"clues\": [\n");
+        for (int i = 0; i < count; i++) {
+            int id = firstId + i;
+            String question = id == 1234
+                    ? "Q1234 with {braces}, [brackets], \\\"quotes\\\" and a \\\\ backslash"
+                    : "Q" + id;
+            String answer = id % 100 == 0 ? "" : "A" + id;
+            if (i > 0) {
+                json.append(",\n");
+            }
+            json.append("  {\"id\": ").append(id)
+                    .append(", \"answer\": \"").append(answer)
+                    .append("\", \"question\": \"").append(question)
+                    .append("\", \"value\": 200, \"categoryId\": ").append(id % 10)
+                    .append(", \"category\": {\"id\": ").append(id % 10)
+                    .append(", \"title\": \"Category ").append(id % 10).append("\"}}");
+        }
+        json.append("\n], \"total\": ").append(count).append("}");
+        return Files.writeString(tempDir.resolve(name), json);
+    }
+}
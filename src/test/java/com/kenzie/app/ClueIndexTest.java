@@ -0,0 +1,110 @@
+package com.kenzie.app;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ClueIndexTest {
+    private static final String INPUT_FILE = "clues.json";
+
+    private ClueIndex index;
+
+    @BeforeEach
+    void init() throws IOException {
+        try (InputStream body = Files.newInputStream(Path.of(INPUT_FILE))) {
+            index = ClueIndex.from(ClueStore.from(body));
+        }
+    }
+
+    @Test
+    public void findsCluesByKeywordCategoryAndValue() {
+        assertArrayEquals(new int[] {0}, index.query().keyword("PSALM").run());
+        assertArrayEquals(new int[] {0}, index.query().category("the old testament").run());
+        assertArrayEquals(new int[] {2}, index.query().keyword("second most populous").run());
+        assertArrayEquals(new int[] {0, 1, 2, 3, 4}, index.query().minValue(200).run());
+        assertArrayEquals(new int[] {0, 1, 2, 3, 4}, index.query().run());
+
+        assertEquals(0, index.query().keyword("psalm").category("ROOM").run().length);
+        assertEquals(0, index.query().keyword("psalm").minValue(400).run().length);
+        assertEquals(0, index.query().keyword("nowhere").run().length);
+        assertEquals("sheep", index.query().keyword("psalm").clues().get(0).getAnswer());
+    }
+
+    @Test
+    public void updatesIncrementally() {
+        ClueDTO clue = clue(99, 400, 1, "THE OLD TESTAMENT", "Psalm 23 begins with this shepherd");
+        int added = index.add(clue);
+
+        assertArrayEquals(new int[] {0, added}, index.query().keyword("psalm").run());
+        assertArrayEquals(new int[] {added}, index.query().category("The Old Testament").minValue(400).run());
+
+        // Clues added to the store behind the index's back show up after update().
+        index.getStore().add(clue(100, 800, 7, "NEW CATEGORY", "A psalm of David"));
+        assertEquals(1, index.update());
+        assertEquals(3, index.query().keyword("psalm").run().length);
+        assertArrayEquals(new int[] {added + 1}, index.query().category("new category").run());
+    }
+
+    @Test
+    public void keepsEveryWordOfTheQuestion() {
+        int added = index.add(clue(99, 400, 1, "THE OLD TESTAMENT", "Who is the king of the jungle? It's a lion."));
+
+        assertArrayEquals(new int[] {added}, index.query().keyword("who").run());
+        assertArrayEquals(new int[] {added}, index.query().keyword("The King").keyword("its").run());
+        assertArrayEquals(new int[] {added}, index.query().keyword("lion!").run());
+    }
+
+    @Test
+    public void matchesAScanOverManyClues() {
+        String[] words = {"river", "king", "moses", "city", "star", "song", "war", "gold"};
+        Random random = new Random(42);
+        List<ClueDTO> clues = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            String question = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)]
+                    + " " + words[random.nextInt(words.length)];
+            int category = random.nextInt(20);
+            clues.add(clue(1000 + i, 200 * (1 + random.nextInt(5)), 100 + category, "CATEGORY " + category, question));
+        }
+        ClueStore store = new ClueStore();
+        store.addAll(clues);
+        ClueIndex big = ClueIndex.from(store);
+
+        int[] found = big.query().keyword("moses").keyword("gold").category("category 7").values(400, 800).run();
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < clues.size(); i++) {
+            ClueDTO clue = clues.get(i);
+            List<String> questionWords = List.of(clue.getQuestion().split(" "));
+            if (questionWords.contains("moses") && questionWords.contains("gold")
+                    && clue.getCategory().getTitle().equals("CATEGORY 7")
+                    && clue.getValue() >= 400 && clue.getValue() <= 800) {
+                expected.add(i);
+            }
+        }
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), found);
+    }
+
+    private static ClueDTO clue(long id, long value, long categoryId, String title, String question) {
+        ClueDTO clue = new ClueDTO();
+        clue.setId(id);
+        clue.setValue(value);
+        clue.setQuestion(question);
+        clue.setAnswer("answer");
+        ClueDTO.Category category = new ClueDTO.Category();
+        category.setId(categoryId);
+        category.setTitle(title);
+        clue.setCategoryId(categoryId);
+        clue.setCategory(category);
+        return clue;
+    }
+}
@@ -0,0 +1,129 @@
+package com.kenzie.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+
+public class ClueSamplerTest {
+
+    @Test
+    public void neverRepeatsForAPlayerUntilEverythingIsSeen() {
+        ClueStore store = store(1000);
+        ClueSampler sampler = ClueSampler.uniform(store);
+
+        Set<Integer> dealt = new HashSet<>();
+        for (int game = 0; game < 100; game++) {
+            for (int index : sampler.sample("alice", 10)) {
+                assertTrue(dealt.add(index), "clue " + index + " dealt twice");
+            }
+        }
+        assertEquals(1000, dealt.size());
+        assertEquals(1000, sampler.seenCount("alice"));
+
+        // Another player has their own seen set.
+        assertEquals(10, sampler.sample("bob", 10).length);
+        assertEquals(10, sampler.seenCount("bob"));
+
+        // Alice has seen it all, so she starts over.
+        assertEquals(10, sampler.sample("alice", 10).length);
+        assertEquals(10, sampler.seenCount("alice"));
+    }
+
+    @Test
+    public void weightedSamplingFavoursHeavyClues() {
+        ClueStore store = store(100);
+        // Clue 0 weighs as much as the other 99 together.
+        ClueSampler sampler = ClueSampler.weighted(store, index -> index == 0 ? 99 : 1);
+
+        int hits = 0;
+        for (int trial = 0; trial < 2000; trial++) {
+            int[] deck = sampler.sample("player" + trial, 1);
+            if (deck[0] == 0) {
+                hits++;
+            }
+        }
+        assertTrue(hits > 850 && hits < 1150, "hits: " + hits);
+    }
+
+    @Test
+    public void weightedSamplingStillAvoidsSeenClues() {
+        ClueStore store = store(50);
+        ClueSampler sampler = ClueSampler.weighted(store, ClueSampler.byValue(store));
+
+        Set<Integer> dealt = new HashSet<>();
+        for (int game = 0; game < 5; game++) {
+            for (int index : sampler.sample("alice", 10)) {
+                assertTrue(dealt.add(index), "clue " + index + " dealt twice");
+            }
+        }
+        assertEquals(50, dealt.size());
+    }
+
+    @Test
+    public void picksUpNewCluesOnRefresh() {
+        ClueStore store = store(5);
+        ClueSampler sampler = ClueSampler.uniform(store);
+        assertEquals(5, sampler.sample("alice", 10).length);
+
+        for (int i = 5; i < 20; i++) {
+            store.add(clue(i));
+        }
+        sampler.refresh();
+
+        Set<Integer> dealt = new HashSet<>();
+        for (int index : sampler.sample("alice", 15)) {
+            assertTrue(index >= 5 && dealt.add(index));
+        }
+        assertEquals("question 7", sampler.deal("bob", 20).stream()
+                .filter(clue -> clue.getId() == 7).findFirst().orElseThrow().getQuestion());
+    }
+
+    @Test
+    public void deckSourceDealsAnonymousGamesOnTheirOwn() throws Exception {
+        ClueSampler sampler = ClueSampler.uniform(store(30));
+        BiFunction<String, Integer, CompletableFuture<List<ClueDTO>>> games = sampler.deckSource();
+
+        // Forty games of ten from thirty clues: each deck is whole and has no repeats.
+        for (int game = 0; game < 40; game++) {
+            Set<Long> ids = new HashSet<>();
+            for (ClueDTO clue : games.apply(null, 10).get()) {
+                assertTrue(ids.add(clue.getId()), "clue " + clue.getId() + " dealt twice in one game");
+            }
+            assertEquals(10, ids.size());
+        }
+        assertEquals(0, sampler.seenCount("server"));
+
+        // A named player's games go through their seen clues.
+        Set<Long> alice = new HashSet<>();
+        for (int game = 0; game < 3; game++) {
+            for (ClueDTO clue : games.apply("alice", 10).get()) {
+                assertTrue(alice.add(clue.getId()), "clue " + clue.getId() + " dealt to alice twice");
+            }
+        }
+        assertEquals(30, sampler.seenCount("alice"));
+    }
+
+    private static ClueStore store(int size) {
+        ClueStore store = new ClueStore();
+        for (int i = 0; i < size; i++) {
+            store.add(clue(i));
+        }
+        return store;
+    }
+
+    private static ClueDTO clue(int id) {
+        ClueDTO clue = new ClueDTO();
+        clue.setId(id);
+        clue.setValue(200L * (1 + id % 5));
+        clue.setQuestion("question " + id);
+        clue.setAnswer("answer " + id);
+        return clue;
+    }
+}
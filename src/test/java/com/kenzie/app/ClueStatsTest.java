@@ -0,0 +1,156 @@
+package com.kenzie.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntToDoubleFunction;
+
+public class ClueStatsTest {
+    private static final String INPUT_FILE = "clues.json";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void sessionsRecordHowQuestionsWent() throws Exception {
+        List<ClueDTO> clues = CustomHttpClient.getCluesList(Files.readString(Path.of(INPUT_FILE)));
+        AtomicLong now = new AtomicLong();
+        GameEngine engine = new GameEngine(size -> CompletableFuture.completedFuture(clues.subList(0, size)),
+                AnswerMatcher.fuzzy(), 3, Duration.ofSeconds(45), now::get);
+        ClueStats stats = new ClueStats();
+        engine.setStats(stats);
+
+        GameSession session = engine.startGame().get();
+        session.submit("wrong");
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        session.submit(clues.get(0).getAnswer());       // Correct after 5 seconds.
+        session.next();
+        session.next();                                 // Skipped the second.
+        now.addAndGet(TimeUnit.SECONDS.toNanos(45));
+        session.submit(clues.get(2).getAnswer());       // Too late.
+
+        ClueStats.Counts first = stats.forClue(clues.get(0).getId());
+        assertEquals(1, first.getAttempts());
+        assertEquals(1, first.getCorrect());
+        assertEquals(1, first.getWrong());
+        assertEquals(Duration.ofSeconds(5), first.getMeanAnswerTime());
+        assertEquals(1, stats.forClue(clues.get(1).getId()).getSkips());
+        assertEquals(1, stats.forClue(clues.get(2).getId()).getTimeouts());
+        assertEquals(1, stats.forCategory(clues.get(2).getCategory().getId()).getAttempts());
+
+        ClueStats.Counts overall = stats.overall();
+        assertEquals(3, overall.getAttempts());
+        assertEquals(1.0 / 3, overall.getSuccessRate(), 1e-9);
+    }
+
+    @Test
+    public void countsExactlyUnderContention() throws Exception {
+        ClueStats stats = new ClueStats();
+        ClueDTO clue = clue(1, 10);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        stats.recordCorrect(clue, 1);
+                        stats.recordTimeout(clue);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(160_000, stats.forClue(1).getAttempts());
+        assertEquals(80_000, stats.forCategory(10).getCorrect());
+    }
+
+    @Test
+    public void savesAndLoads() throws IOException {
+        ClueStats stats = new ClueStats();
+        stats.recordCorrect(clue(1, 10), 2_000_000_000L);
+        stats.recordWrong(clue(1, 10));
+        stats.recordTimeout(clue(2, 20));
+        Path file = tempDir.resolve("stats.csv");
+
+        stats.save(file);
+        ClueStats loaded = ClueStats.load(file);
+
+        assertEquals(1, loaded.forClue(1).getCorrect());
+        assertEquals(1, loaded.forClue(1).getWrong());
+        assertEquals(Duration.ofSeconds(2), loaded.forClue(1).getMeanAnswerTime());
+        assertEquals(1, loaded.forCategory(20).getTimeouts());
+        assertEquals(2, loaded.overall().getAttempts());
+        assertEquals(0, ClueStats.load(tempDir.resolve("missing.csv")).overall().getAttempts());
+    }
+
+    @Test
+    public void corruptFileStartsOverAndIsKept() throws IOException {
+        Path file = tempDir.resolve("stats.csv");
+        Files.writeString(file, "not,the,stats\n");
+
+        ClueStats stats = ClueStats.loadOrStartOver(file);
+
+        assertEquals(0, stats.overall().getAttempts());
+        assertEquals("not,the,stats\n", Files.readString(tempDir.resolve("stats.csv.bad")));
+        assertTrue(Files.notExists(file));
+    }
+
+    @Test
+    public void targetingFavoursCluesNearTheTargetRate() {
+        ClueStore store = new ClueStore();
+        store.add(clue(1, 10));     // Always answered.
+        store.add(clue(2, 20));     // Answered half the time.
+        store.add(clue(3, 30));     // Never answered.
+        ClueStats stats = new ClueStats();
+        for (int i = 0; i < 50; i++) {
+            stats.recordCorrect(clue(1, 10), 1);
+            if (i % 2 == 0) {
+                stats.recordCorrect(clue(2, 20), 1);
+            } else {
+                stats.recordTimeout(clue(2, 20));
+            }
+            stats.recordTimeout(clue(3, 30));
+        }
+
+        IntToDoubleFunction weights = stats.targeting(store, 0.5);
+
+        assertTrue(weights.applyAsDouble(1) > 10 * weights.applyAsDouble(0));
+        assertTrue(weights.applyAsDouble(1) > 10 * weights.applyAsDouble(2));
+        assertTrue(stats.estimatedSuccessRate(1, 10) > 0.9);
+        // A clue never played leans on its category.
+        assertTrue(stats.estimatedSuccessRate(99, 30) < 0.1);
+    }
+
+    private static ClueDTO clue(long id, long categoryId) {
+        ClueDTO clue = new ClueDTO();
+        clue.setId(id);
+        clue.setValue(200);
+        clue.setQuestion("question " + id);
+        clue.setAnswer("answer " + id);
+        ClueDTO.Category category = new ClueDTO.Category();
+        category.setId(categoryId);
+        category.setTitle("category " + categoryId);
+        clue.setCategoryId(categoryId);
+        clue.setCategory(category);
+        return clue;
+    }
+}
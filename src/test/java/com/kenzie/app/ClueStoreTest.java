@@ -0,0 +1,67 @@
+package com.kenzie.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class ClueStoreTest {
+    private static final String INPUT_FILE = "clues.json";
+
+    @Test
+    public void holdsSameCluesAsClueList() throws IOException {
+        List<ClueDTO> expected = CustomHttpClient.getCluesList(Files.readString(Path.of(INPUT_FILE)));
+        ClueListDTO clueList = new ClueListDTO();
+        clueList.setClues(expected);
+
+        ClueStore store = ClueStore.from(clueList);
+
+        assertEquals(expected.size(), store.size());
+        ClueStore.View view = store.view();
+        for (int i = 0; i < expected.size(); i++) {
+            view.moveTo(i);
+            assertEquals(expected.get(i).getId(), view.id());
+            assertEquals(expected.get(i).getQuestion(), view.question());
+            assertEquals(expected.get(i).getAnswer(), view.answer());
+            assertEquals(expected.get(i).getValue(), view.value());
+            assertEquals(expected.get(i).getCategory().getTitle(), view.categoryTitle());
+        }
+    }
+
+    @Test
+    public void internsCategoriesAndGrows() throws IOException {
+        ClueStore store;
+        try (InputStream body = Files.newInputStream(Path.of(INPUT_FILE))) {
+            store = ClueStore.from(body);
+        }
+        int firstCount = store.size();
+        int categories = store.categoryCount();
+
+        // Enough copies to force every array to grow a few times.
+        for (int i = 0; i < 200; i++) {
+            store.add(store.toClueDTO(i % firstCount));
+        }
+
+        assertEquals(firstCount + 200, store.size());
+        assertEquals(categories, store.categoryCount());
+        assertEquals(store.question(0), store.question(firstCount));
+        assertThrows(IndexOutOfBoundsException.class, () -> store.id(store.size()));
+    }
+
+    @Test
+    public void rejectsValuesTooBigToStore() {
+        ClueStore store = new ClueStore();
+        ClueDTO clue = new ClueDTO();
+        clue.setId(1);
+        clue.setValue(Integer.MAX_VALUE + 1L);
+
+        assertThrows(ArithmeticException.class, () -> store.add(clue));
+        assertEquals(0, store.size());
+    }
+}
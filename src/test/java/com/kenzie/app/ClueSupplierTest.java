@@ -0,0 +1,110 @@
+package com.kenzie.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ClueSupplierTest {
+
+    private static List<ClueDTO> cluesWithIds(long from, long to) {
+        List<ClueDTO> clues = new ArrayList<>();
+        for (long id = from; id < to; id++) {
+            ClueDTO clue = new ClueDTO();
+            clue.setId(id);
+            clues.add(clue);
+        }
+        return clues;
+    }
+
+    @Test
+    public void dealsFromBufferWithoutRepeats() throws Exception {
+        AtomicInteger batches = new AtomicInteger();
+        ClueSupplier supplier = new ClueSupplier(() -> {
+            int batch = batches.getAndIncrement();
+            return CompletableFuture.completedFuture(cluesWithIds(batch * 100L, batch * 100L + 100));
+        }, 50, 20);
+        supplier.prefetch();
+
+        Set<Long> dealt = new HashSet<>();
+        for (int game = 0; game < 20; game++) {
+            CompletableFuture<List<ClueDTO>> deck = supplier.nextDeck(10);
+            assertTrue(deck.isDone());
+            for (ClueDTO clue : deck.get()) {
+                assertTrue(dealt.add(clue.getId()), "clue " + clue.getId() + " was dealt twice");
+            }
+        }
+    }
+
+    @Test
+    public void waitsForFirstBatch() throws Exception {
+        CompletableFuture<List<ClueDTO>> batch = new CompletableFuture<>();
+        ClueSupplier supplier = new ClueSupplier(() -> batch, 50, 20);
+
+        CompletableFuture<List<ClueDTO>> deck = supplier.nextDeck(10);
+        assertFalse(deck.isDone());
+
+        batch.complete(cluesWithIds(0, 100));
+        assertEquals(10, deck.get().size());
+        assertEquals(40, supplier.available());
+    }
+
+    @Test
+    public void recyclesCluesOnceSourceIsExhausted() throws Exception {
+        ClueSupplier supplier = new ClueSupplier(() -> CompletableFuture.completedFuture(cluesWithIds(0, 5)), 10, 5);
+
+        assertEquals(5, supplier.nextDeck(5).get().size());
+        assertEquals(5, supplier.nextDeck(5).get().size());
+        assertEquals(3, supplier.nextDeck(3).get().size());
+    }
+
+    @Test
+    public void lowWaterMarkAboveCorpusDoesNotRefillEndlessly() throws Exception {
+        AtomicInteger batches = new AtomicInteger();
+        ClueSupplier supplier = new ClueSupplier(() -> {
+            batches.incrementAndGet();
+            return CompletableFuture.completedFuture(cluesWithIds(0, 100));
+        }, 1000, 300);
+
+        Set<Long> dealt = new HashSet<>();
+        for (int game = 0; game < 10; game++) {
+            for (ClueDTO clue : supplier.nextDeck(10).get()) {
+                assertTrue(dealt.add(clue.getId()), "clue " + clue.getId() + " was dealt before the corpus ran out");
+            }
+        }
+        // One batch to fill up, one that added nothing, and no more after that.
+        assertEquals(2, batches.get());
+
+        // The corpus is used up, so the next game starts it over.
+        assertEquals(10, supplier.nextDeck(10).get().size());
+    }
+
+    @Test
+    public void decksCompleteOutsideTheLock() throws Exception {
+        ClueSupplier supplier = new ClueSupplier(() -> CompletableFuture.completedFuture(cluesWithIds(0, 100)), 50, 20);
+
+        CompletableFuture<Boolean> heldLock = supplier.nextDeck(10).thenApply(deck -> Thread.holdsLock(supplier));
+
+        assertFalse(heldLock.get());
+    }
+
+    @Test
+    public void failedBatchFailsWaitingDeck() {
+        ClueSupplier supplier = new ClueSupplier(
+                () -> CompletableFuture.failedFuture(new ResponseCodeException("Error: bad response code of 500 received.")),
+                10, 5);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> supplier.nextDeck(5).get());
+        assertTrue(e.getCause() instanceof ResponseCodeException);
+    }
+}
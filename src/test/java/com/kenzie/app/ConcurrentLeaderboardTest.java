@@ -0,0 +1,156 @@
+package com.kenzie.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ConcurrentLeaderboardTest {
+
+    @Test
+    public void ranksPlayersWithTiesSharingARank() {
+        ConcurrentLeaderboard board = new ConcurrentLeaderboard();
+        board.addPoints("ann", 5);
+        board.addPoints("bob", 3);
+        board.addPoints("cat", 5);
+        board.addPoints("dan", 1);
+
+        assertEquals(1, board.rank("ann"));
+        assertEquals(1, board.rank("cat"));
+        assertEquals(3, board.rank("bob"));
+        assertEquals(4, board.rank("dan"));
+        assertEquals(0, board.rank("eve"));
+
+        List<ConcurrentLeaderboard.Entry> top = board.top(3);
+        assertEquals(List.of("ann", "cat", "bob"), ids(top));
+        assertEquals(List.of(1L, 1L, 3L), List.of(top.get(0).getRank(), top.get(1).getRank(), top.get(2).getRank()));
+
+        board.addPoints("dan", 10);
+        assertEquals(1, board.rank("dan"));
+        assertEquals(2, board.rank("ann"));
+        assertTrue(board.remove("dan"));
+        assertFalse(board.remove("dan"));
+        assertEquals(1, board.rank("ann"));
+        assertEquals(3, board.size());
+        assertThrows(IllegalArgumentException.class, () -> board.addPoints("bob", -4));
+        assertEquals(3, board.score("bob"));
+    }
+
+    @Test
+    public void growsForHighScores() {
+        ConcurrentLeaderboard board = new ConcurrentLeaderboard();
+        board.addPoints("ann", 1);
+        board.addPoints("bob", 100_000);
+        board.addPoints("ann", 250_000);
+
+        assertEquals(250_001, board.score("ann"));
+        assertEquals(1, board.rank("ann"));
+        assertEquals(2, board.rank("bob"));
+    }
+
+    /**
+     * Many threads score many players while another takes snapshots. Every update must
+     * see the one before it for the same player (each new score is handed out exactly
+     * once), every snapshot must be a proper ranking, scores in it can only go up from
+     * one snapshot to the next, and once things settle the ranks must be exact.
+     */
+    @Test
+    public void staysConsistentUnderContention() throws Exception {
+        ConcurrentLeaderboard board = new ConcurrentLeaderboard();
+        int threads = 8;
+        int updatesPerThread = 20_000;
+        int players = 50;
+        Map<String, BitSet> scoresSeen = new ConcurrentHashMap<>();
+        for (int p = 0; p < players; p++) {
+            scoresSeen.put("player" + p, new BitSet());
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicBoolean scoring = new AtomicBoolean(true);
+
+        Future<Integer> snapshots = pool.submit(() -> {
+            go.await();
+            Map<String, Long> last = new HashMap<>();
+            int taken = 0;
+            while (scoring.get() || taken == 0) {
+                List<ConcurrentLeaderboard.Entry> top = board.top(10);
+                Set<String> unique = new HashSet<>();
+                for (int i = 0; i < top.size(); i++) {
+                    ConcurrentLeaderboard.Entry entry = top.get(i);
+                    assertTrue(unique.add(entry.getPlayerId()), "a player appears twice");
+                    assertTrue(entry.getScore() >= last.getOrDefault(entry.getPlayerId(), 0L), "a score went down");
+                    last.put(entry.getPlayerId(), entry.getScore());
+                    if (i > 0) {
+                        ConcurrentLeaderboard.Entry before = top.get(i - 1);
+                        assertTrue(before.getScore() >= entry.getScore(), "not sorted");
+                        assertEquals(before.getScore() == entry.getScore() ? before.getRank() : i + 1, entry.getRank());
+                    }
+                }
+                taken++;
+            }
+            return taken;
+        });
+        List<Future<?>> scorers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            scorers.add(pool.submit(() -> {
+                go.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < updatesPerThread; i++) {
+                    String player = "player" + random.nextInt(players);
+                    int points = 1 + random.nextInt(3);
+                    long score = board.addPoints(player, points);
+                    BitSet seen = scoresSeen.get(player);
+                    synchronized (seen) {
+                        assertFalse(seen.get((int) score), player + " got to " + score + " twice");
+                        seen.set((int) score);
+                    }
+                    board.rank(player);
+                }
+                return null;
+            }));
+        }
+        go.countDown();
+        for (Future<?> scorer : scorers) {
+            scorer.get(60, TimeUnit.SECONDS);
+        }
+        scoring.set(false);
+        assertTrue(snapshots.get(60, TimeUnit.SECONDS) > 0);
+        pool.shutdown();
+
+        // Settled: the ranks and the full ranking must agree with a plain sort.
+        List<ConcurrentLeaderboard.Entry> all = board.top(players);
+        assertEquals(players, all.size());
+        for (ConcurrentLeaderboard.Entry entry : all) {
+            long better = all.stream().filter(other -> other.getScore() > entry.getScore()).count();
+            assertEquals(better + 1, board.rank(entry.getPlayerId()));
+            assertEquals(better + 1, entry.getRank());
+            assertEquals(scoresSeen.get(entry.getPlayerId()).length() - 1, entry.getScore());
+        }
+    }
+
+    private static List<String> ids(List<ConcurrentLeaderboard.Entry> entries) {
+        List<String> ids = new ArrayList<>();
+        for (ConcurrentLeaderboard.Entry entry : entries) {
+            ids.add(entry.getPlayerId());
+        }
+        return ids;
+    }
+}
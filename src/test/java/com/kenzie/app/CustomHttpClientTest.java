@@ -1,18 +1,34 @@
 package com.kenzie.app;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
 public class CustomHttpClientTest {
     private MockWebServer mockWebServer;
@@ -31,6 +47,11 @@ public class CustomHttpClientTest {
 
     }
 
+    @AfterEach
+    void shutdown() throws IOException {
+        mockWebServer.shutdown();
+    }
+
     @Test
     public void canSendGET() {
         try{
@@ -49,4 +70,216 @@ public class CustomHttpClientTest {
             fail(e.getMessage());
         }
     }
+
+    @Test
+    public void canSendGETAsync() {
+        try{
+            this.mockWebServer.enqueue(new MockResponse()
+                    .addHeader("Content-Type", "application/json")
+                    .setBody(GET_CLUES_RESPONSE)
+                    .setResponseCode(200));
+
+            String result = CustomHttpClient.sendGETAsync(this.mockWebServer.url(URL_ALL).toString()).get();
+
+            assertEquals(GET_CLUES_RESPONSE, result);
+        }
+        catch (Exception e){
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void sendGETAsyncFailsOnBadResponseCode() {
+        this.mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () ->
+                CustomHttpClient.sendGETAsync(this.mockWebServer.url(URL_ALL).toString()).get());
+
+        assertTrue(e.getCause() instanceof ResponseCodeException);
+    }
+
+    @Test
+    public void streamingParseMatchesDatabind() throws IOException {
+        List<ClueDTO> expected = CustomHttpClient.getCluesList(GET_CLUES_RESPONSE);
+
+        List<ClueDTO> result;
+        try (InputStream body = Files.newInputStream(Path.of(INPUT_FILE))) {
+            result = CustomHttpClient.getCluesList(body);
+        }
+
+        assertEquals(5, result.size());
+        assertEquals(expected.size(), result.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), result.get(i).toString());
+        }
+    }
+
+    @Test
+    public void canFetchCluesAsync() throws Exception {
+        this.mockWebServer.enqueue(new MockResponse()
+                .addHeader("Content-Type", "application/json")
+                .setBody(GET_CLUES_RESPONSE)
+                .setResponseCode(200));
+
+        List<ClueDTO> result = CustomHttpClient.fetchCluesAsync(this.mockWebServer.url(URL_ALL).toString()).get();
+
+        assertEquals(5, result.size());
+        assertEquals("sheep", result.get(0).getAnswer());
+    }
+
+    @Test
+    public void modePropertyIgnoresLocaleAndFallsBack() {
+        Locale locale = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.forLanguageTag("tr-TR"));   // Where "i" upper-cases to a dotted capital I.
+            System.setProperty("trivia.test.mode", "fixed");
+            assertEquals(CustomHttpClient.ExecutorMode.FIXED, CustomHttpClient.modeProperty("trivia.test.mode",
+                    CustomHttpClient.ExecutorMode.class, CustomHttpClient.ExecutorMode.VIRTUAL));
+
+            System.setProperty("trivia.test.mode", "carrier-pigeon");
+            assertEquals(CustomHttpClient.ExecutorMode.VIRTUAL, CustomHttpClient.modeProperty("trivia.test.mode",
+                    CustomHttpClient.ExecutorMode.class, CustomHttpClient.ExecutorMode.VIRTUAL));
+        } finally {
+            Locale.setDefault(locale);
+            System.clearProperty("trivia.test.mode");
+        }
+    }
+
+    @Test
+    public void canSendGETAllInBothExecutorModes() throws Exception {
+        try {
+            for (CustomHttpClient.ExecutorMode mode : CustomHttpClient.ExecutorMode.values()) {
+                CustomHttpClient.configure(mode, 2);
+                for (int i = 0; i < 3; i++) {
+                    this.mockWebServer.enqueue(new MockResponse().setBody(GET_CLUES_RESPONSE));
+                }
+                String url = this.mockWebServer.url(URL_ALL).toString();
+
+                List<String> results = CustomHttpClient.sendGETAll(List.of(url, url, url));
+
+                assertEquals(List.of(GET_CLUES_RESPONSE, GET_CLUES_RESPONSE, GET_CLUES_RESPONSE), results);
+            }
+        } finally {
+            CustomHttpClient.configure(CustomHttpClient.ExecutorMode.VIRTUAL, 0);
+        }
+    }
+
+    @Test
+    public void decompressesGzipStraightIntoTheParser() throws Exception {
+        byte[] gzipped = gzip(GET_CLUES_RESPONSE);
+        for (int i = 0; i < 2; i++) {
+            this.mockWebServer.enqueue(new MockResponse()
+                    .addHeader("Content-Encoding", "gzip")
+                    .setBody(new Buffer().write(gzipped)));
+        }
+        String url = this.mockWebServer.url(URL_ALL).toString();
+        Metrics metrics = Metrics.get();
+        long wire = metrics.getWireBytes();
+        long decoded = metrics.getDecodedBytes();
+
+        List<ClueDTO> result = CustomHttpClient.fetchCluesAsync(url).get();
+        String body = CustomHttpClient.sendGETAsync(url).get();
+
+        RecordedRequest request = this.mockWebServer.takeRequest();
+        assertEquals(CustomHttpClient.ACCEPT_ENCODING, request.getHeader("Accept-Encoding"));
+        assertEquals(5, result.size());
+        assertEquals("sheep", result.get(0).getAnswer());
+        assertEquals(GET_CLUES_RESPONSE, body);
+        long jsonBytes = GET_CLUES_RESPONSE.getBytes(StandardCharsets.UTF_8).length;
+        assertEquals(2L * gzipped.length, metrics.getWireBytes() - wire);
+        assertEquals(2L * jsonBytes, metrics.getDecodedBytes() - decoded);
+        assertTrue(gzipped.length < jsonBytes);
+    }
+
+    @Test
+    public void decompressesZlibAndRawDeflate() throws Exception {
+        this.mockWebServer.enqueue(new MockResponse()
+                .addHeader("Content-Encoding", "deflate")
+                .setBody(new Buffer().write(deflate(GET_CLUES_RESPONSE, false))));
+        this.mockWebServer.enqueue(new MockResponse()
+                .addHeader("Content-Encoding", "deflate")
+                .setBody(new Buffer().write(deflate(GET_CLUES_RESPONSE, true))));
+        String url = this.mockWebServer.url(URL_ALL).toString();
+
+        List<ClueDTO> zlib;
+        try (InputStream body = CustomHttpClient.sendGETStream(url)) {
+            zlib = CustomHttpClient.getCluesList(body);
+        }
+        String raw = CustomHttpClient.sendGET(url);
+
+        assertEquals(5, zlib.size());
+        assertEquals("sheep", zlib.get(0).getAnswer());
+        assertEquals(GET_CLUES_RESPONSE, raw);
+    }
+
+    @Test
+    public void unknownContentEncodingFails() {
+        this.mockWebServer.enqueue(new MockResponse()
+                .addHeader("Content-Encoding", "br")
+                .setBody("not really brotli"));
+
+        assertThrows(IOException.class, () -> CustomHttpClient.sendGET(this.mockWebServer.url(URL_ALL).toString()));
+    }
+
+    @Test
+    public void concurrentFetchesOfTheSameUrlShareOneRequest() throws Exception {
+        this.mockWebServer.enqueue(new MockResponse()
+                .setBody(GET_CLUES_RESPONSE)
+                .setBodyDelay(300, TimeUnit.MILLISECONDS));
+        String url = this.mockWebServer.url(URL_ALL).toString();
+
+        List<CompletableFuture<List<ClueDTO>>> fetches = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            fetches.add(CustomHttpClient.fetchCluesAsync(url));
+        }
+        List<ClueDTO> first = fetches.get(0).get();
+        Collections.shuffle(first);
+        first.clear();      // Each caller's list is its own to shuffle or empty.
+
+        for (CompletableFuture<List<ClueDTO>> fetch : fetches.subList(1, fetches.size())) {
+            List<ClueDTO> clues = fetch.get();
+            assertEquals(5, clues.size());
+            assertEquals("sheep", clues.get(0).getAnswer());
+        }
+        assertEquals(1, this.mockWebServer.getRequestCount());
+        assertEquals(0, CustomHttpClient.clueFetches().inFlight());
+    }
+
+    @Test
+    public void sharedFetchFailsForEveryCaller() throws Exception {
+        this.mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(503)
+                .setHeadersDelay(200, TimeUnit.MILLISECONDS));
+        String url = this.mockWebServer.url(URL_ALL).toString();
+
+        List<CompletableFuture<List<ClueDTO>>> fetches = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            fetches.add(CustomHttpClient.fetchCluesAsync(url));
+        }
+
+        for (CompletableFuture<List<ClueDTO>> fetch : fetches) {
+            ExecutionException e = assertThrows(ExecutionException.class, fetch::get);
+            assertTrue(e.getCause() instanceof ResponseCodeException, e.getCause().toString());
+        }
+        assertEquals(1, this.mockWebServer.getRequestCount());
+    }
+
+    static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(String text, boolean raw) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, raw);
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(out, deflater)) {
+            deflate.write(text.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
 }
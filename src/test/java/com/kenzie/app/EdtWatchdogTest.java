@@ -0,0 +1,80 @@
+package com.kenzie.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.EventQueue;
+import java.awt.SecondaryLoop;
+import java.awt.Toolkit;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class EdtWatchdogTest {
+    private EdtWatchdog watchdog;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void init() {
+        watchdog = new EdtWatchdog(Duration.ofMillis(50)).start();
+    }
+
+    @AfterEach
+    void shutdown() {
+        watchdog.close();
+    }
+
+    @Test
+    public void catchesTheStackOfAStall() throws Exception {
+        EventQueue.invokeAndWait(() -> watchdog.time("slow", EdtWatchdogTest::blockTheEventThread));
+        EventQueue.invokeAndWait(() -> { });    // The stall's duration is filled in as its event ends.
+
+        List<EdtWatchdog.Stall> stalls = watchdog.getStalls();
+        assertEquals(1, stalls.size());
+        assertEquals(1, watchdog.getStallCount());
+        assertTrue(Arrays.stream(stalls.get(0).getStack())
+                .anyMatch(frame -> frame.getMethodName().equals("blockTheEventThread")));
+        assertTrue(stalls.get(0).getDurationMillis() >= 300);
+        assertTrue(watchdog.getActionLatency("slow").snapshot().getMaxNanos() >= TimeUnit.MILLISECONDS.toNanos(300));
+
+        Path report = tempDir.resolve("edt-report.txt");
+        watchdog.writeReport(report);
+        String text = Files.readString(report);
+        assertTrue(text.contains("1 stalls over 50 ms"), text);
+        assertTrue(text.contains("blockTheEventThread"), text);
+        assertTrue(text.contains("slow"), text);
+    }
+
+    @Test
+    public void waitingInADialogsLoopIsNotAStall() throws Exception {
+        // What a modal dialog does: pump events inside the event that opened it.
+        EventQueue.invokeAndWait(() -> watchdog.time("dialog", () -> {
+            SecondaryLoop loop = Toolkit.getDefaultToolkit().getSystemEventQueue().createSecondaryLoop();
+            CompletableFuture.delayedExecutor(300, TimeUnit.MILLISECONDS).execute(loop::exit);
+            loop.enter();
+        }));
+
+        assertEquals(0, watchdog.getStallCount());
+        assertTrue(watchdog.getActionLatency("dialog").snapshot().getMaxNanos() < TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(watchdog.getDispatchLatency().getCount() >= 1);
+    }
+
+    private static void blockTheEventThread() {
+        try {
+            Thread.sleep(300);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
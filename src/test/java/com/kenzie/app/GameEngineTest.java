@@ -0,0 +1,168 @@
+package com.kenzie.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class GameEngineTest {
+    private static final String INPUT_FILE = "clues.json";
+
+    private List<ClueDTO> clues;
+    private final AtomicLong now = new AtomicLong();
+    private GameEngine engine;
+
+    @BeforeEach
+    void init() throws IOException {
+        clues = CustomHttpClient.getCluesList(Files.readString(Path.of(INPUT_FILE)));
+        engine = new GameEngine(size -> CompletableFuture.completedFuture(clues.subList(0, Math.min(size, clues.size()))),
+                AnswerMatcher.fuzzy(), 3, Duration.ofSeconds(45), now::get);
+    }
+
+    @Test
+    public void playsThroughTheDeck() throws Exception {
+        GameSession session = engine.startGame().get();
+
+        assertEquals(GameState.ASKING, session.getState());
+        assertEquals(45, session.secondsRemaining());
+        assertEquals(SubmitResult.WRONG, session.submit("not it"));
+        assertEquals(SubmitResult.CORRECT, session.submit("what is " + clues.get(0).getAnswer()));
+        assertEquals(SubmitResult.NOT_ACCEPTING, session.submit(clues.get(0).getAnswer()));
+        assertEquals(GameState.ANSWERED, session.getState());
+
+        assertTrue(session.next());
+        assertTrue(session.next());     // Skipped the second question.
+        assertTrue(session.isLastQuestion());
+        assertEquals(SubmitResult.CORRECT, session.submit(clues.get(2).getAnswer()));
+        assertFalse(session.next());
+
+        assertEquals(GameState.FINISHED, session.getState());
+        assertEquals(2, session.getScore());
+    }
+
+    @Test
+    public void questionsTimeOut() throws Exception {
+        GameSession session = engine.startGame().get();
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(44) + 1);
+        assertEquals(1, session.secondsRemaining());
+        assertFalse(session.checkTimeout());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(SubmitResult.TIMED_OUT, session.submit(clues.get(0).getAnswer()));
+        assertEquals(GameState.TIMED_OUT, session.getState());
+        assertFalse(session.checkTimeout());    // Only reported once.
+
+        // The next question gets a fresh clock.
+        assertTrue(session.next());
+        assertEquals(45, session.secondsRemaining());
+        assertEquals(0, session.getScore());
+    }
+
+    @Test
+    public void hostsManySessionsAtOnce() throws Exception {
+        int players = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> scores = new ArrayList<>();
+            for (int i = 0; i < players; i++) {
+                scores.add(executor.submit(() -> {
+                    GameSession session = engine.startGame().get();
+                    do {
+                        session.submit(session.currentClue().getAnswer());
+                    } while (session.next());
+                    return session.getScore();
+                }));
+            }
+            for (Future<Integer> score : scores) {
+                assertEquals(3, score.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(players, engine.sessionCount());
+        assertEquals(players, engine.removeFinishedGames());
+        assertEquals(0, engine.sessionCount());
+    }
+
+    @Test
+    public void playersDealtBySamplerDontSeeRepeats() throws Exception {
+        ClueStore store = new ClueStore();
+        for (int i = 0; i < 12; i++) {
+            ClueDTO clue = new ClueDTO();
+            clue.setId(i);
+            clue.setQuestion("question " + i);
+            clue.setAnswer("answer " + i);
+            store.add(clue);
+        }
+        GameEngine sampled = new GameEngine(ClueSampler.uniform(store).deckSource(), AnswerMatcher.fuzzy(),
+                6, Duration.ofSeconds(45));
+
+        // Twelve clues, two games of six for alice: together they are every clue once.
+        Set<Long> seen = new HashSet<>();
+        for (int game = 0; game < 2; game++) {
+            GameSession session = sampled.startGame("alice").get();
+            for (ClueDTO clue : session.getDeck().clues()) {
+                assertTrue(seen.add(clue.getId()), "clue " + clue.getId() + " dealt to alice twice");
+            }
+            session.finish();
+        }
+        assertEquals(12, seen.size());
+
+        // Bob has seen none of them, and anonymous games still get a whole deck.
+        assertEquals(6, sampled.startGame("bob").get().getDeck().size());
+        assertEquals(6, sampled.startGame().get().getDeck().size());
+    }
+
+    @Test
+    public void endedSessionsAreForgotten() throws Exception {
+        GameSession session = engine.startGame().get();
+
+        engine.endGame(session.getId());
+
+        assertNull(engine.getSession(session.getId()));
+        assertEquals(GameState.FINISHED, session.getState());
+    }
+
+    @Test
+    public void wheelTimesOutUnansweredQuestions() throws Exception {
+        try (TimingWheel wheel = TimingWheel.start(Duration.ofMillis(10), 64)) {
+            GameEngine timed = new GameEngine(size -> CompletableFuture.completedFuture(clues.subList(0, size)),
+                    AnswerMatcher.fuzzy(), 2, Duration.ofMillis(100), wheel);
+            CountDownLatch timedOut = new CountDownLatch(2);
+            timed.addTimeoutListener(session -> timedOut.countDown());
+
+            GameSession answered = timed.startGame().get();
+            GameSession ignored = timed.startGame().get();
+            GameSession ignoredToo = timed.startGame().get();
+            assertEquals(SubmitResult.CORRECT, answered.submit(clues.get(0).getAnswer()));
+
+            // Nobody touches the other two sessions, yet they still time out.
+            assertTrue(timedOut.await(5, TimeUnit.SECONDS));
+            assertEquals(GameState.TIMED_OUT, ignored.getState());
+            assertEquals(GameState.TIMED_OUT, ignoredToo.getState());
+            assertEquals(GameState.ANSWERED, answered.getState());
+            assertEquals(0, wheel.pending());
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.kenzie.app;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class GameResultLogTest {
+    private static final String INPUT_FILE = "clues.json";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void resultsSurviveReopening() throws Exception {
+        try (GameResultLog log = GameResultLog.open(tempDir)) {
+            CompletableFuture.allOf(
+                    log.append(result("ann", 1, 3)),
+                    log.append(result("bob", 2, 5)),
+                    log.append(result("ann", 3, 4))).get();
+
+            assertEquals(3, log.gameCount());
+            assertEquals(List.of("ann", "bob"), ids(log.topPlayers(10)));
+        }
+
+        try (GameResultLog log = GameResultLog.open(tempDir)) {
+            GameResultLog.Standing ann = log.standing("ann");
+            assertEquals(2, ann.getGames());
+            assertEquals(7, ann.getTotalScore());
+            assertEquals(4, ann.getBestScore());
+            assertEquals(List.of("ann"), ids(log.topPlayers(1)));
+            assertNull(log.standing("carl"));
+
+            List<GameResult> history = log.history("ann", 10);
+            assertEquals(List.of(result("ann", 3, 4), result("ann", 1, 3)), history);
+            assertEquals(1, log.history("ann", 1).size());
+            assertTrue(log.history("carl", 10).isEmpty());
+        }
+    }
+
+    @Test
+    public void tornTailIsCutOff() throws Exception {
+        try (GameResultLog log = GameResultLog.open(tempDir)) {
+            log.append(result("ann", 1, 3)).get();
+            log.append(result("bob", 2, 5)).get();
+        }
+        Files.delete(tempDir.resolve("leaderboard.snap"));
+        Path logFile = tempDir.resolve("results.log");
+        long goodSize = Files.size(logFile);
+        Files.write(logFile, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);   // Half a record.
+
+        try (GameResultLog log = GameResultLog.open(tempDir)) {
+            assertEquals(goodSize, Files.size(logFile));
+            assertEquals(2, log.gameCount());
+            log.append(result("bob", 3, 1)).get();
+            assertEquals(List.of(result("bob", 3, 1), result("bob", 2, 5)), log.history("bob", 5));
+        }
+    }
+
+    @Test
+    public void rankingStaysCurrentBetweenSnapshots() throws Exception {
+        try (GameResultLog log = GameResultLog.open(tempDir, false, 1_000_000)) {
+            List<CompletableFuture<Void>> writes = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                writes.add(log.append(result("player" + i, i, i % 10)));
+            }
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0])).get();
+            log.compact();
+            assertEquals(List.of("player19", "player29", "player39"), ids(log.topPlayers(3)));
+
+            // After the snapshot: one player climbs to the top, another one joins.
+            // (Ties go by name.)
+            log.append(result("player0", 60, 9)).get();
+            log.append(result("player0", 61, 9)).get();
+            log.append(result("newcomer", 62, 9)).get();
+            assertEquals(List.of("player0", "newcomer", "player19", "player29"), ids(log.topPlayers(4)));
+            assertEquals(51, log.playerCount());
+        }
+
+        // Half from the snapshot, the rest replayed from the log.
+        try (GameResultLog log = GameResultLog.open(tempDir)) {
+            assertEquals(53, log.gameCount());
+            assertEquals(List.of("player0", "newcomer", "player19", "player29"), ids(log.topPlayers(4)));
+        }
+
+        // A damaged snapshot is ignored and the whole log replayed.
+        Path snapshot = tempDir.resolve("leaderboard.snap");
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(snapshot, bytes);
+        try (GameResultLog log = GameResultLog.open(tempDir)) {
+            assertEquals(53, log.gameCount());
+            assertEquals(18, log.standing("player0").getTotalScore());
+        }
+    }
+
+    @Test
+    public void sessionsReportHowTheGameWent() throws Exception {
+        List<ClueDTO> clues = CustomHttpClient.getCluesList(Files.readString(Path.of(INPUT_FILE)));
+        AtomicLong now = new AtomicLong();
+        GameEngine engine = new GameEngine(size -> CompletableFuture.completedFuture(clues.subList(0, size)),
+                AnswerMatcher.fuzzy(), 2, Duration.ofSeconds(45), now::get);
+        GameSession session = engine.startGame().get();
+        now.addAndGet(Duration.ofSeconds(2).toNanos());
+        session.submit(clues.get(0).getAnswer());
+        session.next();
+        session.next();
+
+        GameResult result = session.result("ann");
+        assertEquals(1, result.getScore());
+        assertEquals(2, result.getQuestionCount());
+        assertEquals(clues.get(1).getId(), result.getClueId(1));
+        assertTrue(result.isCorrect(0));
+        assertFalse(result.isCorrect(1));
+        assertArrayEquals(new int[] {2000, -1}, new int[] {result.getAnswerMillis(0), result.getAnswerMillis(1)});
+    }
+
+    @Test
+    public void appendsRacingCloseAllComplete() throws Exception {
+        GameResultLog log = GameResultLog.open(tempDir, false, 1_000_000);
+        List<CompletableFuture<Void>> appended = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> players = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            String player = "player" + p;
+            Thread thread = new Thread(() -> {
+                for (int i = 1; i <= 500; i++) {
+                    appended.add(log.append(result(player, i, i % 10)));
+                }
+            });
+            players.add(thread);
+            thread.start();
+        }
+        log.close();
+        for (Thread thread : players) {
+            thread.join();
+        }
+
+        // Written or failed, but never left hanging.
+        for (CompletableFuture<Void> future : appended) {
+            assertTrue(future.isDone());
+        }
+        assertTrue(log.append(result("late", 1, 1)).isCompletedExceptionally());
+    }
+
+    private static GameResult result(String player, long finishedAt, int score) {
+        boolean[] correct = new boolean[10];
+        int[] answerMillis = new int[10];
+        long[] clueIds = new long[10];
+        for (int i = 0; i < 10; i++) {
+            clueIds[i] = finishedAt * 10 + i;
+            correct[i] = i < score;
+            answerMillis[i] = i < score ? 1000 * (i + 1) : -1;
+        }
+        return new GameResult(player, finishedAt, score, clueIds, correct, answerMillis);
+    }
+
+    private static List<String> ids(List<GameResultLog.Standing> standings) {
+        List<String> ids = new ArrayList<>();
+        for (GameResultLog.Standing standing : standings) {
+            ids.add(standing.getPlayerId());
+        }
+        return ids;
+    }
+}
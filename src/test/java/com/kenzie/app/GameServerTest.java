@@ -0,0 +1,172 @@
+package com.kenzie.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class GameServerTest {
+    private static final String INPUT_FILE = "clues.json";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private List<ClueDTO> clues;
+    private GameEngine engine;
+    private GameServer server;
+
+    @BeforeEach
+    void init() throws IOException {
+        clues = CustomHttpClient.getCluesList(Files.readString(Path.of(INPUT_FILE)));
+        engine = new GameEngine(size -> CompletableFuture.completedFuture(clues.subList(0, Math.min(size, clues.size()))),
+                AnswerMatcher.fuzzy(), 2, Duration.ofSeconds(45));
+        server = new GameServer(engine, new InetSocketAddress("127.0.0.1", 0), Duration.ofMinutes(1));
+        server.start();
+    }
+
+    @AfterEach
+    void shutdown() {
+        server.close();
+    }
+
+    @Test
+    public void playsAGameOverHttp() throws Exception {
+        HttpResponse<String> started = send("POST", "/games", null);
+        assertEquals(201, started.statusCode());
+        GameResponseDTO game = parse(started);
+        assertEquals(GameState.ASKING, game.getState());
+        assertEquals(1, game.getQuestionNumber());
+        assertEquals(2, game.getQuestionCount());
+        assertEquals(clues.get(0).getQuestion(), game.getQuestion());
+        assertNull(game.getAnswer());   // Not until the question is over.
+        assertEquals("/games/" + game.getSessionId(), started.headers().firstValue("Location").orElse(null));
+
+        String path = "/games/" + game.getSessionId();
+        GameResponseDTO wrong = parse(send("POST", path + "/submit", "{\"answer\": \"not it\"}"));
+        assertEquals(SubmitResult.WRONG, wrong.getResult());
+
+        GameResponseDTO right = parse(send("POST", path + "/submit",
+                "{\"answer\": \"what is " + clues.get(0).getAnswer() + "\"}"));
+        assertEquals(SubmitResult.CORRECT, right.getResult());
+        assertEquals(GameState.ANSWERED, right.getState());
+        assertEquals(clues.get(0).getAnswer(), right.getAnswer());
+        assertEquals(1, right.getScore());
+
+        assertEquals(409, send("POST", path + "/submit", "{\"answer\": \"again\"}").statusCode());
+
+        GameResponseDTO second = parse(send("POST", path + "/next", null));
+        assertEquals(2, second.getQuestionNumber());
+        assertEquals(clues.get(1).getQuestion(), second.getQuestion());
+        assertEquals(second.getQuestion(), parse(send("GET", path, null)).getQuestion());
+
+        GameResponseDTO finished = parse(send("POST", path + "/next", null));
+        assertEquals(GameState.FINISHED, finished.getState());
+
+        assertEquals(200, send("DELETE", path, null).statusCode());
+        assertEquals(404, send("GET", path, null).statusCode());
+    }
+
+    @Test
+    public void rejectsBadRequests() throws Exception {
+        assertEquals(404, send("GET", "/games/no-such-game", null).statusCode());
+        assertEquals(405, send("GET", "/games", null).statusCode());
+
+        String path = "/games/" + parse(send("POST", "/games", null)).getSessionId();
+        HttpResponse<String> badBody = send("POST", path + "/submit", "not json");
+        assertEquals(400, badBody.statusCode());
+        assertTrue(badBody.body().contains("\"error\""));
+        assertEquals(400, send("POST", path + "/submit", "{}").statusCode());
+        assertEquals(405, send("GET", path + "/next", null).statusCode());
+        assertEquals(404, send("POST", path + "/skip", null).statusCode());
+    }
+
+    @Test
+    public void hostsConcurrentGames() throws Exception {
+        int players = 200;
+        List<CompletableFuture<HttpResponse<String>>> starts = new ArrayList<>();
+        for (int i = 0; i < players; i++) {
+            starts.add(client.sendAsync(request("POST", "/games", null), HttpResponse.BodyHandlers.ofString()));
+        }
+        List<CompletableFuture<HttpResponse<String>>> answers = new ArrayList<>();
+        for (CompletableFuture<HttpResponse<String>> start : starts) {
+            HttpResponse<String> response = start.get();
+            assertEquals(201, response.statusCode());
+            String path = "/games/" + parse(response).getSessionId() + "/submit";
+            answers.add(client.sendAsync(request("POST", path, "{\"answer\": \"" + clues.get(0).getAnswer() + "\"}"),
+                    HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> answer : answers) {
+            GameResponseDTO game = parse(answer.get());
+            assertNotNull(game.getSessionId());
+            assertEquals(SubmitResult.CORRECT, game.getResult());
+        }
+        assertEquals(players, engine.sessionCount());
+    }
+
+    @Test
+    public void leaderboardScoresPlayersAcrossGames() throws Exception {
+        assertEquals(404, send("GET", "/leaderboard", null).statusCode());     // None yet.
+        engine.setLeaderboard(new ConcurrentLeaderboard());
+        String answer = "{\"answer\": \"" + clues.get(0).getAnswer() + "\"}";
+        for (String player : new String[] {"ann", "bob", "ann%20b", "ann"}) {
+            String path = "/games/" + parse(send("POST", "/games?player=" + player, null)).getSessionId();
+            assertEquals(SubmitResult.CORRECT, parse(send("POST", path + "/submit", answer)).getResult());
+        }
+
+        HttpResponse<String> response = send("GET", "/leaderboard?top=2", null);
+        assertEquals(200, response.statusCode());
+        JsonNode top = CustomHttpClient.OBJECT_MAPPER.readTree(response.body());
+        assertEquals(2, top.size());
+        assertEquals("ann", top.get(0).get("playerId").asText());
+        assertEquals(2, top.get(0).get("score").asLong());
+        assertEquals("ann b", top.get(1).get("playerId").asText());
+        assertEquals(2, top.get(1).get("rank").asLong());
+        assertEquals(400, send("GET", "/leaderboard?top=none", null).statusCode());
+        assertEquals(405, send("DELETE", "/leaderboard", null).statusCode());
+    }
+
+    @Test
+    public void failuresInsideTheServerGetA500() throws Exception {
+        engine.setLeaderboard(new ConcurrentLeaderboard() {
+            @Override
+            public List<Entry> top(int k) {
+                throw new IllegalStateException("broken");
+            }
+        });
+
+        HttpResponse<String> response = send("GET", "/leaderboard", null);
+
+        assertEquals(500, response.statusCode());
+        assertTrue(response.body().contains("\"error\""));
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        return client.send(request(method, path, body), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest request(String method, String path, String body) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static GameResponseDTO parse(HttpResponse<String> response) throws IOException {
+        return CustomHttpClient.OBJECT_MAPPER.readValue(response.body(), GameResponseDTO.class);
+    }
+}
@@ -0,0 +1,49 @@
+package com.kenzie.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentilesAreWithinABucketOfTheTruth() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long millis = 1; millis <= 1000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), snapshot.getMaxNanos());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(500500), snapshot.getMeanNanos(), 1);
+        for (double percentile : new double[] {50, 90, 99, 99.9}) {
+            double truth = percentile * 10;
+            double reported = snapshot.getPercentileMillis(percentile);
+            assertTrue(reported >= truth && reported <= truth * 1.035,
+                    "p" + percentile + " was " + reported + " ms, expected about " + truth);
+        }
+        assertEquals(1000, snapshot.getPercentileMillis(100), 1e-9);
+    }
+
+    @Test
+    public void everyValueFallsInTheBucketThatHoldsIt() {
+        for (long value : new long[] {0, 1, 31, 32, 33, 63, 64, 1000, 123_456_789, 1L << 40}) {
+            int bucket = LatencyHistogram.bucketFor(value);
+            assertTrue(LatencyHistogram.highestValueIn(bucket) >= value);
+            assertTrue(bucket == 0 || LatencyHistogram.highestValueIn(bucket - 1) < value);
+        }
+    }
+
+    @Test
+    public void emptyHistogramReportsZeros() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getPercentileNanos(99));
+        assertEquals(0, snapshot.getMeanNanos());
+    }
+}
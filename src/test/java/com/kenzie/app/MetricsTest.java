@@ -0,0 +1,126 @@
+package com.kenzie.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class MetricsTest {
+    private static final String INPUT_FILE = "clues.json";
+
+    private MockWebServer mockWebServer;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void init() throws IOException {
+        mockWebServer = new MockWebServer();
+        mockWebServer.start();
+    }
+
+    @AfterEach
+    void shutdown() throws IOException {
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    public void fetchesAndParsesAreCounted() throws Exception {
+        Metrics metrics = Metrics.get();
+        long fetches = metrics.getFetchCount();
+        long parses = metrics.getParseCount();
+        long clues = metrics.getCluesParsed();
+        long exceptions = metrics.getResponseCodeExceptions();
+        long ok = metrics.getStatusCodes().getOrDefault("200", 0L);
+        long notFound = metrics.getStatusCodes().getOrDefault("404", 0L);
+
+        mockWebServer.enqueue(new MockResponse().setBody(Files.readString(Path.of(INPUT_FILE))));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(404));
+        String url = mockWebServer.url("api/clues").toString();
+        List<ClueDTO> parsed = CustomHttpClient.getCluesList(new CustomHttpClient().sendGET(url));
+        assertThrows(ResponseCodeException.class, () -> new CustomHttpClient().sendGET(url));
+
+        assertEquals(fetches + 2, metrics.getFetchCount());
+        assertEquals(ok + 1, metrics.getStatusCodes().get("200"));
+        assertEquals(notFound + 1, metrics.getStatusCodes().get("404"));
+        assertEquals(exceptions + 1, metrics.getResponseCodeExceptions());
+        assertEquals(parses + 1, metrics.getParseCount());
+        assertEquals(clues + parsed.size(), metrics.getCluesParsed());
+        assertTrue(metrics.getFetchMaxMillis() > 0);
+    }
+
+    @Test
+    public void metricsAreVisibleOverJmx() throws Exception {
+        Metrics.get().registerMBean();
+        Metrics.get().registerMBean();      // Twice is fine.
+
+        mockWebServer.enqueue(new MockResponse().setBody("{\"clues\":[]}"));
+        new CustomHttpClient().sendGET(mockWebServer.url("api/clues").toString());
+
+        Object fetchCount = ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName(Metrics.OBJECT_NAME), "FetchCount");
+        assertEquals(Metrics.get().getFetchCount(), fetchCount);
+    }
+
+    @Test
+    public void csvDumpAppendsARowUnderAHeader() throws IOException {
+        Metrics metrics = new Metrics();
+        metrics.recordAnswer(2_000_000_000L);
+        metrics.recordTimeout();
+        Path file = tempDir.resolve("metrics").resolve("metrics.csv");
+
+        metrics.dumpCsv(file);
+        metrics.dumpCsv(file);
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).startsWith("time,fetches,"));
+        String[] row = lines.get(2).split(",");
+        assertEquals(lines.get(0).split(",").length, row.length);
+        assertEquals("1", row[12]);     // answers
+        assertEquals("1", row[13]);     // timeouts
+    }
+
+    @Test
+    public void csvWithOtherColumnsIsMovedAside() throws IOException {
+        Path file = tempDir.resolve("metrics.csv");
+        Files.write(file, List.of("time,fetches", "2020-01-01T00:00:00Z,3"));
+
+        new Metrics().dumpCsv(file);
+
+        assertEquals(List.of("time,fetches", "2020-01-01T00:00:00Z,3"), Files.readAllLines(tempDir.resolve("metrics.csv.1")));
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        assertEquals(lines.get(0).split(",").length, lines.get(1).split(",").length);
+    }
+
+    @Test
+    public void bodiesAreCountedInBytesNotChars() {
+        assertEquals(5, Metrics.utf8Length("sheep"));
+        assertEquals(6, Metrics.utf8Length("caf\u00e9!"));
+        assertEquals(3, Metrics.utf8Length("\u20ac"));
+        assertEquals(4, Metrics.utf8Length("\ud83d\udc11"));   // One sheep, two chars.
+    }
+
+    @Test
+    public void makingAnExceptionCountsNothing() {
+        long exceptions = Metrics.get().getResponseCodeExceptions();
+
+        new ResponseCodeException("Error: bad response code of 500 received.");
+
+        assertEquals(exceptions, Metrics.get().getResponseCodeExceptions());
+    }
+}
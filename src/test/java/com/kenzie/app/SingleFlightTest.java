@@ -0,0 +1,104 @@
+package com.kenzie.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTest {
+
+    @Test
+    public void concurrentCallsShareOneCallButNotTheResult() throws Exception {
+        SingleFlight<String, List<Integer>> flights = new SingleFlight<>(ArrayList::new);
+        CompletableFuture<List<Integer>> upstream = new CompletableFuture<>();
+        AtomicInteger started = new AtomicInteger();
+
+        List<CompletableFuture<List<Integer>>> waiters = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            waiters.add(flights.execute("clues", () -> {
+                started.incrementAndGet();
+                return upstream;
+            }));
+        }
+        assertEquals(1, flights.inFlight());
+        upstream.complete(List.of(1, 2, 3));
+
+        assertEquals(1, started.get());
+        List<Integer> first = waiters.get(0).get();
+        first.add(4);       // Each waiter's list is its own.
+        for (CompletableFuture<List<Integer>> waiter : waiters.subList(1, waiters.size())) {
+            assertEquals(List.of(1, 2, 3), waiter.get());
+            assertNotSame(first, waiter.get());
+        }
+        assertEquals(0, flights.inFlight());
+        assertEquals(10, flights.getCalls());
+        assertEquals(1, flights.getFlights());
+
+        // Landed flights aren't kept: the next call goes out again.
+        flights.execute("clues", () -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture(List.of());
+        }).get();
+        assertEquals(2, started.get());
+    }
+
+    @Test
+    public void failuresReachEveryWaiter() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<String> one = flights.execute("url", () -> upstream);
+        CompletableFuture<String> two = flights.execute("url", () -> upstream);
+
+        upstream.completeExceptionally(new ResponseCodeException("Error: bad response code of 503 received."));
+
+        for (CompletableFuture<String> waiter : List.of(one, two)) {
+            ExecutionException e = assertThrows(ExecutionException.class, waiter::get);
+            assertTrue(e.getCause() instanceof ResponseCodeException, e.getCause().toString());
+        }
+        assertEquals(0, flights.inFlight());
+    }
+
+    @Test
+    public void callIsCancelledOnlyWhenEveryWaiterHasGone() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<String> one = flights.execute("url", () -> upstream);
+        CompletableFuture<String> two = flights.execute("url", () -> upstream);
+
+        one.cancel(true);
+        assertFalse(upstream.isCancelled());
+        assertEquals(1, flights.inFlight());
+
+        two.cancel(true);
+        assertTrue(upstream.isCancelled());
+        assertEquals(0, flights.inFlight());
+
+        // A new caller starts afresh rather than joining the cancelled flight.
+        CompletableFuture<String> replacement = new CompletableFuture<>();
+        CompletableFuture<String> three = flights.execute("url", () -> replacement);
+        replacement.complete("clues");
+        assertEquals("clues", three.get());
+    }
+
+    @Test
+    public void identityViewSharesTheResult() throws Exception {
+        SingleFlight<String, List<Integer>> flights = new SingleFlight<>();
+        CompletableFuture<List<Integer>> upstream = new CompletableFuture<>();
+        CompletableFuture<List<Integer>> one = flights.execute("url", () -> upstream);
+        CompletableFuture<List<Integer>> two = flights.execute("url", () -> upstream);
+
+        upstream.complete(List.of(1));
+
+        assertSame(one.get(), two.get());
+    }
+}
@@ -0,0 +1,129 @@
+package com.kenzie.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TimingWheelTest {
+
+    private TimingWheel wheel;
+
+    @BeforeEach
+    void init() {
+        // 8 buckets of 10 ms, so anything over 80 ms has to wait out extra rounds.
+        wheel = TimingWheel.start(Duration.ofMillis(10), 8);
+    }
+
+    @AfterEach
+    void shutdown() {
+        wheel.close();
+    }
+
+    @Test
+    public void firesAfterTheDelayAndNotBefore() throws Exception {
+        CountDownLatch fired = new CountDownLatch(1);
+        AtomicLong firedAt = new AtomicLong();
+        long start = System.nanoTime();
+
+        TimingWheel.Timeout timeout = wheel.schedule(200, TimeUnit.MILLISECONDS, () -> {
+            firedAt.set(System.nanoTime());
+            fired.countDown();
+        });
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertTrue(firedAt.get() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test
+    public void cancelledTimeoutsNeverFire() throws Exception {
+        AtomicInteger fired = new AtomicInteger();
+        List<TimingWheel.Timeout> timeouts = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            timeouts.add(wheel.schedule(50 + i % 100, TimeUnit.MILLISECONDS, fired::incrementAndGet));
+        }
+        for (int i = 0; i < timeouts.size(); i += 2) {
+            assertTrue(timeouts.get(i).cancel());
+        }
+        assertFalse(timeouts.get(0).cancel());
+        CountDownLatch last = new CountDownLatch(1);
+        wheel.schedule(300, TimeUnit.MILLISECONDS, last::countDown);
+
+        assertTrue(last.await(5, TimeUnit.SECONDS));
+        assertEquals(500, fired.get());
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test
+    public void expiriesAreBatchedPerTick() throws Exception {
+        AtomicInteger batches = new AtomicInteger();
+        CountDownLatch fired = new CountDownLatch(10_000);
+        try (TimingWheel batching = TimingWheel.start(Duration.ofMillis(10), 8, task -> {
+            batches.incrementAndGet();
+            task.run();
+        })) {
+            for (int i = 0; i < 10_000; i++) {
+                batching.schedule(50, TimeUnit.MILLISECONDS, fired::countDown);
+            }
+            assertTrue(fired.await(5, TimeUnit.SECONDS));
+        }
+        // Ten thousand timeouts due within a tick or two of each other, not ten thousand handoffs.
+        assertTrue(batches.get() <= 5, "batches: " + batches.get());
+    }
+
+    @Test
+    public void repeatsUntilCancelled() throws Exception {
+        CountDownLatch ticks = new CountDownLatch(3);
+        TimingWheel.Timeout ticker = wheel.scheduleRepeating(Duration.ofMillis(30), ticks::countDown);
+
+        assertTrue(ticks.await(5, TimeUnit.SECONDS));
+        assertTrue(ticker.cancel());
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test
+    public void tasksDoNotRunOnTheWheelThread() throws Exception {
+        CompletableFuture<String> thread = new CompletableFuture<>();
+
+        wheel.schedule(10, TimeUnit.MILLISECONDS, () -> thread.complete(Thread.currentThread().getName()));
+
+        assertEquals("timing-wheel-callbacks", thread.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void repeatsAWholeTurnApartDoNotSkipATurn() throws Exception {
+        // 80 ms is exactly one turn of the wheel, so each repeat lands in the bucket that
+        // has just been walked.
+        List<Long> firedAt = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch ticks = new CountDownLatch(4);
+        TimingWheel.Timeout ticker = wheel.scheduleRepeating(Duration.ofMillis(80), () -> {
+            firedAt.add(System.nanoTime());
+            ticks.countDown();
+        });
+        try {
+            assertTrue(ticks.await(5, TimeUnit.SECONDS));
+        } finally {
+            ticker.cancel();
+        }
+        for (int i = 1; i < 4; i++) {
+            long gap = firedAt.get(i) - firedAt.get(i - 1);
+            assertTrue(gap < TimeUnit.MILLISECONDS.toNanos(80 + 40), "run " + i + " came " + gap / 1_000_000 + " ms later");
+        }
+    }
+}